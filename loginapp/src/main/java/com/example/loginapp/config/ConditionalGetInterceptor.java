@@ -0,0 +1,81 @@
+package com.example.loginapp.config;
+
+import com.example.loginapp.service.EntityTagService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import java.util.Set;
+
+/**
+ * Answers conditional GETs on the query, venue and user APIs before the
+ * controller runs. The ETag comes from EntityTagService's in-memory version
+ * counters, so a matching If-None-Match returns 304 without loading
+ * anything; otherwise the tag is set on the response and the request
+ * proceeds as usual. A single query whose tag is not cached costs one
+ * select of its updatedAt, and only when the request is conditional.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    // Counters that move without any query write, so the queries tag would serve them stale
+    private static final Set<String> UNTAGGED = Set.of(
+            "/api/queries/thumbnail-metrics",
+            "/api/queries/assignment-metrics",
+            "/api/queries/dispatch-metrics",
+            "/api/queries/sla-metrics");
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean singleQuery = path.matches("/api/queries/\\d{1,18}");
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (singleQuery && ifNoneMatch == null) {
+            // Nothing to compare, and the controller sets the tag from the query it loads anyway
+            return true;
+        }
+        String etag = resolveTag(path, singleQuery);
+        if (etag == null) {
+            return true;
+        }
+
+        if (EntityTagService.matches(ifNoneMatch, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return false;
+        }
+        // Single queries set their own tag once loaded
+        if (!singleQuery) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        return true;
+    }
+
+    private String resolveTag(String path, boolean singleQuery) {
+        if (singleQuery) {
+            return entityTagService.queryTag(Long.valueOf(path.substring("/api/queries/".length())));
+        }
+        if (path.startsWith("/api/queries/export") || UNTAGGED.contains(path)) {
+            return null;
+        }
+        if (path.equals("/api/queries") || path.startsWith("/api/queries/")) {
+            return entityTagService.queriesTag();
+        }
+        if (path.equals("/api/venues") || path.startsWith("/api/venues/")) {
+            return entityTagService.venuesTag();
+        }
+        if (path.equals("/api/users") || path.startsWith("/api/users/")) {
+            return entityTagService.usersTag();
+        }
+        return null;
+    }
+}
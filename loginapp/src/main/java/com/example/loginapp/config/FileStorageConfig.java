@@ -1,15 +1,25 @@
 package com.example.loginapp.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import java.time.Duration;
 
 @Configuration
 public class FileStorageConfig implements WebMvcConfigurer {
 
+    @Value("${app.files.cache-max-age-seconds:86400}")
+    private long cacheMaxAgeSeconds;
+
+    // Legacy upload URLs; the handler already does Range and Last-Modified, this adds caching
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/");
+                .addResourceLocations("file:uploads/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofSeconds(cacheMaxAgeSeconds)).cachePublic())
+                .setUseLastModified(true)
+                .resourceChain(true);
     }
 }
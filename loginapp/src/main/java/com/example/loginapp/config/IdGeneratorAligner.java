@@ -0,0 +1,57 @@
+package com.example.loginapp.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.util.List;
+
+/**
+ * Keeps the pooled id_generators rows ahead of the ids already in use.
+ * Tables that used IDENTITY columns before switching to table-generated ids
+ * would otherwise hand out ids that collide with existing rows. Runs before
+ * any other startup runner so no block has been allocated yet.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IdGeneratorAligner implements CommandLineRunner {
+
+    // Must match allocationSize on the @TableGenerator mappings
+    private static final long ALLOCATION_SIZE = 50;
+
+    private static final List<String> GENERATED_TABLES = List.of("queries", "query_status_history");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) throws Exception {
+        for (String table : GENERATED_TABLES) {
+            try {
+                align(table);
+            } catch (Exception e) {
+                System.err.println("Could not align id generator for " + table + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void align(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // The pooled optimizer hands out (stored - allocationSize, stored], so stay a full block clear
+        long required = (maxId != null ? maxId : 0L) + ALLOCATION_SIZE + 1;
+
+        List<Long> current = jdbcTemplate.queryForList(
+                "SELECT next_val FROM id_generators WHERE sequence_name = ?", Long.class, table);
+        if (current.isEmpty()) {
+            if (maxId != null && maxId > 0) {
+                jdbcTemplate.update("INSERT INTO id_generators (sequence_name, next_val) VALUES (?, ?)", table, required);
+                System.out.println("Initialized id generator for " + table + " at " + required);
+            }
+        } else if (current.get(0) == null || current.get(0) < required - 1) {
+            jdbcTemplate.update("UPDATE id_generators SET next_val = ? WHERE sequence_name = ?", required, table);
+            System.out.println("Moved id generator for " + table + " to " + required);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.loginapp.config;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.loginapp.model.AuthenticatedUser;
+import com.example.loginapp.service.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates a request from its Bearer access token alone: the signature
+ * and claims are checked in memory and become the security principal, so no
+ * user lookup happens. Requests with a missing or bad token continue
+ * unauthenticated.
+ *
+ * Only /api/auth/me reads this principal so far. The other controllers
+ * still take user ids from the request and are open in SecurityConfig, so a
+ * token identifies the caller there but does not yet authorize anything.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public JwtAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            try {
+                AuthenticatedUser user = tokenService.parseAccessToken(header.substring(BEARER_PREFIX.length()).trim());
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        user, null, List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            } catch (JWTVerificationException | IllegalArgumentException e) {
+                // Tells the client to refresh; the request itself is still served as anonymous
+                response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.loginapp.config;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Versioned secondary index definitions for the tables Hibernate generates.
+ * Each migration is applied once and recorded in schema_index_version; index
+ * existence is checked through JDBC metadata so the same definitions work on
+ * SQLite, MySQL and Postgres. After migrating, every defined index is checked
+ * and any that are missing are reported.
+ */
+@Component
+public class SchemaIndexManager implements CommandLineRunner {
+
+    // Append new migrations with a higher version; never edit one that has shipped
+    private static final List<IndexMigration> MIGRATIONS = List.of(
+        new IndexMigration(1, "Query list, filter and history access paths", List.of(
+            new IndexDefinition("queries", "idx_queries_created_id", List.of("created_at", "id")),
+            new IndexDefinition("queries", "idx_queries_worker_created", List.of("assigned_to_worker_id", "created_at")),
+            new IndexDefinition("queries", "idx_queries_raised_by_created", List.of("raised_by_user_id", "created_at")),
+            new IndexDefinition("queries", "idx_queries_venue_created", List.of("venue_id", "created_at")),
+            new IndexDefinition("queries", "idx_queries_status_created", List.of("status", "created_at")),
+            new IndexDefinition("queries", "idx_queries_status_priority_created", List.of("status", "priority", "created_at")),
+            new IndexDefinition("query_status_history", "idx_history_query_created", List.of("query_id", "created_at")),
+            new IndexDefinition("query_status_history", "idx_history_updated_by_created", List.of("updated_by_user_id", "created_at"))
+        )),
+        new IndexMigration(2, "Query rollup range scans", List.of(
+            new IndexDefinition("query_rollups", "idx_rollups_granularity_bucket", List.of("granularity", "bucket_start"))
+        ))
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile List<String> missingIndexes = new ArrayList<>();
+
+    @Override
+    public void run(String... args) throws Exception {
+        try {
+            applyMigrations();
+            missingIndexes = findMissingIndexes();
+            if (missingIndexes.isEmpty()) {
+                System.out.println("Schema index check passed, all " + countDefinitions() + " indexes present");
+            } else {
+                System.err.println("Schema index check: missing indexes " + missingIndexes);
+            }
+        } catch (Exception e) {
+            System.err.println("Schema index management failed: " + e.getMessage());
+        }
+    }
+
+    public List<String> getMissingIndexes() {
+        return missingIndexes;
+    }
+
+    private void applyMigrations() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_index_version (" +
+                "version INT PRIMARY KEY, description VARCHAR(200) NOT NULL, applied_at TIMESTAMP NOT NULL)");
+        Set<Integer> applied = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT version FROM schema_index_version", Integer.class));
+
+        for (IndexMigration migration : MIGRATIONS) {
+            if (applied.contains(migration.getVersion())) {
+                continue;
+            }
+            for (IndexDefinition index : migration.getIndexes()) {
+                if (!indexExists(index)) {
+                    jdbcTemplate.execute("CREATE INDEX " + index.getName() + " ON " + index.getTable() +
+                            " (" + String.join(", ", index.getColumns()) + ")");
+                    System.out.println("Created index " + index.getName() + " on " + index.getTable());
+                }
+            }
+            jdbcTemplate.update("INSERT INTO schema_index_version (version, description, applied_at) " +
+                    "VALUES (?, ?, CURRENT_TIMESTAMP)", migration.getVersion(), migration.getDescription());
+            System.out.println("Applied schema index version " + migration.getVersion() + ": " + migration.getDescription());
+        }
+    }
+
+    private List<String> findMissingIndexes() {
+        List<String> missing = new ArrayList<>();
+        for (IndexMigration migration : MIGRATIONS) {
+            for (IndexDefinition index : migration.getIndexes()) {
+                if (!indexExists(index)) {
+                    missing.add(index.getTable() + "." + index.getName());
+                }
+            }
+        }
+        return missing;
+    }
+
+    private boolean indexExists(IndexDefinition index) {
+        Set<String> names = jdbcTemplate.execute((Connection connection) -> {
+            Set<String> found = new HashSet<>();
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(),
+                    index.getTable(), false, true)) {
+                while (rs.next()) {
+                    String name = rs.getString("INDEX_NAME");
+                    if (name != null) {
+                        found.add(name.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            return found;
+        });
+        return names != null && names.contains(index.getName().toLowerCase(Locale.ROOT));
+    }
+
+    private int countDefinitions() {
+        int count = 0;
+        for (IndexMigration migration : MIGRATIONS) {
+            count += migration.getIndexes().size();
+        }
+        return count;
+    }
+
+    @Value
+    static class IndexMigration {
+        int version;
+        String description;
+        List<IndexDefinition> indexes;
+    }
+
+    @Value
+    static class IndexDefinition {
+        String table;
+        String name;
+        List<String> columns;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.loginapp.controller;
+
+import com.example.loginapp.model.QueryRollup;
+import com.example.loginapp.service.QueryRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class AnalyticsController {
+
+    @Autowired
+    private QueryRollupService queryRollupService;
+
+    // Created, resolved and open queries per hour or day; from/to are ISO dates or date-times, to is exclusive
+    @GetMapping("/queries")
+    public ResponseEntity<?> getQuerySeries(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(defaultValue = "none") String groupBy) {
+        try {
+            LocalDateTime end = to != null && !to.isEmpty() ? parseTime(to) : LocalDateTime.now();
+            LocalDateTime start = from != null && !from.isEmpty() ? parseTime(from) : end.minusDays(30);
+            if (!start.isBefore(end)) {
+                throw new IllegalArgumentException("from must be before to");
+            }
+            QueryRollup.Granularity size = QueryRollup.Granularity.valueOf(granularity.toUpperCase());
+            return ResponseEntity.ok(queryRollupService.getSeries(size, start, end, groupBy));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Rebuilds every rollup row from the queries table
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<Map<String, Object>> backfillRollups() {
+        Map<String, Object> response = new HashMap<>();
+        if (!queryRollupService.triggerBackfill()) {
+            response.put("error", "A backfill is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("message", "Rollup backfill started");
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/rollups/metrics")
+    public ResponseEntity<Map<String, Object>> getRollupMetrics() {
+        return ResponseEntity.ok(queryRollupService.getMetrics());
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+    }
+}
@@ -1,84 +1,112 @@
 package com.example.loginapp.controller;
 
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import com.example.loginapp.service.BlobStorageService;
+import com.example.loginapp.service.BlobStore;
+import com.example.loginapp.service.FileServingService;
+import com.example.loginapp.service.StreamingUploadService;
+import com.example.loginapp.service.UploadSweeperService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/files")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
 public class FileController {
 
-    private final String uploadDir = "uploads/";
+    @Value("${app.upload.dir:uploads/}")
+    private String uploadDir;
 
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private FileServingService fileServingService;
+
+    @Autowired
+    private StreamingUploadService streamingUploadService;
+
+    @Autowired
+    private UploadSweeperService uploadSweeperService;
+
+    // Streams the "file" part straight into blob storage; see StreamingUploadService
     @PostMapping("/upload")
-    public ResponseEntity<Map<String, String>> uploadFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, String>> uploadFile(HttpServletRequest request) {
         Map<String, String> response = new HashMap<>();
-        
-        if (file.isEmpty()) {
-            response.put("error", "Please select a file to upload");
-            return ResponseEntity.badRequest().body(response);
-        }
 
         try {
-            // Create upload directory if it doesn't exist
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            StreamingUploadService.UploadedFile file = streamingUploadService.receive(request, Set.of("file")).getFile("file");
+            if (file == null) {
+                response.put("error", "Please select a file to upload");
+                return ResponseEntity.badRequest().body(response);
             }
+            BlobStorageService.StoredBlob blob = file.getBlob();
+
+            response.put("filename", blob.getName());
+            response.put("url", blob.getPath());
+            response.put("originalName", file.getOriginalFilename());
+            response.put("deduplicated", String.valueOf(blob.isDeduplicated()));
 
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-            
-            // Save file
-            Path filePath = uploadPath.resolve(uniqueFilename);
-            Files.copy(file.getInputStream(), filePath);
-            
-            response.put("filename", uniqueFilename);
-            response.put("url", "/api/files/" + uniqueFilename);
-            response.put("originalName", originalFilename);
-            
             return ResponseEntity.ok(response);
-        } catch (IOException e) {
+        } catch (StreamingUploadService.TooLarge e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        } catch (IOException | IllegalArgumentException e) {
             response.put("error", "Failed to upload file: " + e.getMessage());
             return ResponseEntity.badRequest().body(response);
         }
     }
 
+    @GetMapping("/upload-metrics")
+    public ResponseEntity<Map<String, Object>> getUploadMetrics() {
+        return ResponseEntity.ok(streamingUploadService.getMetrics());
+    }
+
+    // Sweeps unreferenced uploads now instead of waiting for the next scheduled run
+    @PostMapping("/gc")
+    public ResponseEntity<Map<String, Object>> collectGarbage() {
+        Map<String, Object> response = new HashMap<>();
+        if (!uploadSweeperService.trigger()) {
+            response.put("error", "A sweep is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("message", "Upload sweep started");
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/gc-metrics")
+    public ResponseEntity<Map<String, Object>> getGarbageCollectionMetrics() {
+        return ResponseEntity.ok(uploadSweeperService.getMetrics());
+    }
+
     @GetMapping("/{filename}")
-    public ResponseEntity<Resource> getFile(@PathVariable String filename) {
-        try {
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "application/octet-stream";
-                }
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (IOException e) {
-            return ResponseEntity.badRequest().build();
+    public void getFile(@PathVariable String filename, HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+        // Content-addressed uploads come from the blob store and never change; older ones sit directly in the upload dir
+        Optional<BlobStore.Blob> blob = blobStorageService.open(filename);
+        if (blob.isPresent()) {
+            fileServingService.serve(blob.get(), filename, true, request, response);
+            return;
+        }
+
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path filePath = root.resolve(filename).normalize();
+        if (!filePath.startsWith(root) || !Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        fileServingService.serve(filePath, filePath.getFileName().toString(), false, request, response);
     }
 }
@@ -1,5 +1,6 @@
 package com.example.loginapp.controller;
 
+import com.example.loginapp.config.SchemaIndexManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +18,9 @@ public class HealthController {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private SchemaIndexManager schemaIndexManager;
+
     @Value("${spring.datasource.url:unknown}")
     private String databaseUrl;
 
@@ -35,6 +39,7 @@ public class HealthController {
                 Map<String, Object> dbInfo = new HashMap<>();
                 dbInfo.put("url", maskDatabaseUrl(databaseUrl));
                 dbInfo.put("connected", true);
+                dbInfo.put("missingIndexes", schemaIndexManager.getMissingIndexes());
                 health.put("databaseInfo", dbInfo);
                 
                 return ResponseEntity.ok(health);
@@ -54,6 +59,8 @@ public class HealthController {
             return "mysql";
         } else if (databaseUrl.contains("sqlite")) {
             return "sqlite";
+        } else if (databaseUrl.contains("postgresql")) {
+            return "postgresql";
         } else if (databaseUrl.contains("h2")) {
             return "h2";
         } else {
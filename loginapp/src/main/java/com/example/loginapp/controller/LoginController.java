@@ -1,12 +1,23 @@
 package com.example.loginapp.controller;
 
+import com.example.loginapp.model.AuthenticatedUser;
 import com.example.loginapp.model.User;
+import com.example.loginapp.service.GoogleTokenVerifier;
+import com.example.loginapp.service.PasswordHashingService;
+import com.example.loginapp.service.TokenService;
 import com.example.loginapp.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
 @RestController
@@ -16,25 +27,55 @@ public class LoginController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private GoogleTokenVerifier googleTokenVerifier;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    // Boot's shared task executor; the verification pool is kept for BCrypt alone
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
+    // Asynchronous: the request thread is released while the password is checked on the verification pool
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> loginRequest) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(@RequestBody Map<String, String> loginRequest) {
         String email = loginRequest.get("email");
         String password = loginRequest.get("password");
 
-        boolean isValid = userService.validateLogin(email, password);
-        Map<String, Object> response = new HashMap<>();
-        
-        if (isValid) {
-            User user = userService.getUserByEmail(email);
-            response.put("success", true);
-            response.put("message", "Login successful");
-            response.put("user", user);
-            return ResponseEntity.ok(response);
-        } else {
-            response.put("success", false);
-            response.put("message", "Invalid email or password");
-            return ResponseEntity.badRequest().body(response);
-        }
+        // The user lookup and token insert run on the task executor, not on a verification thread
+        return userService.validateLogin(email, password).handleAsync((isValid, failure) -> {
+            Map<String, Object> response = new HashMap<>();
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                if (cause instanceof PasswordHashingService.Saturated) {
+                    response.put("success", false);
+                    response.put("message", "Too many sign-ins right now, please retry in a moment");
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .body(response);
+                }
+                throw new CompletionException(cause);
+            }
+
+            if (isValid) {
+                User user = userService.getUserByEmail(email);
+                response.put("success", true);
+                response.put("message", "Login successful");
+                response.put("user", user);
+                response.putAll(tokenService.issueTokens(user));
+                return ResponseEntity.ok(response);
+            } else {
+                response.put("success", false);
+                response.put("message", "Invalid email or password");
+                return ResponseEntity.badRequest().body(response);
+            }
+        }, taskExecutor);
     }
 
     @PostMapping("/auth/google")
@@ -72,6 +113,7 @@ public class LoginController {
                 response.put("success", true);
                 response.put("message", "Google login successful");
                 response.put("user", user);
+                response.putAll(tokenService.issueTokens(user));
                 return ResponseEntity.ok(response);
             } else {
                 response.put("success", false);
@@ -87,6 +129,53 @@ public class LoginController {
         }
     }
 
+    @PostMapping("/auth/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(@RequestBody Map<String, String> refreshRequest) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.putAll(tokenService.refresh(refreshRequest.get("refreshToken")));
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+    }
+
+    @PostMapping("/auth/logout")
+    public ResponseEntity<Map<String, Object>> logout(@RequestBody Map<String, String> logoutRequest) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            tokenService.revoke(logoutRequest.get("refreshToken"));
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Identity straight from the access token, without loading the user
+    @GetMapping("/auth/me")
+    public ResponseEntity<AuthenticatedUser> me(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(user);
+    }
+
+    @GetMapping("/auth/password-metrics")
+    public ResponseEntity<Map<String, Object>> passwordVerificationMetrics() {
+        return ResponseEntity.ok(passwordHashingService.getMetrics());
+    }
+
+    @GetMapping("/auth/google/metrics")
+    public ResponseEntity<Map<String, Object>> googleVerifierMetrics() {
+        return ResponseEntity.ok(googleTokenVerifier.getMetrics());
+    }
+
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> register(@RequestBody User user) {
         Map<String, Object> response = new HashMap<>();
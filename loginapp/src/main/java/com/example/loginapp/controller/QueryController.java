@@ -1,18 +1,35 @@
 package com.example.loginapp.controller;
 
+import com.example.loginapp.model.CursorPage;
 import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QueryListItem;
 import com.example.loginapp.model.QueryStatusHistory;
 import com.example.loginapp.model.User;
 import com.example.loginapp.model.Venue;
+import com.example.loginapp.service.EntityTagService;
+import com.example.loginapp.service.QueryExportService;
+import com.example.loginapp.service.QueryImportService;
 import com.example.loginapp.service.QueryService;
+import com.example.loginapp.service.StreamingUploadService;
+import com.example.loginapp.service.ThumbnailService;
 import com.example.loginapp.service.UserService;
 import com.example.loginapp.service.VenueService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -30,17 +47,174 @@ public class QueryController {
     @Autowired
     private VenueService venueService;
 
+    @Autowired
+    private QueryExportService queryExportService;
+
+    @Autowired
+    private QueryImportService queryImportService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private StreamingUploadService streamingUploadService;
+
     @GetMapping
     public ResponseEntity<List<Query>> getAllQueries() {
         List<Query> queries = queryService.getAllQueries();
         return ResponseEntity.ok(queries);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Query>> getQueryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(queryService.getQueryPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/list")
+    public ResponseEntity<CursorPage<QueryListItem>> getQueryList(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long workerId,
+            @RequestParam(required = false) Long venueId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Query.Status queryStatus = null;
+            if (status != null && !status.isEmpty()) {
+                queryStatus = Query.Status.valueOf(status.toUpperCase());
+            }
+            return ResponseEntity.ok(queryService.getQueryListPage(queryStatus, userId, workerId, venueId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportQueries(@RequestParam(defaultValue = "ndjson") String format) {
+        if (!QueryExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> queryExportService.exportQueries(out, format);
+        return exportResponse("queries", format, body);
+    }
+
+    @GetMapping("/export/history")
+    public ResponseEntity<StreamingResponseBody> exportQueryHistory(@RequestParam(defaultValue = "ndjson") String format) {
+        if (!QueryExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> queryExportService.exportHistory(out, format);
+        return exportResponse("query-history", format, body);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> importQueries(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "batchSize", required = false) Integer batchSize) {
+        Map<String, Object> response = new HashMap<>();
+        if (file.isEmpty()) {
+            response.put("error", "Please select a file to import");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        String importFormat = format;
+        if (importFormat == null || importFormat.isEmpty()) {
+            String filename = file.getOriginalFilename();
+            importFormat = filename != null && filename.toLowerCase().endsWith(".csv")
+                    ? QueryExportService.FORMAT_CSV : QueryExportService.FORMAT_NDJSON;
+        }
+        if (!QueryExportService.isSupportedFormat(importFormat)) {
+            response.put("error", "Unsupported format: " + importFormat);
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            return ResponseEntity.ok(queryImportService.importQueries(file.getInputStream(), importFormat, batchSize));
+        } catch (Exception e) {
+            response.put("error", "Import failed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Same import with the file as the raw request body, read as it arrives; the multipart size limits do not apply
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<Map<String, Object>> importQueryStream(
+            HttpServletRequest request,
+            @RequestParam(value = "batchSize", required = false) Integer batchSize) {
+        String contentType = request.getContentType();
+        String importFormat = contentType != null && contentType.toLowerCase().startsWith("text/csv")
+                ? QueryExportService.FORMAT_CSV : QueryExportService.FORMAT_NDJSON;
+        try {
+            return ResponseEntity.ok(queryImportService.importQueries(request.getInputStream(), importFormat, batchSize));
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Import failed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(String name, String format, StreamingResponseBody body) {
+        boolean csv = QueryExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        String filename = name + (csv ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Query> getQueryById(@PathVariable Long id) {
+    public ResponseEntity<Query> getQueryById(@PathVariable Long id, WebRequest request) {
         Optional<Query> query = queryService.getQueryById(id);
-        return query.map(ResponseEntity::ok)
-                   .orElse(ResponseEntity.notFound().build());
+        if (query.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // A still-matching If-None-Match was already answered by ConditionalGetInterceptor; this tags the row served
+        if (request.checkNotModified(entityTagService.queryTag(query.get()))) {
+            return null;
+        }
+        return ResponseEntity.ok(query.get());
+    }
+
+    /**
+     * Redirects to the smallest thumbnail at least {@code width} pixels wide.
+     * While thumbnails are still being made this points at the original and
+     * must not be cached, so clients pick up the small one on a later load.
+     */
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<Void> getThumbnail(
+            @PathVariable Long id,
+            @RequestParam(value = "kind", defaultValue = "image") String kind,
+            @RequestParam(value = "width", defaultValue = "480") int width) {
+        ThumbnailService.Kind imageKind;
+        try {
+            imageKind = ThumbnailService.Kind.valueOf(kind.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<ThumbnailService.Thumbnail> thumbnail =
+                queryService.getThumbnail(id, imageKind, Math.max(1, Math.min(width, 4096)));
+        if (thumbnail.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(thumbnail.get().getPath()))
+                .cacheControl(thumbnail.get().isReady()
+                        ? CacheControl.maxAge(Duration.ofMinutes(5))
+                        : CacheControl.noStore())
+                .header("X-Thumbnail-Status", thumbnail.get().isReady() ? "ready" : "pending")
+                .build();
+    }
+
+    @GetMapping("/thumbnail-metrics")
+    public ResponseEntity<Map<String, Object>> getThumbnailMetrics() {
+        return ResponseEntity.ok(queryService.getThumbnailMetrics());
     }
 
     @PostMapping
@@ -53,57 +227,30 @@ public class QueryController {
         }
     }
 
+    // Form fields: title, description, category, priority, venueId (optional), image (optional file)
     @PostMapping("/anonymous")
-    public ResponseEntity<Query> createAnonymousQuery(
-            @RequestParam("title") String title,
-            @RequestParam("description") String description,
-            @RequestParam("category") String category,
-            @RequestParam("priority") String priority,
-            @RequestParam(value = "venueId", required = false) Long venueId,
-            @RequestParam(value = "image", required = false) MultipartFile imageFile) {
-        
-        try {
-            // Build Query object for anonymous submission
-            Query.QueryBuilder queryBuilder = Query.builder()
-                    .title(title)
-                    .description(description)
-                    .category(Query.Category.valueOf(category.toUpperCase()))
-                    .priority(Query.Priority.valueOf(priority.toUpperCase()));
-
-            // Add venue if provided
-            if (venueId != null) {
-                Optional<Venue> venue = venueService.getVenueById(venueId);
-                if (venue.isPresent()) {
-                    queryBuilder.venue(venue.get());
-                }
-            }
-
-            Query query = queryBuilder.build();
-            Query savedQuery = queryService.createQuery(query, imageFile);
-            return ResponseEntity.ok(savedQuery);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<Query> createAnonymousQuery(HttpServletRequest request) {
+        return createFromUpload(request, false);
     }
 
+    // As /anonymous, plus an optional raisedByUserId
     @PostMapping("/with-image")
-    public ResponseEntity<Query> createQueryWithImage(
-            @RequestParam("title") String title,
-            @RequestParam("description") String description,
-            @RequestParam(value = "venueId", required = false) Long venueId,
-            @RequestParam("category") String category,
-            @RequestParam("priority") String priority,
-            @RequestParam(value = "raisedByUserId", required = false) Long raisedByUserId,
-            @RequestParam(value = "image", required = false) MultipartFile imageFile) {
-        
+    public ResponseEntity<Query> createQueryWithImage(HttpServletRequest request) {
+        return createFromUpload(request, true);
+    }
+
+    // The body is read here, as it arrives, so no @RequestParam may be bound on these endpoints
+    private ResponseEntity<Query> createFromUpload(HttpServletRequest request, boolean withRaisedBy) {
         try {
-            // Build Query object with optional user and venue
+            StreamingUploadService.Form form = streamingUploadService.receive(request, Set.of("image"));
+
             Query.QueryBuilder queryBuilder = Query.builder()
-                    .title(title)
-                    .description(description)
-                    .category(Query.Category.valueOf(category.toUpperCase()))
-                    .priority(Query.Priority.valueOf(priority.toUpperCase()));
+                    .title(form.require("title"))
+                    .description(form.require("description"))
+                    .category(Query.Category.valueOf(form.require("category").toUpperCase()))
+                    .priority(Query.Priority.valueOf(form.require("priority").toUpperCase()));
 
+            Long raisedByUserId = withRaisedBy ? form.getLong("raisedByUserId") : null;
             if (raisedByUserId != null) {
                 User raisedByUser = userService.getUserById(raisedByUserId);
                 if (raisedByUser != null) {
@@ -111,6 +258,7 @@ public class QueryController {
                 }
             }
 
+            Long venueId = form.getLong("venueId");
             if (venueId != null) {
                 Optional<Venue> venue = venueService.getVenueById(venueId);
                 if (venue.isPresent()) {
@@ -118,9 +266,12 @@ public class QueryController {
                 }
             }
 
-            Query query = queryBuilder.build();
-            Query savedQuery = queryService.createQuery(query, imageFile);
+            StreamingUploadService.UploadedFile image = form.getFile("image");
+            Query savedQuery = queryService.createQueryWithImagePath(queryBuilder.build(),
+                    image != null ? image.getPath() : null);
             return ResponseEntity.ok(savedQuery);
+        } catch (StreamingUploadService.TooLarge e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -136,12 +287,36 @@ public class QueryController {
         return ResponseEntity.badRequest().build();
     }
 
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<CursorPage<Query>> getQueryPageByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(queryService.getQueryPageByUser(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/worker/{workerId}")
     public ResponseEntity<List<Query>> getQueriesByWorker(@PathVariable Long workerId) {
         List<Query> queries = queryService.getQueriesByWorker(workerId);
         return ResponseEntity.ok(queries);
     }
 
+    @GetMapping("/worker/{workerId}/page")
+    public ResponseEntity<CursorPage<Query>> getQueryPageByWorker(
+            @PathVariable Long workerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(queryService.getQueryPageByWorker(workerId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/status/{status}")
     public ResponseEntity<List<Query>> getQueriesByStatus(@PathVariable String status) {
         try {
@@ -153,12 +328,37 @@ public class QueryController {
         }
     }
 
+    @GetMapping("/status/{status}/page")
+    public ResponseEntity<CursorPage<Query>> getQueryPageByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Query.Status queryStatus = Query.Status.valueOf(status.toUpperCase());
+            return ResponseEntity.ok(queryService.getQueryPageByStatus(queryStatus, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/venue/{venueId}")
     public ResponseEntity<List<Query>> getQueriesByVenue(@PathVariable Long venueId) {
         List<Query> queries = queryService.getQueriesByVenue(venueId);
         return ResponseEntity.ok(queries);
     }
 
+    @GetMapping("/venue/{venueId}/page")
+    public ResponseEntity<CursorPage<Query>> getQueryPageByVenue(
+            @PathVariable Long venueId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(queryService.getQueryPageByVenue(venueId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<Query>> searchQueries(
             @RequestParam(required = false) String status,
@@ -180,8 +380,14 @@ public class QueryController {
             return ResponseEntity.badRequest().build();
         }
 
-        List<Query> queries = queryService.searchQueries(queryStatus, queryCategory, venueId, keyword);
-        return ResponseEntity.ok(queries);
+        Optional<List<Query>> queries = queryService.searchQueries(queryStatus, queryCategory, venueId, keyword);
+        if (queries.isEmpty()) {
+            // The search index is rebuilt once after startup; a LIKE scan of the whole table is no substitute
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        return ResponseEntity.ok(queries.get());
     }
 
     @PutMapping("/{id}/assign/{workerId}")
@@ -194,6 +400,70 @@ public class QueryController {
         }
     }
 
+    // Gives a pending query to the least loaded worker of the matching trade, as new queries are on creation
+    @PutMapping("/{id}/auto-assign")
+    public ResponseEntity<?> autoAssignQuery(@PathVariable Long id) {
+        try {
+            Query updatedQuery = queryService.autoAssignQuery(id);
+            if (updatedQuery == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Query is not pending or no worker is available");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+            }
+            return ResponseEntity.ok(updatedQuery);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Unassigned pending queries in the order they should be picked up, for one trade or all of them
+    @GetMapping("/dispatch")
+    public ResponseEntity<List<Query>> getDispatchQueue(
+            @RequestParam(required = false) String workerType,
+            @RequestParam(defaultValue = "20") int count) {
+        try {
+            User.WorkerType type = null;
+            if (workerType != null && !workerType.isEmpty()) {
+                type = User.WorkerType.valueOf(workerType.toUpperCase());
+            }
+            return ResponseEntity.ok(queryService.getDispatchQueue(type, count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // A worker takes the next query of their trade from the dispatch queue
+    @PostMapping("/dispatch/claim")
+    public ResponseEntity<?> claimNextQuery(@RequestBody Map<String, Long> request) {
+        try {
+            Query claimed = queryService.claimNextQuery(request.get("workerId"));
+            if (claimed == null) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(claimed);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/dispatch-metrics")
+    public ResponseEntity<Map<String, Object>> getDispatchMetrics() {
+        return ResponseEntity.ok(queryService.getDispatchMetrics());
+    }
+
+    // Timer count, escalation counters and the most recent SLA breaches, newest first
+    @GetMapping("/sla-metrics")
+    public ResponseEntity<Map<String, Object>> getSlaMetrics() {
+        return ResponseEntity.ok(queryService.getSlaMetrics());
+    }
+
+    @GetMapping("/assignment-metrics")
+    public ResponseEntity<Map<String, Object>> getAssignmentMetrics() {
+        return ResponseEntity.ok(queryService.getAssignmentMetrics());
+    }
+
     @PutMapping("/{id}/status")
     public ResponseEntity<Query> updateQueryStatus(
             @PathVariable Long id,
@@ -212,15 +482,18 @@ public class QueryController {
         }
     }
 
+    // Form fields: userId, completionNotes (optional), completionImage (optional file); read as a stream
     @PutMapping("/{id}/complete")
-    public ResponseEntity<Query> completeQuery(
-            @PathVariable Long id,
-            @RequestParam(value = "userId") Long userId,
-            @RequestParam(value = "completionNotes", required = false) String completionNotes,
-            @RequestParam(value = "completionImage", required = false) MultipartFile completionImage) {
+    public ResponseEntity<Query> completeQuery(@PathVariable Long id, HttpServletRequest request) {
         try {
-            Query completedQuery = queryService.completeQueryWithHistory(id, userId, completionNotes, completionImage);
+            StreamingUploadService.Form form = streamingUploadService.receive(request, Set.of("completionImage"));
+            Long userId = Long.valueOf(form.require("userId"));
+            StreamingUploadService.UploadedFile completionImage = form.getFile("completionImage");
+            Query completedQuery = queryService.completeQueryWithImagePath(id, userId, form.get("completionNotes"),
+                    completionImage != null ? completionImage.getPath() : null);
             return ResponseEntity.ok(completedQuery);
+        } catch (StreamingUploadService.TooLarge e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().build();
@@ -239,13 +512,19 @@ public class QueryController {
 
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getQueryStats() {
+        Map<String, Object> snapshot = queryService.getQueryStatsSnapshot();
+        @SuppressWarnings("unchecked")
+        Map<Query.Status, Long> byStatus = (Map<Query.Status, Long>) snapshot.get("byStatus");
+
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalQueries", queryService.getAllQueries().size());
-        stats.put("pendingQueries", queryService.getQueryCountByStatus(Query.Status.PENDING));
-        stats.put("assignedQueries", queryService.getQueryCountByStatus(Query.Status.ASSIGNED));
-        stats.put("inProgressQueries", queryService.getQueryCountByStatus(Query.Status.IN_PROGRESS));
-        stats.put("resolvedQueries", queryService.getQueryCountByStatus(Query.Status.RESOLVED));
-        stats.put("closedQueries", queryService.getQueryCountByStatus(Query.Status.CLOSED));
+        stats.put("totalQueries", snapshot.get("total"));
+        stats.put("pendingQueries", byStatus.get(Query.Status.PENDING));
+        stats.put("assignedQueries", byStatus.get(Query.Status.ASSIGNED));
+        stats.put("inProgressQueries", byStatus.get(Query.Status.IN_PROGRESS));
+        stats.put("resolvedQueries", byStatus.get(Query.Status.RESOLVED));
+        stats.put("closedQueries", byStatus.get(Query.Status.CLOSED));
+        stats.put("byPriority", snapshot.get("byPriority"));
+        stats.put("byCategory", snapshot.get("byCategory"));
         return ResponseEntity.ok(stats);
     }
 
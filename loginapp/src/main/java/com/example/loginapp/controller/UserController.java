@@ -112,6 +112,21 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/directory")
+    public ResponseEntity<?> searchDirectory(@RequestParam(defaultValue = "") String q,
+                                             @RequestParam(required = false) String role,
+                                             @RequestParam(required = false) String workerType,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "20") int size) {
+        try {
+            User.Role userRole = role != null ? User.Role.valueOf(role.toUpperCase()) : null;
+            User.WorkerType type = workerType != null ? User.WorkerType.valueOf(workerType.toUpperCase()) : null;
+            return ResponseEntity.ok(userService.searchDirectory(q, userRole, type, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid role or worker type");
+        }
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<Object> getUserStats() {
         return ResponseEntity.ok(userService.getUserStats());
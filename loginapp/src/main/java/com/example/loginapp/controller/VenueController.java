@@ -3,6 +3,7 @@ package com.example.loginapp.controller;
 import com.example.loginapp.model.Venue;
 import com.example.loginapp.service.VenueService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -16,6 +17,9 @@ public class VenueController {
     @Autowired
     private VenueService venueService;
 
+    @Value("${app.venues.autocomplete.max-results:50}")
+    private int maxAutocompleteResults;
+
     @GetMapping
     public ResponseEntity<List<Venue>> getAllVenues() {
         List<Venue> venues = venueService.getAllVenues();
@@ -72,6 +76,16 @@ public class VenueController {
         return ResponseEntity.ok(venues);
     }
 
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<Venue>> autocompleteVenues(@RequestParam(defaultValue = "") String prefix,
+                                                          @RequestParam(defaultValue = "10") int limit) {
+        int cappedLimit = Math.max(1, Math.min(limit, maxAutocompleteResults));
+        List<Venue> venues = venueService.autocompleteVenues(prefix, cappedLimit);
+        return ResponseEntity.ok()
+                .header("X-Catalog-Version", String.valueOf(venueService.getCatalogVersion()))
+                .body(venues);
+    }
+
     @GetMapping("/building/{building}")
     public ResponseEntity<List<Venue>> getVenuesByBuilding(@PathVariable String building) {
         List<Venue> venues = venueService.getVenuesByBuilding(building);
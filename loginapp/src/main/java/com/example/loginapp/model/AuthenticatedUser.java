@@ -0,0 +1,15 @@
+package com.example.loginapp.model;
+
+import lombok.*;
+
+// Caller identity taken from a verified access token; no database row behind it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthenticatedUser {
+    private Long id;
+    private String email;
+    private User.Role role;
+    private User.WorkerType workerType;
+}
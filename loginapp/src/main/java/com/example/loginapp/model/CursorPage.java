@@ -0,0 +1,20 @@
+package com.example.loginapp.model;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPage<T> {
+
+    private List<T> items;
+
+    // Opaque cursor to pass back for the next page, null when there are no more rows
+    private String nextCursor;
+
+    private boolean hasMore;
+
+    private int size;
+}
@@ -0,0 +1,57 @@
+package com.example.loginapp.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Downscaled copies of an image keyed by width, stored on the query as
+ * "160=/api/files/...;480=/api/files/...". Widths the original is already
+ * narrower than are left out; the original is used for those.
+ */
+public final class ImageVariants {
+
+    private ImageVariants() {
+    }
+
+    public static TreeMap<Integer, String> parse(String encoded) {
+        TreeMap<Integer, String> variants = new TreeMap<>();
+        if (encoded == null || encoded.isBlank()) {
+            return variants;
+        }
+        for (String entry : encoded.split(";")) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                variants.put(Integer.valueOf(entry.substring(0, separator).trim()), entry.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                // Skip a damaged entry rather than losing the rest
+            }
+        }
+        return variants;
+    }
+
+    public static String format(Map<Integer, String> variants) {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<Integer, String> variant : new TreeMap<>(variants).entrySet()) {
+            if (encoded.length() > 0) {
+                encoded.append(';');
+            }
+            encoded.append(variant.getKey()).append('=').append(variant.getValue());
+        }
+        return encoded.toString();
+    }
+
+    public static Collection<String> paths(String encoded) {
+        return encoded == null ? Collections.emptyList() : parse(encoded).values();
+    }
+
+    // Narrowest variant at least as wide as requested; null means the original is the best fit
+    public static String pick(String encoded, int width) {
+        Map.Entry<Integer, String> match = parse(encoded).ceilingEntry(width);
+        return match != null ? match.getValue() : null;
+    }
+}
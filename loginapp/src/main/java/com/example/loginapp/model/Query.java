@@ -2,19 +2,40 @@ package com.example.loginapp.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "queries")
+@Table(name = "queries", indexes = {
+        @Index(name = "idx_queries_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_queries_worker_created", columnList = "assigned_to_worker_id, created_at"),
+        @Index(name = "idx_queries_raised_by_created", columnList = "raised_by_user_id, created_at"),
+        @Index(name = "idx_queries_venue_created", columnList = "venue_id, created_at"),
+        @Index(name = "idx_queries_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_queries_status_priority_created", columnList = "status, priority, created_at")
+})
+@NamedEntityGraph(name = "Query.detail", attributeNodes = {
+        @NamedAttributeNode("venue"),
+        @NamedAttributeNode("raisedByUser"),
+        @NamedAttributeNode("assignedToWorker"),
+        @NamedAttributeNode("completedByUser")
+})
+// Updates write only changed columns; the thumbnail updates bump the version so a stale save cannot wipe them
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Query {
 
+    // Pooled table ids let Hibernate batch inserts, which IDENTITY columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "query_ids")
+    @TableGenerator(name = "query_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "queries", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 200)
@@ -23,7 +44,7 @@ public class Query {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String description;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "venue_id", nullable = true)
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
     private Venue venue;
@@ -45,12 +66,16 @@ public class Query {
     @Column(name = "image_path", length = 500)
     private String imagePath;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Downscaled JPEGs of imagePath, see ImageVariants; null until they have been generated
+    @Column(name = "image_thumbnails", length = 1000)
+    private String imageThumbnails;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "raised_by_user_id", nullable = true)
     @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private User raisedByUser;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assigned_to_worker_id")
     @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private User assignedToWorker;
@@ -64,21 +89,44 @@ public class Query {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // When the query took its current status and priority; SLA deadlines count from here, not from updatedAt
+    @Column(name = "state_entered_at")
+    @JsonIgnore
+    private LocalDateTime stateEnteredAt;
+
+    // Optimistic lock: a save built from a stale read fails instead of replacing a row it never saw
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
+
     @Column(name = "completion_notes", columnDefinition = "TEXT")
     private String completionNotes;
 
     @Column(name = "completion_image_path")
     private String completionImagePath;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @Column(name = "completion_image_thumbnails", length = 1000)
+    private String completionImageThumbnails;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "completed_by_user_id")
     @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private User completedByUser;
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // Imported queries keep their original timestamps
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
+        if (stateEnteredAt == null) {
+            stateEnteredAt = updatedAt;
+        }
     }
 
     @PreUpdate
@@ -0,0 +1,53 @@
+package com.example.loginapp.model;
+
+import lombok.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position over (createdAt, id) for paging queries newest first.
+ * Clients only ever see the encoded form, so the layout can change freely.
+ */
+@Data
+@AllArgsConstructor
+public class QueryCursor {
+
+    // Sorts after every real row, used as the position of the first page
+    public static final QueryCursor START = new QueryCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private LocalDateTime createdAt;
+
+    private Long id;
+
+    public static QueryCursor of(Query query) {
+        return new QueryCursor(query.getCreatedAt(), query.getId());
+    }
+
+    public static QueryCursor of(QueryListItem item) {
+        return new QueryCursor(item.getCreatedAt(), item.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static QueryCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new QueryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
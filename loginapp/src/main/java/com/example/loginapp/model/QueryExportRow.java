@@ -0,0 +1,56 @@
+package com.example.loginapp.model;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * One flattened query row for exports. Built by a JPQL constructor
+ * expression, so the constructor argument order matters.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryExportRow {
+
+    private Long id;
+
+    private String title;
+
+    private String description;
+
+    private Query.Category category;
+
+    private Query.Priority priority;
+
+    private Query.Status status;
+
+    private Long venueId;
+
+    private String venueName;
+
+    private Long raisedByUserId;
+
+    private String raisedByUserName;
+
+    private String raisedByUserEmail;
+
+    private Long assignedToWorkerId;
+
+    private String assignedToWorkerName;
+
+    private Long completedByUserId;
+
+    private String completedByUserName;
+
+    private String imagePath;
+
+    private String completionNotes;
+
+    private String completionImagePath;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime resolvedAt;
+}
@@ -0,0 +1,32 @@
+package com.example.loginapp.model;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * One flattened status history row for exports. Built by a JPQL constructor
+ * expression, so the constructor argument order matters.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryHistoryExportRow {
+
+    private Long id;
+
+    private Long queryId;
+
+    private Query.Status oldStatus;
+
+    private Query.Status newStatus;
+
+    private Long updatedByUserId;
+
+    private String updatedByUserName;
+
+    private String comment;
+
+    private String completionImagePath;
+
+    private LocalDateTime createdAt;
+}
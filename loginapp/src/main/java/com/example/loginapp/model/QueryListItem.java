@@ -0,0 +1,42 @@
+package com.example.loginapp.model;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Flat read model for query list screens. Populated straight from a JPQL
+ * constructor expression, so the constructor argument order matters.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryListItem {
+
+    private Long id;
+
+    private String title;
+
+    private Query.Status status;
+
+    private Query.Priority priority;
+
+    private Query.Category category;
+
+    private Long venueId;
+
+    private String venueName;
+
+    private Long raisedByUserId;
+
+    private String raisedByUserName;
+
+    private Long assignedToWorkerId;
+
+    private String assignedToWorkerName;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime resolvedAt;
+}
@@ -0,0 +1,72 @@
+package com.example.loginapp.model;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Query counts for one hour or day and one (category, priority, venue).
+ * Rows only ever hold deltas for their bucket: queries created and resolved
+ * in it, and the net change in open queries, so the open count at the end of
+ * a bucket is the sum of openDelta over every bucket up to it.
+ */
+@Entity
+@Table(name = "query_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_rollups_bucket_key",
+                columnNames = {"granularity", "bucket_start", "category", "priority", "venue_id"}),
+        indexes = @Index(name = "idx_rollups_granularity_bucket", columnList = "granularity, bucket_start"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryRollup {
+
+    // Queries without a venue are rolled up under this id
+    public static final long NO_VENUE = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "query_rollup_ids")
+    @TableGenerator(name = "query_rollup_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "query_rollups", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Query.Category category;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Query.Priority priority;
+
+    @Column(name = "venue_id", nullable = false)
+    private Long venueId;
+
+    @Column(name = "created_count", nullable = false)
+    private long created;
+
+    @Column(name = "resolved_count", nullable = false)
+    private long resolved;
+
+    @Column(name = "open_delta", nullable = false)
+    private long openDelta;
+
+    public enum Granularity {
+        HOUR, DAY;
+
+        public LocalDateTime truncate(LocalDateTime time) {
+            return this == HOUR ? time.truncatedTo(ChronoUnit.HOURS) : time.truncatedTo(ChronoUnit.DAYS);
+        }
+
+        public LocalDateTime next(LocalDateTime bucketStart) {
+            return this == HOUR ? bucketStart.plusHours(1) : bucketStart.plusDays(1);
+        }
+    }
+}
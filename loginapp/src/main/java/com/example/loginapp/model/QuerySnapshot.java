@@ -0,0 +1,46 @@
+package com.example.loginapp.model;
+
+import lombok.Value;
+import lombok.With;
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a query that in-memory state (counters, image references and
+ * the like) is keyed on, taken before a write so each of them can move the
+ * query from where it was to where it is now.
+ */
+@Value
+public class QuerySnapshot {
+    Long id;
+    Query.Status status;
+    @With
+    Query.Priority priority;
+    Query.Category category;
+    Long venueId;
+    Long assignedToWorkerId;
+    String imagePath;
+    String completionImagePath;
+    String imageThumbnails;
+    String completionImageThumbnails;
+    LocalDateTime createdAt;
+    LocalDateTime stateEnteredAt;
+
+    public static QuerySnapshot of(Query query) {
+        if (query == null) {
+            return null;
+        }
+        return new QuerySnapshot(
+                query.getId(),
+                query.getStatus(),
+                query.getPriority(),
+                query.getCategory(),
+                query.getVenue() != null ? query.getVenue().getId() : null,
+                query.getAssignedToWorker() != null ? query.getAssignedToWorker().getId() : null,
+                query.getImagePath(),
+                query.getCompletionImagePath(),
+                query.getImageThumbnails(),
+                query.getCompletionImageThumbnails(),
+                query.getCreatedAt(),
+                query.getStateEnteredAt());
+    }
+}
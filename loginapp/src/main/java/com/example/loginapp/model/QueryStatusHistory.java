@@ -6,7 +6,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "query_status_history")
+@Table(name = "query_status_history", indexes = {
+        @Index(name = "idx_history_query_created", columnList = "query_id, created_at"),
+        @Index(name = "idx_history_updated_by_created", columnList = "updated_by_user_id, created_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -14,7 +17,9 @@ import java.time.LocalDateTime;
 public class QueryStatusHistory {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "query_status_history_ids")
+    @TableGenerator(name = "query_status_history_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "query_status_history", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
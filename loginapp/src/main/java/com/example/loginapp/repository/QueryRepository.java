@@ -1,16 +1,43 @@
 package com.example.loginapp.repository;
 
 import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QueryExportRow;
+import com.example.loginapp.model.QueryListItem;
 import com.example.loginapp.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface QueryRepository extends JpaRepository<Query, Long> {
+
+    // Rows pulled per round trip when streaming exports
+    String EXPORT_FETCH_SIZE = "500";
+
+    // Associations are lazy; finders whose results are serialized whole fetch them in the same select
+    @Override
+    @EntityGraph("Query.detail")
+    Optional<Query> findById(Long id);
+
+    @Override
+    @EntityGraph("Query.detail")
+    List<Query> findAllById(Iterable<Long> ids);
+
+    // One element per matching row (null when updatedAt was never set); empty when the query does not exist
+    @org.springframework.data.jpa.repository.Query("SELECT q.updatedAt FROM Query q WHERE q.id = :id")
+    List<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
     
     List<Query> findByRaisedByUser(User user);
     
@@ -28,15 +55,185 @@ public interface QueryRepository extends JpaRepository<Query, Long> {
     
     List<Query> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
     
+    // Keyset pages ordered by (createdAt, id) descending; only the limit of the Pageable is used
+    @org.springframework.data.jpa.repository.Query("SELECT q FROM Query q WHERE " +
+            "(q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id)) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    @EntityGraph("Query.detail")
+    List<Query> findPageBefore(@Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id,
+                               Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT q FROM Query q WHERE q.raisedByUser.id = :userId AND " +
+            "(q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id)) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    @EntityGraph("Query.detail")
+    List<Query> findPageByRaisedByUserBefore(@Param("userId") Long userId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT q FROM Query q WHERE q.assignedToWorker.id = :workerId AND " +
+            "(q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id)) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    @EntityGraph("Query.detail")
+    List<Query> findPageByAssignedToWorkerBefore(@Param("workerId") Long workerId,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT q FROM Query q WHERE q.status = :status AND " +
+            "(q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id)) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    @EntityGraph("Query.detail")
+    List<Query> findPageByStatusBefore(@Param("status") Query.Status status,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT q FROM Query q WHERE q.venue.id = :venueId AND " +
+            "(q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id)) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    @EntityGraph("Query.detail")
+    List<Query> findPageByVenueBefore(@Param("venueId") Long venueId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT new com.example.loginapp.model.QueryListItem(" +
+            "q.id, q.title, q.status, q.priority, q.category, v.id, v.name, r.id, r.name, w.id, w.name, " +
+            "q.createdAt, q.updatedAt, q.resolvedAt) " +
+            "FROM Query q LEFT JOIN q.venue v LEFT JOIN q.raisedByUser r LEFT JOIN q.assignedToWorker w WHERE " +
+            "(:status IS NULL OR q.status = :status) AND " +
+            "(:userId IS NULL OR r.id = :userId) AND " +
+            "(:workerId IS NULL OR w.id = :workerId) AND " +
+            "(:venueId IS NULL OR v.id = :venueId) AND " +
+            "(q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id)) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    List<QueryListItem> findListItemsBefore(@Param("status") Query.Status status,
+                                            @Param("userId") Long userId,
+                                            @Param("workerId") Long workerId,
+                                            @Param("venueId") Long venueId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+    
     @org.springframework.data.jpa.repository.Query("SELECT q FROM Query q WHERE " +
             "(:status IS NULL OR q.status = :status) AND " +
             "(:category IS NULL OR q.category = :category) AND " +
-            "(:venueId IS NULL OR q.venue.id = :venueId) AND " +
-            "(q.title LIKE %:keyword% OR q.description LIKE %:keyword%)")
-    List<Query> findWithFilters(@Param("status") Query.Status status,
-                               @Param("category") Query.Category category,
-                               @Param("venueId") Long venueId,
-                               @Param("keyword") String keyword);
+            "(:venueId IS NULL OR q.venue.id = :venueId) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    @EntityGraph("Query.detail")
+    List<Query> findByFilters(@Param("status") Query.Status status,
+                              @Param("category") Query.Category category,
+                              @Param("venueId") Long venueId);
+
+    // Text and filter columns only, walked in id order to (re)build the search index
+    @org.springframework.data.jpa.repository.Query("SELECT q.id, q.title, q.description, q.completionNotes, " +
+            "q.status, q.category, v.id FROM Query q LEFT JOIN q.venue v WHERE q.id > :afterId ORDER BY q.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Must be consumed inside a read-only transaction and closed by the caller
+    @org.springframework.data.jpa.repository.Query("SELECT new com.example.loginapp.model.QueryExportRow(" +
+            "q.id, q.title, q.description, q.category, q.priority, q.status, v.id, v.name, " +
+            "r.id, r.name, r.email, w.id, w.name, c.id, c.name, " +
+            "q.imagePath, q.completionNotes, q.completionImagePath, q.createdAt, q.updatedAt, q.resolvedAt) " +
+            "FROM Query q LEFT JOIN q.venue v LEFT JOIN q.raisedByUser r " +
+            "LEFT JOIN q.assignedToWorker w LEFT JOIN q.completedByUser c ORDER BY q.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<QueryExportRow> streamExportRows();
+
+    @org.springframework.data.jpa.repository.Query("SELECT q.status, q.priority, q.category, COUNT(q) FROM Query q " +
+            "GROUP BY q.status, q.priority, q.category")
+    List<Object[]> countGroupedByStatusPriorityCategory();
+
+    // Keyset chunks of (id, priority, category, createdAt) of unassigned pending queries, to rebuild the dispatch queue
+    @org.springframework.data.jpa.repository.Query("SELECT q.id, q.priority, q.category, q.createdAt FROM Query q " +
+            "WHERE q.id > :afterId AND q.status = 'PENDING' " +
+            "AND q.assignedToWorker IS NULL ORDER BY q.id")
+    List<Object[]> findDispatchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset chunks of (id, status, priority, state entry time) of queries an SLA clock is running for;
+    // rows written before stateEnteredAt existed fall back to updatedAt
+    @org.springframework.data.jpa.repository.Query("SELECT q.id, q.status, q.priority, " +
+            "COALESCE(q.stateEnteredAt, q.updatedAt) FROM Query q " +
+            "WHERE q.id > :afterId AND q.status IN :statuses ORDER BY q.id")
+    List<Object[]> findSlaRowsAfter(@Param("afterId") Long afterId,
+                                    @Param("statuses") Collection<Query.Status> statuses,
+                                    Pageable pageable);
+
+    // Keyset chunks of the columns query rollups are built from, for the rollup backfill; the version tells it
+    // which writes made during its scan the row already shows
+    @org.springframework.data.jpa.repository.Query("SELECT q.id, q.category, q.priority, v.id, q.status, q.createdAt, " +
+            "q.resolvedAt, q.updatedAt, q.version FROM Query q LEFT JOIN q.venue v WHERE q.id > :afterId ORDER BY q.id")
+    List<Object[]> findRollupRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Highest id in the table, null when it is empty; a backfill reads up to here and no further
+    @org.springframework.data.jpa.repository.Query("SELECT MAX(q.id) FROM Query q")
+    Long findMaxId();
+
+    // (workerId, priority, count) of the tickets each worker still has open, for the assignment engine
+    @org.springframework.data.jpa.repository.Query("SELECT q.assignedToWorker.id, q.priority, COUNT(q) FROM Query q " +
+            "WHERE q.assignedToWorker IS NOT NULL AND q.status IN :statuses GROUP BY q.assignedToWorker.id, q.priority")
+    List<Object[]> countOpenByWorkerAndPriority(@Param("statuses") Collection<Query.Status> statuses);
+
+    @org.springframework.data.jpa.repository.Query("SELECT q.priority, COUNT(q) FROM Query q " +
+            "WHERE q.assignedToWorker.id = :workerId AND q.status IN :statuses GROUP BY q.priority")
+    List<Object[]> countOpenByPriorityForWorker(@Param("workerId") Long workerId,
+                                                @Param("statuses") Collection<Query.Status> statuses);
+
+    @org.springframework.data.jpa.repository.Query("SELECT q.imagePath, COUNT(q) FROM Query q " +
+            "WHERE q.imagePath IS NOT NULL GROUP BY q.imagePath")
+    List<Object[]> countImageReferences();
+
+    @org.springframework.data.jpa.repository.Query("SELECT q.completionImagePath, COUNT(q) FROM Query q " +
+            "WHERE q.completionImagePath IS NOT NULL GROUP BY q.completionImagePath")
+    List<Object[]> countCompletionImageReferences();
+
+    @org.springframework.data.jpa.repository.Query("SELECT q.imageThumbnails, q.completionImageThumbnails FROM Query q " +
+            "WHERE q.imageThumbnails IS NOT NULL OR q.completionImageThumbnails IS NOT NULL")
+    List<Object[]> findThumbnailLists();
+
+    // Keyset chunks of every image column for the upload sweeper; thumbnails only exist next to an image
+    @org.springframework.data.jpa.repository.Query("SELECT q.id, q.imagePath, q.completionImagePath, q.imageThumbnails, " +
+            "q.completionImageThumbnails FROM Query q WHERE q.id > :afterId " +
+            "AND (q.imagePath IS NOT NULL OR q.completionImagePath IS NOT NULL) ORDER BY q.id")
+    List<Object[]> findImagePathsAfter(@Param("afterId") Long afterId, Pageable page);
+
+    // Exact check before the sweeper removes a file; the LIKE covers paths inside the thumbnail lists
+    @org.springframework.data.jpa.repository.Query("SELECT COUNT(q) FROM Query q WHERE q.imagePath IN :paths " +
+            "OR q.completionImagePath IN :paths OR q.imageThumbnails LIKE :pattern OR q.completionImageThumbnails LIKE :pattern")
+    long countImageReferencesTo(@Param("paths") Collection<String> paths, @Param("pattern") String pattern);
+
+    // SLA escalation: moves the priority only if nothing else changed it or the status since the timer was set.
+    // Restarts the state clock and bumps the version, like a save that changes the priority would
+    @Modifying
+    @org.springframework.data.jpa.repository.Query("UPDATE Query q SET q.priority = :to, q.updatedAt = :now, " +
+            "q.stateEnteredAt = :now, q.version = q.version + 1 " +
+            "WHERE q.id = :id AND q.priority = :from AND q.status IN :statuses")
+    int raisePriority(@Param("id") Long id, @Param("from") Query.Priority from, @Param("to") Query.Priority to,
+                      @Param("statuses") Collection<Query.Status> statuses, @Param("now") LocalDateTime now);
+
+    // Only fills in variants for the image they were made from, so a replaced image is never given stale ones.
+    // Bumps the version: a save built from an earlier read then fails instead of clearing them again
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @org.springframework.data.jpa.repository.Query("UPDATE Query q SET q.imageThumbnails = :thumbnails, q.updatedAt = :now, " +
+            "q.version = q.version + 1 " +
+            "WHERE q.id = :id AND q.imagePath = :source AND q.imageThumbnails IS NULL")
+    int setImageThumbnails(@Param("id") Long id, @Param("source") String source,
+                           @Param("thumbnails") String thumbnails, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @org.springframework.data.jpa.repository.Query("UPDATE Query q SET q.completionImageThumbnails = :thumbnails, q.updatedAt = :now, " +
+            "q.version = q.version + 1 " +
+            "WHERE q.id = :id AND q.completionImagePath = :source AND q.completionImageThumbnails IS NULL")
+    int setCompletionImageThumbnails(@Param("id") Long id, @Param("source") String source,
+                                     @Param("thumbnails") String thumbnails, @Param("now") LocalDateTime now);
     
     @org.springframework.data.jpa.repository.Query("SELECT COUNT(q) FROM Query q WHERE q.status = :status")
     Long countByStatus(@Param("status") Query.Status status);
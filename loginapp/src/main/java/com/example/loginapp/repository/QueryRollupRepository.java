@@ -0,0 +1,43 @@
+package com.example.loginapp.repository;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QueryRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface QueryRollupRepository extends JpaRepository<QueryRollup, Long> {
+
+    // Adds deltas to an existing bucket row; 0 means the row does not exist yet. Must run in a transaction
+    @Modifying
+    @org.springframework.data.jpa.repository.Query("UPDATE QueryRollup r SET r.created = r.created + :created, " +
+            "r.resolved = r.resolved + :resolved, r.openDelta = r.openDelta + :openDelta " +
+            "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart AND r.category = :category " +
+            "AND r.priority = :priority AND r.venueId = :venueId")
+    int addToBucket(@Param("granularity") QueryRollup.Granularity granularity,
+                    @Param("bucketStart") LocalDateTime bucketStart,
+                    @Param("category") Query.Category category,
+                    @Param("priority") Query.Priority priority,
+                    @Param("venueId") Long venueId,
+                    @Param("created") long created,
+                    @Param("resolved") long resolved,
+                    @Param("openDelta") long openDelta);
+
+    @org.springframework.data.jpa.repository.Query("SELECT r FROM QueryRollup r WHERE r.granularity = :granularity " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<QueryRollup> findRange(@Param("granularity") QueryRollup.Granularity granularity,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to);
+
+    // Open queries per key as of a bucket boundary: (category, priority, venueId, sum of openDelta)
+    @org.springframework.data.jpa.repository.Query("SELECT r.category, r.priority, r.venueId, SUM(r.openDelta) " +
+            "FROM QueryRollup r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+            "GROUP BY r.category, r.priority, r.venueId")
+    List<Object[]> sumOpenDeltaBetween(@Param("granularity") QueryRollup.Granularity granularity,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+}
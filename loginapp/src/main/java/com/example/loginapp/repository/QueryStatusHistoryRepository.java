@@ -1,11 +1,19 @@
 package com.example.loginapp.repository;
 
+import com.example.loginapp.model.QueryHistoryExportRow;
 import com.example.loginapp.model.QueryStatusHistory;
 import com.example.loginapp.model.Query;
 import com.example.loginapp.model.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface QueryStatusHistoryRepository extends JpaRepository<QueryStatusHistory, Long> {
@@ -17,4 +25,26 @@ public interface QueryStatusHistoryRepository extends JpaRepository<QueryStatusH
     List<QueryStatusHistory> findByQueryIdOrderByCreatedAtDesc(Long queryId);
     
     QueryStatusHistory findFirstByQueryOrderByCreatedAtDesc(Query query);
+
+    @org.springframework.data.jpa.repository.Query("SELECT h.completionImagePath, COUNT(h) FROM QueryStatusHistory h " +
+            "WHERE h.completionImagePath IS NOT NULL GROUP BY h.completionImagePath")
+    List<Object[]> countCompletionImageReferences();
+
+    // Keyset chunks of (id, completionImagePath) for the upload sweeper
+    @org.springframework.data.jpa.repository.Query("SELECT h.id, h.completionImagePath FROM QueryStatusHistory h " +
+            "WHERE h.id > :afterId AND h.completionImagePath IS NOT NULL ORDER BY h.id")
+    List<Object[]> findCompletionImagePathsAfter(@Param("afterId") Long afterId, Pageable page);
+
+    @org.springframework.data.jpa.repository.Query("SELECT COUNT(h) FROM QueryStatusHistory h WHERE h.completionImagePath IN :paths")
+    long countByCompletionImagePathIn(@Param("paths") Collection<String> paths);
+
+    // Must be consumed inside a read-only transaction and closed by the caller
+    @org.springframework.data.jpa.repository.Query("SELECT new com.example.loginapp.model.QueryHistoryExportRow(" +
+            "h.id, h.query.id, h.oldStatus, h.newStatus, u.id, u.name, h.comment, h.completionImagePath, h.createdAt) " +
+            "FROM QueryStatusHistory h LEFT JOIN h.updatedByUser u ORDER BY h.query.id, h.createdAt, h.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = QueryRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<QueryHistoryExportRow> streamExportRows();
 }
@@ -0,0 +1,32 @@
+package com.example.loginapp.repository;
+
+import com.example.loginapp.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Revokes one live token; 1 means this caller won the rotation, 0 that someone else already used it
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revokedAt = :now, r.replacedByHash = :replacedByHash " +
+            "WHERE r.tokenHash = :tokenHash AND r.revokedAt IS NULL")
+    int rotate(@Param("tokenHash") String tokenHash,
+               @Param("replacedByHash") String replacedByHash,
+               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revokedAt = :now WHERE r.familyId = :familyId AND r.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -26,4 +26,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> searchUsers(@Param("keyword") String keyword);
     
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.role, u.workerType, COUNT(u) FROM User u GROUP BY u.role, u.workerType")
+    List<Object[]> countGroupedByRoleAndWorkerType();
 }
@@ -0,0 +1,227 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QuerySnapshot;
+import com.example.loginapp.model.User;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks a worker for new queries: the query's category decides the worker
+ * type, and within that type the worker with the least weighted open load
+ * (URGENT tickets weigh more than LOW ones) gets it. Categories without a
+ * matching trade, or trades with no workers, go to GENERAL workers, and
+ * workers saved without a trade are counted as GENERAL (see tradeOf).
+ *
+ * Loads live in a WorkerLoadIndex seeded from one grouped query at startup
+ * and moved by QueryService on every write, the same way as the stats counters.
+ */
+@Service
+public class AssignmentService {
+
+    // Tickets that still count against a worker
+    private static final Set<Query.Status> OPEN = EnumSet.of(Query.Status.PENDING, Query.Status.ASSIGNED,
+            Query.Status.IN_PROGRESS);
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.assignment.auto-assign:true}")
+    private boolean autoAssign;
+
+    @Value("${app.assignment.category-worker-types:ELECTRICAL=ELECTRICIAN,PLUMBING=PLUMBER,CARPENTRY=CARPENTER,NETWORK=NETWORK}")
+    private String workerTypeSetting;
+
+    @Value("${app.assignment.priority-weights:LOW=1,MEDIUM=2,HIGH=4,URGENT=8}")
+    private String weightSetting;
+
+    private final Map<Query.Category, User.WorkerType> workerTypes = new EnumMap<>(Query.Category.class);
+    private final Map<Query.Priority, Integer> weights = new EnumMap<>(Query.Priority.class);
+    private final WorkerLoadIndex loads = new WorkerLoadIndex();
+
+    private final LongAdder assigned = new LongAdder();
+    private final LongAdder assignedToGeneral = new LongAdder();
+    private final LongAdder noWorker = new LongAdder();
+
+    @PostConstruct
+    public void initializeRules() {
+        for (Query.Category category : Query.Category.values()) {
+            workerTypes.put(category, User.WorkerType.GENERAL);
+        }
+        for (String pair : workerTypeSetting.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length == 2) {
+                workerTypes.put(Query.Category.valueOf(parts[0].trim()), User.WorkerType.valueOf(parts[1].trim()));
+            }
+        }
+        for (Query.Priority priority : Query.Priority.values()) {
+            weights.put(priority, 1);
+        }
+        for (String pair : weightSetting.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length == 2) {
+                weights.put(Query.Priority.valueOf(parts[0].trim()), Math.max(Integer.parseInt(parts[1].trim()), 0));
+            }
+        }
+    }
+
+    // After startup seeding, so sample workers and their tickets are counted
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        loads.clear();
+        for (User worker : userRepository.findByRole(User.Role.WORKER)) {
+            loads.putWorker(worker.getId(), tradeOf(worker), 0);
+        }
+        for (Object[] row : queryRepository.countOpenByWorkerAndPriority(OPEN)) {
+            loads.addLoad((Long) row[0], weightOf((Query.Priority) row[1]) * ((Number) row[2]).longValue());
+        }
+        System.out.println("Assignment loads loaded for " + loads.size() + " workers");
+    }
+
+    // The trade a worker is dispatched under; workers saved without one count as GENERAL
+    public static User.WorkerType tradeOf(User worker) {
+        return worker.getWorkerType() == null ? User.WorkerType.GENERAL : worker.getWorkerType();
+    }
+
+    public User.WorkerType workerTypeFor(Query.Category category) {
+        return category == null ? User.WorkerType.GENERAL : workerTypes.get(category);
+    }
+
+    // The categories whose queries go to this worker type
+    public Set<Query.Category> categoriesFor(User.WorkerType type) {
+        Set<Query.Category> categories = EnumSet.noneOf(Query.Category.class);
+        workerTypes.forEach((category, workerType) -> {
+            if (workerType == type) {
+                categories.add(category);
+            }
+        });
+        return categories;
+    }
+
+    public int weightOf(Query.Priority priority) {
+        return priority == null ? weights.get(Query.Priority.MEDIUM) : weights.get(priority);
+    }
+
+    /**
+     * Picks a worker for an unassigned, pending query and counts the query
+     * against them straight away, so queries created at the same moment go
+     * to different workers. Null when auto-assignment is off, the query is
+     * not up for assignment or nobody fits. The reservation must be released
+     * once the query has been saved (or failed to), since saving counts it again.
+     */
+    public Reservation reserve(Query query) {
+        if (!autoAssign || query.getAssignedToWorker() != null
+                || (query.getStatus() != null && query.getStatus() != Query.Status.PENDING)) {
+            return null;
+        }
+        int weight = weightOf(query.getPriority());
+        User.WorkerType type = workerTypeFor(query.getCategory());
+        Long workerId = loads.pick(type, weight);
+        if (workerId == null && type != User.WorkerType.GENERAL) {
+            workerId = loads.pick(User.WorkerType.GENERAL, weight);
+            if (workerId != null) {
+                assignedToGeneral.increment();
+            }
+        }
+        if (workerId == null) {
+            noWorker.increment();
+            return null;
+        }
+        User worker = userRepository.findById(workerId).orElse(null);
+        if (worker == null || worker.getRole() != User.Role.WORKER) {
+            // Changed outside UserService; forget them rather than retrying
+            loads.removeWorker(workerId);
+            noWorker.increment();
+            return null;
+        }
+        assigned.increment();
+        return new Reservation(worker, weight);
+    }
+
+    public void release(Reservation reservation) {
+        if (reservation != null) {
+            loads.addLoad(reservation.getWorker().getId(), -reservation.getWeight());
+        }
+    }
+
+    // Moves a query's weight from the worker it was open for to the one it is open for now
+    public void record(QuerySnapshot before, Query after) {
+        Long beforeWorker = before != null && OPEN.contains(before.getStatus()) ? before.getAssignedToWorkerId() : null;
+        long beforeLoad = beforeWorker != null ? weightOf(before.getPriority()) : 0;
+        Long afterWorker = after != null && after.getAssignedToWorker() != null && OPEN.contains(after.getStatus())
+                ? after.getAssignedToWorker().getId() : null;
+        long afterLoad = afterWorker != null ? weightOf(after.getPriority()) : 0;
+        if (Objects.equals(beforeWorker, afterWorker) && beforeLoad == afterLoad) {
+            return;
+        }
+        loads.addLoad(beforeWorker, -beforeLoad);
+        loads.addLoad(afterWorker, afterLoad);
+    }
+
+    // Called by UserService on every save; only workers take part
+    public synchronized void onUserSaved(User user) {
+        if (user.getRole() != User.Role.WORKER) {
+            loads.removeWorker(user.getId());
+            return;
+        }
+        if (loads.contains(user.getId())) {
+            loads.putWorker(user.getId(), tradeOf(user), 0);
+            return;
+        }
+        long load = 0;
+        for (Object[] row : queryRepository.countOpenByPriorityForWorker(user.getId(), OPEN)) {
+            load += weightOf((Query.Priority) row[0]) * ((Number) row[1]).longValue();
+        }
+        loads.putWorker(user.getId(), tradeOf(user), load);
+    }
+
+    public void onUserDeleted(Long userId) {
+        loads.removeWorker(userId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("autoAssign", autoAssign);
+        metrics.put("assigned", assigned.sum());
+        metrics.put("assignedToGeneral", assignedToGeneral.sum());
+        metrics.put("noWorkerAvailable", noWorker.sum());
+        metrics.put("categoryWorkerTypes", workerTypes);
+        metrics.put("priorityWeights", weights);
+        metrics.put("workerLoads", loads.snapshot());
+        return metrics;
+    }
+
+    public static class Reservation {
+        private final User worker;
+        private final int weight;
+
+        Reservation(User worker, int weight) {
+            this.worker = worker;
+            this.weight = weight;
+        }
+
+        public User getWorker() {
+            return worker;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+}
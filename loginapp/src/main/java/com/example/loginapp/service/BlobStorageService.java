@@ -0,0 +1,436 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.ImageVariants;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.QueryStatusHistoryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed storage for uploaded images. An upload is hashed
+ * (SHA-256) while it is written to a temp file and then handed to the blob
+ * store under &lt;hash&gt;.&lt;ext&gt;; if that blob already exists the temp file
+ * is dropped and the existing blob is returned, so the same photo is stored
+ * once however often it is uploaded.
+ *
+ * The store is one file per blob under blobs/ (app.blobs.store=files, the
+ * default) or packed segment files under segments/ (app.blobs.store=segments).
+ * With segments, blobs written earlier under blobs/ are still read from there.
+ *
+ * Blobs are referenced by their public path (/api/files/&lt;hash&gt;.&lt;ext&gt;)
+ * from the queries' image and thumbnail columns and from status history. Those references
+ * are counted in memory, loaded at startup and moved by QueryService on every
+ * write; blobs whose count drops to zero are left for the upload sweeper.
+ */
+@Service
+public class BlobStorageService {
+
+    public static final String PUBLIC_PREFIX = "/api/files/";
+
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,8}");
+
+    // Legacy uploads only ever lived in the upload directory itself or in completions/
+    private static final Pattern LEGACY_KEY = Pattern.compile("(completions/)?[^/\\\\]+");
+
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,8})?");
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private QueryStatusHistoryRepository queryStatusHistoryRepository;
+
+    @Value("${app.upload.dir:uploads/}")
+    private String uploadDir;
+
+    @Value("${app.blobs.store:files}")
+    private String storeType;
+
+    @Value("${app.blobs.segments.max-bytes:268435456}")
+    private long segmentMaxBytes;
+
+    // A sealed segment is compacted once less than this share of its bytes is still live
+    @Value("${app.blobs.segments.compaction-threshold:0.5}")
+    private double compactionThreshold;
+
+    @Value("${app.blobs.segments.compaction-interval-seconds:300}")
+    private long compactionIntervalSeconds;
+
+    @Value("${app.blobs.segments.retire-grace-seconds:600}")
+    private long retireGraceSeconds;
+
+    private Path tempDir;
+    private BlobStore blobStore;
+    // Files written before switching to segments; null when blobStore is the file store itself
+    private BlobStore legacyStore;
+    private ScheduledExecutorService maintenance;
+
+    private final Map<String, Integer> referenceCounts = new ConcurrentHashMap<>();
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    @PostConstruct
+    public void initializeDirectories() throws IOException {
+        tempDir = Paths.get(uploadDir, "tmp");
+        Files.createDirectories(tempDir);
+        FileBlobStore files = new FileBlobStore(Paths.get(uploadDir, "blobs"));
+        if ("segments".equalsIgnoreCase(storeType)) {
+            blobStore = new SegmentBlobStore(Paths.get(uploadDir, "segments"), segmentMaxBytes,
+                    compactionThreshold, TimeUnit.SECONDS.toMillis(retireGraceSeconds));
+            legacyStore = files;
+            maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "blob-segment-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            maintenance.scheduleWithFixedDelay(this::maintain, compactionIntervalSeconds,
+                    Math.max(compactionIntervalSeconds, 1), TimeUnit.SECONDS);
+        } else {
+            blobStore = files;
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        blobStore.close();
+    }
+
+    // Counts every image reference once, after startup seeding has written its rows
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void loadReferenceCounts() {
+        referenceCounts.clear();
+        List<List<Object[]>> sources = List.of(
+                queryRepository.countImageReferences(),
+                queryRepository.countCompletionImageReferences(),
+                queryStatusHistoryRepository.countCompletionImageReferences());
+        for (List<Object[]> rows : sources) {
+            for (Object[] row : rows) {
+                String name = blobName((String) row[0]);
+                if (name != null) {
+                    referenceCounts.merge(name, ((Number) row[1]).intValue(), Integer::sum);
+                }
+            }
+        }
+        for (Object[] row : queryRepository.findThumbnailLists()) {
+            for (Object thumbnails : row) {
+                for (String path : ImageVariants.paths((String) thumbnails)) {
+                    retain(path);
+                }
+            }
+        }
+        System.out.println("Blob reference counts loaded for " + referenceCounts.size() + " blobs");
+    }
+
+    /**
+     * Stores the stream and returns the blob it ended up in, which is an
+     * existing one when the same bytes were stored before.
+     */
+    public StoredBlob store(InputStream in, String originalFilename) throws IOException {
+        Path temp = tempDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            MessageDigest digest = newDigest();
+            long size;
+            try (DigestInputStream hashing = new DigestInputStream(in, digest)) {
+                size = Files.copy(hashing, temp);
+            }
+            String name = HexFormat.of().formatHex(digest.digest()) + extensionOf(originalFilename);
+
+            // A fresh mtime keeps the sweeper's grace period from collecting a blob that is about to be referenced.
+            // Touching fails once the sweeper has removed the blob, and the bytes are then stored again
+            boolean existing = (legacyStore != null && legacyStore.touch(name))
+                    || blobStore.touch(name) || !blobStore.put(name, temp);
+            if (existing) {
+                deduplicated.increment();
+                bytesSaved.add(size);
+            } else {
+                stored.increment();
+                bytesWritten.add(size);
+            }
+            return new StoredBlob(name, PUBLIC_PREFIX + name, size, existing);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Optional<BlobStore.Blob> open(String name) throws IOException {
+        if (name == null || !BLOB_NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+        Optional<BlobStore.Blob> blob = blobStore.open(name);
+        return blob.isPresent() || legacyStore == null ? blob : legacyStore.open(name);
+    }
+
+    /**
+     * A file uploaded before content addressing, by the public path it was
+     * handed out under: /uploads/&lt;file&gt; (served as a static resource) or
+     * /api/files/&lt;file&gt;. Empty for blobs and for anything outside the upload directory.
+     */
+    public Optional<Path> legacyFile(String publicPath) {
+        String key = referenceKey(publicPath);
+        if (key == null || isBlobName(key) || !LEGACY_KEY.matcher(key).matches()) {
+            return Optional.empty();
+        }
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path file = root.resolve(key).normalize();
+        return file.startsWith(root) && Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Every stored upload keyed the way referenceKey keys a public path: blob
+     * names, plus the legacy files in the upload directory and completions/.
+     */
+    public void forEachStoredFile(Consumer<BlobStore.Entry> action) throws IOException {
+        blobStore.forEach(action);
+        if (legacyStore != null) {
+            legacyStore.forEach(action);
+        }
+        Path root = Paths.get(uploadDir);
+        forEachLegacyFile(root, "", action);
+        forEachLegacyFile(root.resolve("completions"), "completions/", action);
+    }
+
+    /**
+     * The key a public path is stored under: the blob name, or the legacy
+     * file's path relative to the upload directory. Null for anything else.
+     */
+    public String referenceKey(String publicPath) {
+        if (publicPath == null) {
+            return null;
+        }
+        String legacyPrefix = "/" + uploadDir;
+        String key;
+        if (publicPath.startsWith(PUBLIC_PREFIX)) {
+            key = publicPath.substring(PUBLIC_PREFIX.length());
+        } else if (publicPath.startsWith(legacyPrefix)) {
+            key = publicPath.substring(legacyPrefix.length());
+        } else {
+            return null;
+        }
+        return key.isEmpty() || key.contains("..") ? null : key;
+    }
+
+    // Every public path that resolves to the stored key
+    public List<String> referencePaths(String key) {
+        if (isBlobName(key)) {
+            return List.of(PUBLIC_PREFIX + key);
+        }
+        return List.of("/" + uploadDir + key, PUBLIC_PREFIX + key);
+    }
+
+    /**
+     * Removes a stored upload, first moving its bytes under quarantine when
+     * one is given. Returns the bytes freed, or -1 when it was already gone
+     * or has been written or touched since the cutoff. That last check is
+     * made under the store's lock, so an upload de-duplicated onto the blob
+     * while the sweeper was verifying it always wins.
+     */
+    public long removeStoredFile(String key, Path quarantine, long cutoffMillis) throws IOException {
+        if (isBlobName(key)) {
+            BlobStore holder = blobStore.contains(key) ? blobStore : legacyStore;
+            Optional<BlobStore.Blob> blob = holder == null ? Optional.empty() : holder.open(key);
+            if (blob.isEmpty() || blob.get().getLastModified() >= cutoffMillis) {
+                return -1;
+            }
+            Path target = null;
+            if (quarantine != null) {
+                target = quarantineTarget(quarantine, key);
+                try (InputStream in = blob.get().openStream()) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (holder.deleteIfModifiedBefore(key, cutoffMillis)) {
+                return blob.get().getLength();
+            }
+            if (target != null) {
+                Files.deleteIfExists(target);
+            }
+            return -1;
+        }
+        Optional<Path> file = legacyFile("/" + uploadDir + key);
+        // Nothing writes to legacy files any more, so a fresh look at the mtime is enough there
+        if (file.isEmpty() || Files.getLastModifiedTime(file.get()).toMillis() >= cutoffMillis) {
+            return -1;
+        }
+        long size = Files.size(file.get());
+        if (quarantine == null) {
+            return Files.deleteIfExists(file.get()) ? size : -1;
+        }
+        Path target = quarantineTarget(quarantine, key);
+        Files.move(file.get(), target, StandardCopyOption.REPLACE_EXISTING);
+        // Retention counts from when it was quarantined, not from the upload
+        Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+        return size;
+    }
+
+    // Temp files left behind by uploads that died mid-stream
+    public int cleanTemp(long olderThanMillis) throws IOException {
+        int removed = 0;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < olderThanMillis && Files.deleteIfExists(file)) {
+                        removed++;
+                    }
+                } catch (IOException e) {
+                    // Finished and moved while listing
+                }
+            }
+        }
+        return removed;
+    }
+
+    // A query column or history row started pointing at this path
+    public void retain(String publicPath) {
+        String name = blobName(publicPath);
+        if (name != null) {
+            referenceCounts.merge(name, 1, Integer::sum);
+        }
+    }
+
+    public void release(String publicPath) {
+        String name = blobName(publicPath);
+        if (name != null) {
+            // Dropping the entry at zero keeps the map the size of the live set
+            referenceCounts.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public void replaceReference(String oldPath, String newPath) {
+        if (oldPath == null ? newPath == null : oldPath.equals(newPath)) {
+            return;
+        }
+        retain(newPath);
+        release(oldPath);
+    }
+
+    public int getReferenceCount(String name) {
+        return referenceCounts.getOrDefault(name, 0);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("blobsStored", stored.sum());
+        metrics.put("duplicatesAvoided", deduplicated.sum());
+        metrics.put("bytesWritten", bytesWritten.sum());
+        metrics.put("bytesSaved", bytesSaved.sum());
+        metrics.put("referencedBlobs", referenceCounts.size());
+        metrics.put("store", blobStore.getMetrics());
+        return metrics;
+    }
+
+    /**
+     * The blob name (hash plus extension) a public path points at, or null
+     * for anything else, such as the UUID files uploaded before blobs existed.
+     */
+    public static String blobName(String publicPath) {
+        if (publicPath == null || !publicPath.startsWith(PUBLIC_PREFIX)) {
+            return null;
+        }
+        String name = publicPath.substring(PUBLIC_PREFIX.length());
+        return BLOB_NAME.matcher(name).matches() ? name : null;
+    }
+
+    public static boolean isBlobName(String name) {
+        return name != null && BLOB_NAME.matcher(name).matches();
+    }
+
+    private static void forEachLegacyFile(Path dir, String prefix, Consumer<BlobStore.Entry> action) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        action.accept(new BlobStore.Entry(prefix + path.getFileName(), attributes.size(),
+                                attributes.lastModifiedTime().toMillis()));
+                    }
+                } catch (IOException e) {
+                    // Deleted while listing
+                }
+            });
+        }
+    }
+
+    private static Path quarantineTarget(Path quarantine, String key) throws IOException {
+        Path target = quarantine.resolve(key).normalize();
+        if (!target.startsWith(quarantine.normalize())) {
+            throw new IOException("Invalid upload key: " + key);
+        }
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+
+    private void maintain() {
+        try {
+            blobStore.maintain();
+        } catch (Exception e) {
+            System.err.println("Blob store maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = filename.substring(filename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class StoredBlob {
+        private String name;
+        private String path;
+        private long size;
+        private boolean deduplicated;
+    }
+}
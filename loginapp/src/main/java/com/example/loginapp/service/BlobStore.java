@@ -0,0 +1,154 @@
+package com.example.loginapp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Where BlobStorageService keeps blob bytes, by blob name. Names are
+ * content hashes, so a blob never changes once written; hashing,
+ * de-duplication and reference counting stay in BlobStorageService.
+ */
+public interface BlobStore {
+
+    boolean contains(String name);
+
+    /**
+     * Stores the file's bytes under the name. Returns false, leaving the
+     * file alone, when the name is already stored.
+     */
+    boolean put(String name, Path file) throws IOException;
+
+    Optional<Blob> open(String name) throws IOException;
+
+    /**
+     * Marks the blob as recently written, for the sweeper's grace period.
+     * Returns false when it is not stored. Runs under the same lock as
+     * deleteIfModifiedBefore, so a blob touched here is never deleted as stale.
+     */
+    boolean touch(String name) throws IOException;
+
+    boolean delete(String name) throws IOException;
+
+    // Deletes the blob only if it was last written or touched before the cutoff, checked under the store's lock
+    boolean deleteIfModifiedBefore(String name, long cutoffMillis) throws IOException;
+
+    // Every stored blob, in no particular order
+    void forEach(Consumer<Entry> action) throws IOException;
+
+    Map<String, Object> getMetrics();
+
+    // Periodic housekeeping, run off the request path
+    default void maintain() throws IOException {
+    }
+
+    default void close() throws IOException {
+    }
+
+    /**
+     * The bytes of one blob: a region of a file, plus a mapped view of it
+     * when the store keeps one.
+     */
+    class Blob {
+        private final Path file;
+        private final long offset;
+        private final long length;
+        private final long lastModified;
+        private final ByteBuffer mapped;
+
+        public Blob(Path file, long offset, long length, long lastModified, ByteBuffer mapped) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.mapped = mapped;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        // Read-only and positioned at the blob's first byte, or null for plain files
+        public ByteBuffer getMapped() {
+            return mapped == null ? null : mapped.duplicate();
+        }
+
+        public InputStream openStream() throws IOException {
+            if (mapped != null) {
+                return new ByteBufferInputStream(mapped.duplicate());
+            }
+            InputStream in = Files.newInputStream(file);
+            in.skipNBytes(offset);
+            return in;
+        }
+    }
+
+    class Entry {
+        private final String name;
+        private final long length;
+        private final long lastModified;
+
+        public Entry(String name, long length, long lastModified) {
+            this.name = name;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
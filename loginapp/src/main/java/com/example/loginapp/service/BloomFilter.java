@@ -0,0 +1,80 @@
+package com.example.loginapp.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size Bloom filter over strings. A miss is definite; a hit may be a
+ * false positive at roughly the rate it was sized for. Not thread-safe.
+ */
+public class BloomFilter {
+
+    private final long[] words;
+    private final long bits;
+    private final int hashes;
+    private long added;
+
+    public BloomFilter(long expectedItems, double falsePositiveRate) {
+        long items = Math.max(expectedItems, 1);
+        double rate = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+        long size = (long) Math.ceil(-items * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        this.bits = Math.max(64, (size + 63) / 64 * 64);
+        this.words = new long[(int) (bits / 64)];
+        this.hashes = Math.max(1, (int) Math.round((double) bits / items * Math.log(2)));
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1 + i * h2);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        added++;
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitSize() {
+        return bits;
+    }
+
+    public int getHashCount() {
+        return hashes;
+    }
+
+    // (1 - e^(-kn/m))^k for what has actually been added
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * added / bits), hashes);
+    }
+
+    private long index(int combined) {
+        return (combined & 0x7fffffffL) % bits;
+    }
+
+    // 64-bit FNV-1a with a final avalanche, split into two 32-bit hashes (Kirsch-Mitzenmacher)
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
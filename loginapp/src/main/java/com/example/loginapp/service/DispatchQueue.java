@@ -0,0 +1,159 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Unassigned pending queries in the order they should be picked up. Each
+ * priority gets a head start over LOW, so a query ranks as if it had been
+ * created that much earlier; an old LOW query therefore still overtakes new
+ * URGENT ones once it has waited longer than URGENT's head start. The rank
+ * is fixed when a query is added, which keeps the order in sorted sets
+ * (one per category) with O(log n) add and remove.
+ */
+public class DispatchQueue {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::getRank)
+            .thenComparingLong(Entry::getQueryId);
+
+    private final Map<Query.Priority, Long> headStartMillis;
+    private final Map<Query.Category, TreeSet<Entry>> byCategory = new EnumMap<>(Query.Category.class);
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    public DispatchQueue(Map<Query.Priority, Long> headStartMillis) {
+        this.headStartMillis = new EnumMap<>(headStartMillis);
+        for (Query.Category category : Query.Category.values()) {
+            byCategory.put(category, new TreeSet<>(ORDER));
+        }
+    }
+
+    // Adds the query or moves it to its new place
+    public synchronized void put(Long queryId, Query.Priority priority, Query.Category category, long createdAtMillis) {
+        remove(queryId);
+        long rank = createdAtMillis - headStartMillis.getOrDefault(priority, 0L);
+        Entry entry = new Entry(queryId, priority, category == null ? Query.Category.OTHER : category, createdAtMillis, rank);
+        entries.put(queryId, entry);
+        byCategory.get(entry.getCategory()).add(entry);
+    }
+
+    public synchronized boolean remove(Long queryId) {
+        Entry entry = entries.remove(queryId);
+        if (entry == null) {
+            return false;
+        }
+        byCategory.get(entry.getCategory()).remove(entry);
+        return true;
+    }
+
+    public synchronized boolean contains(Long queryId) {
+        return entries.containsKey(queryId);
+    }
+
+    // The first count entries over the given categories (all when null), merged in rank order
+    public synchronized List<Entry> peek(Collection<Query.Category> categories, int count) {
+        List<Entry> result = new ArrayList<>(Math.max(count, 0));
+        PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> ORDER.compare(a.head, b.head));
+        for (Query.Category category : categories == null ? byCategory.keySet() : categories) {
+            Iterator<Entry> iterator = byCategory.get(category).iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Cursor(iterator));
+            }
+        }
+        while (result.size() < count && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            result.add(cursor.head);
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    // Takes the first entry over the categories out of the queue, so two callers never get the same one
+    public synchronized Entry poll(Collection<Query.Category> categories) {
+        List<Entry> first = peek(categories, 1);
+        if (first.isEmpty()) {
+            return null;
+        }
+        remove(first.get(0).getQueryId());
+        return first.get(0);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized Map<Query.Category, Integer> sizesByCategory() {
+        Map<Query.Category, Integer> sizes = new EnumMap<>(Query.Category.class);
+        byCategory.forEach((category, set) -> sizes.put(category, set.size()));
+        return sizes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        byCategory.values().forEach(TreeSet::clear);
+    }
+
+    public static class Entry {
+        private final Long queryId;
+        private final Query.Priority priority;
+        private final Query.Category category;
+        private final long createdAtMillis;
+        private final long rank;
+
+        Entry(Long queryId, Query.Priority priority, Query.Category category, long createdAtMillis, long rank) {
+            this.queryId = queryId;
+            this.priority = priority;
+            this.category = category;
+            this.createdAtMillis = createdAtMillis;
+            this.rank = rank;
+        }
+
+        public Long getQueryId() {
+            return queryId;
+        }
+
+        public Query.Priority getPriority() {
+            return priority;
+        }
+
+        public Query.Category getCategory() {
+            return category;
+        }
+
+        public long getCreatedAtMillis() {
+            return createdAtMillis;
+        }
+
+        public long getRank() {
+            return rank;
+        }
+    }
+
+    private static class Cursor {
+        final Iterator<Entry> iterator;
+        Entry head;
+
+        Cursor(Iterator<Entry> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QuerySnapshot;
+import com.example.loginapp.model.User;
+import com.example.loginapp.repository.QueryRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the DispatchQueue of unassigned pending queries in step with the
+ * table: rebuilt in id-ordered chunks at startup, then moved by QueryService
+ * on every write, so reading the backlog in pick-up order never sorts it.
+ */
+@Service
+public class DispatchService {
+
+    private static final int RELOAD_CHUNK = 1000;
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    // How much earlier than its creation time a query of each priority ranks
+    @Value("${app.dispatch.head-start-minutes:LOW=0,MEDIUM=240,HIGH=720,URGENT=2880}")
+    private String headStartSetting;
+
+    @Value("${app.dispatch.max-count:100}")
+    private int maxCount;
+
+    private DispatchQueue queue;
+
+    private final LongAdder claimed = new LongAdder();
+
+    @PostConstruct
+    public void initializeQueue() {
+        Map<Query.Priority, Long> headStarts = new EnumMap<>(Query.Priority.class);
+        for (String pair : headStartSetting.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length == 2) {
+                headStarts.put(Query.Priority.valueOf(parts[0].trim()),
+                        TimeUnit.MINUTES.toMillis(Long.parseLong(parts[1].trim())));
+            }
+        }
+        queue = new DispatchQueue(headStarts);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        queue.clear();
+        PageRequest chunk = PageRequest.of(0, RELOAD_CHUNK);
+        List<Object[]> rows;
+        long afterId = 0;
+        do {
+            rows = queryRepository.findDispatchRowsAfter(afterId, chunk);
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                queue.put(afterId, (Query.Priority) row[1], (Query.Category) row[2], millis((LocalDateTime) row[3]));
+            }
+        } while (rows.size() == RELOAD_CHUNK);
+        System.out.println("Dispatch queue loaded with " + queue.size() + " pending queries");
+    }
+
+    // Adds, moves or drops the query depending on whether it is still waiting for a worker
+    public void record(QuerySnapshot before, Query after) {
+        boolean wasWaiting = before != null && before.getStatus() == Query.Status.PENDING
+                && before.getAssignedToWorkerId() == null;
+        boolean waiting = after != null && after.getStatus() == Query.Status.PENDING && after.getAssignedToWorker() == null;
+        if (waiting) {
+            boolean moved = !wasWaiting || before.getPriority() != after.getPriority()
+                    || before.getCategory() != after.getCategory()
+                    || !Objects.equals(before.getCreatedAt(), after.getCreatedAt());
+            if (moved || !queue.contains(after.getId())) {
+                queue.put(after.getId(), after.getPriority(), after.getCategory(), millis(after.getCreatedAt()));
+            }
+        } else if (wasWaiting) {
+            queue.remove(before.getId());
+        }
+    }
+
+    // The next queries to pick up, for one worker type's categories or for everyone when type is null
+    public List<DispatchQueue.Entry> next(User.WorkerType type, int count) {
+        return queue.peek(categoriesOf(type), Math.max(1, Math.min(count, maxCount)));
+    }
+
+    /**
+     * Takes the next query for the worker's trade off the queue; the caller
+     * assigns it or requeues it. A worker without a trade claims as GENERAL,
+     * as in assignment: a null type only means "every category" for the
+     * admin view in next().
+     */
+    public Long claim(User worker) {
+        DispatchQueue.Entry entry = queue.poll(categoriesOf(AssignmentService.tradeOf(worker)));
+        if (entry == null) {
+            return null;
+        }
+        claimed.increment();
+        return entry.getQueryId();
+    }
+
+    // Puts a claimed query back when it could not be assigned after all
+    public void requeue(Query query) {
+        record(null, query);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", queue.size());
+        metrics.put("pendingByCategory", queue.sizesByCategory());
+        metrics.put("claimed", claimed.sum());
+        return metrics;
+    }
+
+    private Collection<Query.Category> categoriesOf(User.WorkerType type) {
+        return type == null ? null : assignmentService.categoriesFor(type);
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time == null ? System.currentTimeMillis() : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.repository.QueryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weak ETags for the query, venue and user read endpoints, computed from
+ * in-memory version counters so a conditional GET can be answered with 304
+ * before any SQL runs. Every service write bumps the counter of the
+ * collection it touched; single queries additionally carry their own
+ * updatedAt, cached per id. A query missing from that cache costs one
+ * single-column select, never a load of the entity.
+ */
+@Service
+public class EntityTagService {
+
+    private static final int MAX_TRACKED_QUERIES = 50_000;
+
+    // Seeded from the clock so tags handed out before a restart never match afterwards
+    private final AtomicLong queriesVersion = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong venuesVersion = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong usersVersion = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    private final Map<Long, Long> queryVersions = Collections.synchronizedMap(
+            new LinkedHashMap<Long, Long>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                    return size() > MAX_TRACKED_QUERIES;
+                }
+            });
+
+    public void queryChanged(Query query) {
+        if (query.getId() != null) {
+            queryVersions.put(query.getId(), toVersion(query.getUpdatedAt()));
+        }
+        queriesVersion.incrementAndGet();
+    }
+
+    public void queryDeleted(Long queryId) {
+        queryVersions.remove(queryId);
+        queriesVersion.incrementAndGet();
+    }
+
+    public void venuesChanged() {
+        venuesVersion.incrementAndGet();
+    }
+
+    public void usersChanged() {
+        usersVersion.incrementAndGet();
+    }
+
+    // Query JSON embeds venue and user rows, so their versions are part of every query tag
+    public String queriesTag() {
+        return "W/\"queries-" + queriesVersion.get() + "-" + venuesVersion.get() + "-" + usersVersion.get() + "\"";
+    }
+
+    /**
+     * Tag for a single query, or null when it does not exist. Evicted or not
+     * yet seen ids (after a restart, say) are filled from their updatedAt
+     * column alone, so the check can run before the controller loads anything.
+     */
+    public String queryTag(Long queryId) {
+        Long version = queryVersions.get(queryId);
+        if (version == null) {
+            List<LocalDateTime> updatedAt = queryRepository.findUpdatedAtById(queryId);
+            if (updatedAt.isEmpty()) {
+                return null;
+            }
+            version = toVersion(updatedAt.get(0));
+            queryVersions.put(queryId, version);
+        }
+        return singleQueryTag(queryId, version);
+    }
+
+    public String queryTag(Query query) {
+        long version = toVersion(query.getUpdatedAt());
+        queryVersions.put(query.getId(), version);
+        return singleQueryTag(query.getId(), version);
+    }
+
+    public String venuesTag() {
+        return "W/\"venues-" + venuesVersion.get() + "\"";
+    }
+
+    public String usersTag() {
+        return "W/\"users-" + usersVersion.get() + "\"";
+    }
+
+    // Weak comparison as used for If-None-Match: the W/ prefix is ignored on both sides
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String expected = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || stripWeak(value).equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private String singleQueryTag(Long queryId, long version) {
+        return "W/\"query-" + queryId + "-" + version + "-" + venuesVersion.get() + "-" + usersVersion.get() + "\"";
+    }
+
+    private long toVersion(LocalDateTime updatedAt) {
+        return updatedAt == null ? 0L : updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
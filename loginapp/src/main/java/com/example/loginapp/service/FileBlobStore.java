@@ -0,0 +1,116 @@
+package com.example.loginapp.service;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * One file per blob under blobs/ab/cd/&lt;name&gt;; two levels of 256
+ * directories keep each directory small.
+ */
+public class FileBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public FileBlobStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return Files.exists(pathOf(name));
+    }
+
+    @Override
+    public boolean put(String name, Path file) throws IOException {
+        Path target = pathOf(name);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // Same bytes stored concurrently by another request
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<Blob> open(String name) throws IOException {
+        Path path = pathOf(name);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return Optional.of(new Blob(path, 0, attributes.size(), attributes.lastModifiedTime().toMillis(), null));
+    }
+
+    // Synchronized with deleteIfModifiedBefore; puts need no lock since a new file is always fresh
+    @Override
+    public synchronized boolean touch(String name) throws IOException {
+        try {
+            Files.setLastModifiedTime(pathOf(name), FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean delete(String name) throws IOException {
+        return Files.deleteIfExists(pathOf(name));
+    }
+
+    @Override
+    public synchronized boolean deleteIfModifiedBefore(String name, long cutoffMillis) throws IOException {
+        Path path = pathOf(name);
+        try {
+            if (Files.getLastModifiedTime(path).toMillis() >= cutoffMillis) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void forEach(Consumer<Entry> action) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    action.accept(new Entry(path.getFileName().toString(), attributes.size(),
+                            attributes.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    // Deleted while walking
+                }
+            });
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("store", "files");
+        metrics.put("root", root.toString());
+        return metrics;
+    }
+
+    private Path pathOf(String name) {
+        return root.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+}
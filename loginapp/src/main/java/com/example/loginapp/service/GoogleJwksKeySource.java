@@ -0,0 +1,66 @@
+package com.example.loginapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads Google's RSA signing keys from the JWKS endpoint. One HttpClient is
+ * shared across fetches.
+ */
+@Component
+public class GoogleJwksKeySource implements GoogleKeySource {
+
+    @Value("${app.google.jwks-url:https://www.googleapis.com/oauth2/v3/certs}")
+    private String jwksUrl;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Override
+    public Map<String, RSAPublicKey> fetchKeys() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(jwksUrl))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("JWKS request returned HTTP " + response.statusCode());
+        }
+
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Map<String, RSAPublicKey> keys = new HashMap<>();
+        for (JsonNode key : objectMapper.readTree(response.body()).path("keys")) {
+            if (!"RSA".equals(key.path("kty").asText()) || !key.hasNonNull("kid")) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, decoder.decode(key.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, decoder.decode(key.path("e").asText()));
+            keys.put(key.path("kid").asText(),
+                    (RSAPublicKey) keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+        if (keys.isEmpty()) {
+            throw new RuntimeException("JWKS response contained no RSA keys");
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.loginapp.service;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.Map;
+
+/**
+ * Where GoogleTokenVerifier gets its signing keys from. The default bean reads
+ * Google's published JWKS; tests can supply keys of a local signer instead.
+ */
+public interface GoogleKeySource {
+
+    // Current public keys by key id (the "kid" header of a token)
+    Map<String, RSAPublicKey> fetchKeys() throws Exception;
+}
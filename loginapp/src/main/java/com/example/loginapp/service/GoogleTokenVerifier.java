@@ -0,0 +1,178 @@
+package com.example.loginapp.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.security.interfaces.RSAPublicKey;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies Google ID tokens against a cached key set. Keys are refreshed in
+ * the background every TTL; a token signed with a key id we have not seen
+ * triggers one early refresh (at most once per min-refresh interval), which
+ * is how Google's key rotation gets picked up. Verification happens locally,
+ * so a login costs one RSA signature check and no network round trip.
+ */
+@Service
+public class GoogleTokenVerifier {
+
+    private static final String[] ISSUERS = {"accounts.google.com", "https://accounts.google.com"};
+
+    @Autowired
+    private GoogleKeySource keySource;
+
+    @Value("${app.google.client-id:791771900325-5ijss13doodjul67iun04cofqqtjn37s.apps.googleusercontent.com}")
+    private String clientId;
+
+    @Value("${app.google.jwks.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${app.google.jwks.min-refresh-interval-seconds:30}")
+    private long minRefreshIntervalSeconds;
+
+    @Value("${app.google.clock-skew-seconds:60}")
+    private long clockSkewSeconds;
+
+    // Prebuilt verifiers by key id, replaced as a whole on refresh
+    private volatile Map<String, JWTVerifier> verifiers = new HashMap<>();
+    private volatile long keysLoadedAt = 0L;
+    private volatile long lastRefreshAttempt = 0L;
+
+    private ScheduledExecutorService refresher;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+    private final LongAdder keyRefreshes = new LongAdder();
+    private final LongAdder keyRefreshFailures = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "google-jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshKeys, 0, Math.max(ttlSeconds, 60), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the email of a valid, email-verified token for this client, or
+     * null when the token is rejected for any reason.
+     */
+    public String verify(String credential) {
+        long started = System.nanoTime();
+        try {
+            DecodedJWT unverified = JWT.decode(credential);
+            JWTVerifier verifier = verifierFor(unverified.getKeyId());
+            if (verifier == null) {
+                failures.increment();
+                System.out.println("Google token signed with unknown key id " + unverified.getKeyId());
+                return null;
+            }
+            DecodedJWT token = verifier.verify(unverified);
+            String email = token.getClaim("email").asString();
+            if (email == null || !isTrue(token.getClaim("email_verified"))) {
+                failures.increment();
+                System.out.println("Google token email missing or not verified");
+                return null;
+            }
+            return email;
+        } catch (JWTVerificationException e) {
+            failures.increment();
+            System.out.println("Google token rejected: " + e.getMessage());
+            return null;
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            verifications.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+        }
+    }
+
+    public void refreshKeys() {
+        lastRefreshAttempt = System.nanoTime();
+        try {
+            Map<String, RSAPublicKey> keys = keySource.fetchKeys();
+            Map<String, JWTVerifier> fresh = new HashMap<>();
+            for (Map.Entry<String, RSAPublicKey> entry : keys.entrySet()) {
+                fresh.put(entry.getKey(), JWT.require(Algorithm.RSA256(entry.getValue(), null))
+                        .withIssuer(ISSUERS)
+                        .withAudience(clientId)
+                        .acceptLeeway(clockSkewSeconds)
+                        .build());
+            }
+            verifiers = fresh;
+            keysLoadedAt = System.nanoTime();
+            keyRefreshes.increment();
+            System.out.println("Google signing keys refreshed: " + fresh.keySet());
+        } catch (Exception e) {
+            // Keep verifying with the keys we already have
+            keyRefreshFailures.increment();
+            System.err.println("Google signing key refresh failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = verifications.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("verifications", count);
+        metrics.put("failures", failures.sum());
+        metrics.put("averageMicros", count == 0 ? 0 : totalNanos.sum() / count / 1000);
+        metrics.put("maxMicros", maxNanos.get() / 1000);
+        metrics.put("cachedKeyIds", verifiers.keySet());
+        metrics.put("keyAgeSeconds", keysLoadedAt == 0L ? null
+                : TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - keysLoadedAt));
+        metrics.put("keyRefreshes", keyRefreshes.sum());
+        metrics.put("keyRefreshFailures", keyRefreshFailures.sum());
+        return metrics;
+    }
+
+    private JWTVerifier verifierFor(String keyId) {
+        JWTVerifier verifier = keyId == null ? null : verifiers.get(keyId);
+        boolean stale = keysLoadedAt == 0L
+                || System.nanoTime() - keysLoadedAt > TimeUnit.SECONDS.toNanos(ttlSeconds);
+        if (verifier != null && !stale) {
+            return verifier;
+        }
+        synchronized (this) {
+            verifier = keyId == null ? null : verifiers.get(keyId);
+            boolean throttled = lastRefreshAttempt != 0L
+                    && System.nanoTime() - lastRefreshAttempt < TimeUnit.SECONDS.toNanos(minRefreshIntervalSeconds);
+            if ((verifier == null || stale) && !throttled) {
+                refreshKeys();
+                verifier = keyId == null ? null : verifiers.get(keyId);
+            }
+        }
+        return verifier;
+    }
+
+    // Google has sent email_verified both as a JSON boolean and as a string
+    private boolean isTrue(Claim claim) {
+        Boolean value = claim.asBoolean();
+        return value != null ? value : "true".equalsIgnoreCase(claim.asString());
+    }
+}
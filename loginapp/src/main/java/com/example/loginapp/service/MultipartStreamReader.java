@@ -0,0 +1,277 @@
+package com.example.loginapp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a multipart/form-data body one part at a time straight off the
+ * request stream. Each part's content is an InputStream that ends at the
+ * next boundary, so a file can be copied to storage while it arrives
+ * instead of being spooled by the container first.
+ *
+ * Not thread-safe; a part's stream is only valid until the next call to
+ * {@link #nextPart()}.
+ */
+public class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream current;
+
+    public MultipartStreamReader(InputStream in, String boundary) {
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 200) {
+            throw new IllegalArgumentException("Invalid multipart boundary");
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // The first boundary has no CRLF in front of it; pretend it does so one search handles every boundary
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    /**
+     * Advances to the next part, skipping whatever is left of the current
+     * one, or returns null after the closing boundary.
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (current == null) {
+            skipPreamble();
+        } else {
+            current.drain();
+        }
+        if (!fill(2)) {
+            throw new IOException("Unexpected end of multipart body");
+        }
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        readLine(); // rest of the boundary line, normally just CRLF
+        Map<String, String> headers = readHeaders();
+        current = new PartInputStream();
+        return new Part(headers, current);
+    }
+
+    private void skipPreamble() throws IOException {
+        PartInputStream preamble = new PartInputStream();
+        preamble.drain();
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        int total = 0;
+        while (true) {
+            String line = readLine();
+            total += line.length() + 2;
+            if (total > MAX_HEADER_BYTES) {
+                throw new IOException("Multipart part headers too large");
+            }
+            if (line.isEmpty()) {
+                return headers;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        while (true) {
+            for (int i = pos; i + 1 < limit; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, pos, i - pos, StandardCharsets.UTF_8);
+                    pos = i + 2;
+                    return line;
+                }
+            }
+            if (limit - pos >= MAX_HEADER_BYTES) {
+                throw new IOException("Multipart header line too long");
+            }
+            if (!fill(limit - pos + 1)) {
+                throw new IOException("Unexpected end of multipart headers");
+            }
+        }
+    }
+
+    // Makes at least `needed` unread bytes available unless the stream ends first
+    private boolean fill(int needed) throws IOException {
+        if (limit - pos >= needed) {
+            return true;
+        }
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit - pos < needed && !eof) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+        return limit - pos >= needed;
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        int last = limit - delimiter.length;
+        outer:
+        for (int i = pos; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private class PartInputStream extends InputStream {
+
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (ended) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            while (true) {
+                int found = indexOfDelimiter();
+                if (found == pos) {
+                    pos += delimiter.length;
+                    ended = true;
+                    return -1;
+                }
+                // Without a delimiter in view, the last delimiter-1 bytes may still be the start of one
+                int available = found >= 0 ? found - pos : limit - pos - (delimiter.length - 1);
+                if (available > 0) {
+                    int count = Math.min(length, available);
+                    System.arraycopy(buffer, pos, target, offset, count);
+                    pos += count;
+                    return count;
+                }
+                if (eof) {
+                    throw new IOException("Unexpected end of multipart body");
+                }
+                fill(limit - pos + 1);
+            }
+        }
+
+        private void drain() throws IOException {
+            byte[] skip = new byte[8192];
+            while (read(skip, 0, skip.length) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    /**
+     * One form field or file. {@link #getFilename()} is non-null for file
+     * inputs, including an empty one the user left unset.
+     */
+    public static class Part {
+        private final Map<String, String> headers;
+        private final InputStream content;
+        private final String name;
+        private final String filename;
+
+        private Part(Map<String, String> headers, InputStream content) {
+            this.headers = headers;
+            this.content = content;
+            String disposition = headers.getOrDefault("content-disposition", "");
+            this.name = parameter(disposition, "name");
+            this.filename = parameter(disposition, "filename");
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public boolean isFile() {
+            return filename != null;
+        }
+
+        public String getContentType() {
+            return headers.get("content-type");
+        }
+
+        public InputStream getContent() {
+            return content;
+        }
+
+        // form-data; name="image"; filename="photo.jpg"
+        static String parameter(String header, String key) {
+            int index = 0;
+            while (index < header.length()) {
+                int semicolon = header.indexOf(';', index);
+                if (semicolon < 0) {
+                    return null;
+                }
+                int equals = header.indexOf('=', semicolon);
+                if (equals < 0) {
+                    return null;
+                }
+                String name = header.substring(semicolon + 1, equals).trim();
+                String value;
+                int end;
+                if (equals + 1 < header.length() && header.charAt(equals + 1) == '"') {
+                    StringBuilder quoted = new StringBuilder();
+                    end = equals + 2;
+                    // Browsers send a quote inside a filename as %22, so the next quote ends the value
+                    while (end < header.length() && header.charAt(end) != '"') {
+                        quoted.append(header.charAt(end));
+                        end++;
+                    }
+                    value = quoted.toString();
+                    end++;
+                } else {
+                    end = header.indexOf(';', equals);
+                    end = end < 0 ? header.length() : end;
+                    value = header.substring(equals + 1, end).trim();
+                }
+                if (name.equalsIgnoreCase(key)) {
+                    return value;
+                }
+                index = end;
+            }
+            return null;
+        }
+    }
+}
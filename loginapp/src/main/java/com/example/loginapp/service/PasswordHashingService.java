@@ -0,0 +1,152 @@
+package com.example.loginapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BCrypt hashing with a configurable cost. Password checks run on a small
+ * dedicated pool with a bounded queue, so a burst of logins can only use that
+ * many cores; once the queue is full, callers get a Saturated exception
+ * straight away. Checks are asynchronous, so a login waiting for its turn
+ * does not hold a request thread either.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Value("${app.auth.bcrypt-cost:10}")
+    private int bcryptCost;
+
+    // 0 means one thread per available core
+    @Value("${app.auth.verify.threads:0}")
+    private int threads;
+
+    @Value("${app.auth.verify.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.auth.verify.timeout-ms:5000}")
+    private long timeoutMillis;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        encoder = new BCryptPasswordEncoder(bcryptCost);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        System.out.println("Password verification pool: " + poolSize + " threads, queue " + queueCapacity
+                + ", BCrypt cost " + bcryptCost);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public String encode(String rawPassword) {
+        return encoder.encode(rawPassword);
+    }
+
+    /**
+     * Checks a password against a BCrypt hash on the verification pool. The
+     * caller's thread is not held: the future completes with the answer, or
+     * fails with Saturated when the pool has no room or the check does not
+     * finish within the timeout.
+     */
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String encodedPassword) {
+        CompletableFuture<Boolean> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                long started = System.nanoTime();
+                try {
+                    return encoder.matches(rawPassword, encodedPassword);
+                } finally {
+                    totalNanos.add(System.nanoTime() - started);
+                    verifications.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            return CompletableFuture.failedFuture(new Saturated("Password verification queue is full"));
+        }
+        return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).exceptionallyCompose(e -> {
+            // A check still waiting in the queue is skipped once its future has timed out
+            if (e instanceof TimeoutException) {
+                rejections.increment();
+                return CompletableFuture.failedFuture(new Saturated("Password verification timed out"));
+            }
+            return CompletableFuture.failedFuture(e);
+        });
+    }
+
+    // True when the hash was made with a different cost than the configured one
+    public boolean needsRehash(String encodedPassword) {
+        Integer cost = costOf(encodedPassword);
+        return cost != null && cost != bcryptCost;
+    }
+
+    public int getBcryptCost() {
+        return bcryptCost;
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = verifications.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("bcryptCost", bcryptCost);
+        metrics.put("threads", executor.getMaximumPoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("verifications", count);
+        metrics.put("rejections", rejections.sum());
+        metrics.put("averageMillis", count == 0 ? 0 : totalNanos.sum() / count / 1_000_000);
+        return metrics;
+    }
+
+    // "$2a$10$..." -> 10
+    static Integer costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return null;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Signals the caller to answer 503 and let the client retry shortly
+    public static class Saturated extends RuntimeException {
+        public Saturated(String message) {
+            super(message);
+        }
+    }
+}
@@ -15,6 +15,9 @@ public class PasswordUtilityService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityTagService entityTagService;
+
     private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     public void convertAllPasswordsToPlainText() {
@@ -52,6 +55,8 @@ public class PasswordUtilityService {
             }
         }
         
+        entityTagService.usersChanged();
+
         System.out.println("\n=== FINAL USER LIST ===");
         List<User> updatedUsers = userRepository.findAll();
         for (User user : updatedUsers) {
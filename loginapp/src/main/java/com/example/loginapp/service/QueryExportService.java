@@ -0,0 +1,139 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.QueryExportRow;
+import com.example.loginapp.model.QueryHistoryExportRow;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.QueryStatusHistoryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the queries and status history tables row by row as NDJSON or CSV.
+ * Rows are flat DTOs streamed from a database cursor, so nothing is kept in
+ * the persistence context and memory use does not grow with the table.
+ */
+@Service
+public class QueryExportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String[] QUERY_COLUMNS = {
+        "id", "title", "description", "category", "priority", "status", "venueId", "venueName",
+        "raisedByUserId", "raisedByUserName", "raisedByUserEmail", "assignedToWorkerId", "assignedToWorkerName",
+        "completedByUserId", "completedByUserName", "imagePath", "completionNotes", "completionImagePath",
+        "createdAt", "updatedAt", "resolvedAt"
+    };
+
+    private static final String[] HISTORY_COLUMNS = {
+        "id", "queryId", "oldStatus", "newStatus", "updatedByUserId", "updatedByUserName",
+        "comment", "completionImagePath", "createdAt"
+    };
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private QueryStatusHistoryRepository queryStatusHistoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_NDJSON.equalsIgnoreCase(format) || FORMAT_CSV.equalsIgnoreCase(format);
+    }
+
+    @Transactional(readOnly = true)
+    public long exportQueries(OutputStream out, String format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        boolean csv = FORMAT_CSV.equalsIgnoreCase(format);
+        if (csv) {
+            writeCsvLine(writer, (Object[]) QUERY_COLUMNS);
+        }
+
+        long rows = 0;
+        try (Stream<QueryExportRow> stream = queryRepository.streamExportRows()) {
+            Iterator<QueryExportRow> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                QueryExportRow row = iterator.next();
+                if (csv) {
+                    writeCsvLine(writer, row.getId(), row.getTitle(), row.getDescription(), row.getCategory(),
+                            row.getPriority(), row.getStatus(), row.getVenueId(), row.getVenueName(),
+                            row.getRaisedByUserId(), row.getRaisedByUserName(), row.getRaisedByUserEmail(),
+                            row.getAssignedToWorkerId(), row.getAssignedToWorkerName(),
+                            row.getCompletedByUserId(), row.getCompletedByUserName(), row.getImagePath(),
+                            row.getCompletionNotes(), row.getCompletionImagePath(),
+                            row.getCreatedAt(), row.getUpdatedAt(), row.getResolvedAt());
+                } else {
+                    writeJsonLine(writer, row);
+                }
+                rows++;
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportHistory(OutputStream out, String format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        boolean csv = FORMAT_CSV.equalsIgnoreCase(format);
+        if (csv) {
+            writeCsvLine(writer, (Object[]) HISTORY_COLUMNS);
+        }
+
+        long rows = 0;
+        try (Stream<QueryHistoryExportRow> stream = queryStatusHistoryRepository.streamExportRows()) {
+            Iterator<QueryHistoryExportRow> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                QueryHistoryExportRow row = iterator.next();
+                if (csv) {
+                    writeCsvLine(writer, row.getId(), row.getQueryId(), row.getOldStatus(), row.getNewStatus(),
+                            row.getUpdatedByUserId(), row.getUpdatedByUserName(), row.getComment(),
+                            row.getCompletionImagePath(), row.getCreatedAt());
+                } else {
+                    writeJsonLine(writer, row);
+                }
+                rows++;
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private void writeJsonLine(Writer writer, Object row) throws IOException {
+        writer.write(objectMapper.writeValueAsString(row));
+        writer.write('\n');
+    }
+
+    private void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.User;
+import com.example.loginapp.model.Venue;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.UserRepository;
+import com.example.loginapp.repository.VenueRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk import of queries from NDJSON or CSV (same columns as the export).
+ * Rows are inserted in chunks, each chunk in its own transaction and flushed
+ * as one JDBC batch; the persistence context is cleared between chunks so
+ * memory stays flat. Rows that fail validation are reported, not imported.
+ */
+@Service
+public class QueryImportService {
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private QueryService queryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.import.batch-size:500}")
+    private int defaultBatchSize;
+
+    @Value("${app.import.max-batch-size:5000}")
+    private int maxBatchSize;
+
+    public Map<String, Object> importQueries(InputStream in, String format, Integer batchSize) throws IOException {
+        int chunkSize = batchSize == null || batchSize <= 0 ? defaultBatchSize : Math.min(batchSize, maxBatchSize);
+        boolean csv = QueryExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        ImportRun run = new ImportRun();
+        long started = System.nanoTime();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> header = null;
+            List<Query> chunk = new ArrayList<>(chunkSize);
+            List<Long> chunkLines = new ArrayList<>(chunkSize);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                long rowLine = lineNumber;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                Map<String, String> fields;
+                try {
+                    if (csv) {
+                        // Quoted fields may span several physical lines
+                        while (hasOpenQuote(line)) {
+                            String next = reader.readLine();
+                            if (next == null) {
+                                break;
+                            }
+                            lineNumber++;
+                            line = line + "\n" + next;
+                        }
+                        List<String> values = parseCsvLine(line);
+                        if (header == null) {
+                            header = values;
+                            continue;
+                        }
+                        fields = new HashMap<>();
+                        for (int i = 0; i < header.size() && i < values.size(); i++) {
+                            fields.put(header.get(i), values.get(i));
+                        }
+                    } else {
+                        fields = readJsonLine(line);
+                    }
+                    chunk.add(toQuery(fields, run));
+                    chunkLines.add(rowLine);
+                } catch (Exception e) {
+                    run.reject(rowLine, e.getMessage());
+                    continue;
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    flushChunk(chunk, chunkLines, run);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                flushChunk(chunk, chunkLines, run);
+            }
+        }
+
+        long elapsedMillis = Math.max((System.nanoTime() - started) / 1_000_000, 1);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("imported", run.imported);
+        report.put("rejected", run.rejected);
+        report.put("batches", run.batches);
+        report.put("batchSize", chunkSize);
+        report.put("elapsedMillis", elapsedMillis);
+        report.put("rowsPerSecond", run.imported * 1000 / elapsedMillis);
+        report.put("rejections", run.rejections);
+        System.out.println("Query import finished: " + run.imported + " imported, " + run.rejected
+                + " rejected in " + elapsedMillis + " ms");
+        return report;
+    }
+
+    private void flushChunk(List<Query> chunk, List<Long> chunkLines, ImportRun run) {
+        // Imported queries are auto-assigned like any other new query
+        List<AssignmentService.Reservation> reservations = queryService.reserveWorkers(chunk);
+        try {
+            List<Query> saved = transactionTemplate.execute(status -> {
+                List<Query> persisted = queryRepository.saveAll(chunk);
+                entityManager.flush();
+                entityManager.clear();
+                return persisted;
+            });
+            run.imported += saved.size();
+            run.batches++;
+            queryService.onQueriesImported(saved);
+        } catch (Exception e) {
+            // The whole chunk rolled back, report each of its rows
+            for (Long line : chunkLines) {
+                run.reject(line, "Batch failed: " + e.getMessage());
+            }
+        } finally {
+            queryService.releaseWorkers(reservations);
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private Query toQuery(Map<String, String> fields, ImportRun run) {
+        String title = text(fields, "title");
+        String description = text(fields, "description");
+        if (title == null || description == null) {
+            throw new IllegalArgumentException("title and description are required");
+        }
+        if (title.length() > 200) {
+            throw new IllegalArgumentException("title longer than 200 characters");
+        }
+        String category = text(fields, "category");
+        if (category == null) {
+            throw new IllegalArgumentException("category is required");
+        }
+
+        Query.QueryBuilder builder = Query.builder()
+                .title(title)
+                .description(description)
+                .category(Query.Category.valueOf(category.toUpperCase()));
+
+        String priority = text(fields, "priority");
+        if (priority != null) {
+            builder.priority(Query.Priority.valueOf(priority.toUpperCase()));
+        }
+        String status = text(fields, "status");
+        if (status != null) {
+            builder.status(Query.Status.valueOf(status.toUpperCase()));
+        }
+
+        Long venueId = number(fields, "venueId");
+        if (venueId != null) {
+            if (!run.venueExists.computeIfAbsent(venueId, id -> venueRepository.existsById(id))) {
+                throw new IllegalArgumentException("venue " + venueId + " not found");
+            }
+            builder.venue(Venue.builder().id(venueId).build());
+        }
+        builder.raisedByUser(userReference(number(fields, "raisedByUserId"), run));
+        builder.assignedToWorker(userReference(number(fields, "assignedToWorkerId"), run));
+        builder.completedByUser(userReference(number(fields, "completedByUserId"), run));
+
+        builder.completionNotes(text(fields, "completionNotes"));
+        builder.imagePath(text(fields, "imagePath"));
+        builder.completionImagePath(text(fields, "completionImagePath"));
+        builder.createdAt(timestamp(fields, "createdAt"));
+        builder.updatedAt(timestamp(fields, "updatedAt"));
+        builder.resolvedAt(timestamp(fields, "resolvedAt"));
+        return builder.build();
+    }
+
+    // Id-only stand-in; the foreign key is all Hibernate needs to insert the row
+    private User userReference(Long userId, ImportRun run) {
+        if (userId == null) {
+            return null;
+        }
+        if (!run.userExists.computeIfAbsent(userId, id -> userRepository.existsById(id))) {
+            throw new IllegalArgumentException("user " + userId + " not found");
+        }
+        return User.builder().id(userId).build();
+    }
+
+    private Map<String, String> readJsonLine(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("line is not a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<String, JsonNode> entry : node.properties()) {
+            if (!entry.getValue().isNull()) {
+                fields.put(entry.getKey(), entry.getValue().asText());
+            }
+        }
+        return fields;
+    }
+
+    private String text(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private Long number(Map<String, String> fields, String name) {
+        String value = text(fields, name);
+        return value == null ? null : Long.valueOf(value.trim());
+    }
+
+    private LocalDateTime timestamp(Map<String, String> fields, String name) {
+        String value = text(fields, name);
+        return value == null ? null : LocalDateTime.parse(value.trim());
+    }
+
+    private boolean hasOpenQuote(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 != 0;
+    }
+
+    private List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else if (c != '\r') {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static class ImportRun {
+        private long imported;
+        private long rejected;
+        private long batches;
+        private final List<Map<String, Object>> rejections = new ArrayList<>();
+        private final Map<Long, Boolean> venueExists = new HashMap<>();
+        private final Map<Long, Boolean> userExists = new HashMap<>();
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                Map<String, Object> rejection = new LinkedHashMap<>();
+                rejection.put("line", line);
+                rejection.put("reason", reason);
+                rejections.add(rejection);
+            }
+        }
+    }
+}
@@ -0,0 +1,601 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QueryRollup;
+import com.example.loginapp.model.QuerySnapshot;
+import com.example.loginapp.model.Venue;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.QueryRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Hourly and daily query rollups for the analytics endpoint. QueryService
+ * reports every write here; the resulting deltas (created, resolved, change
+ * in open queries) are summed in memory per bucket and key and added to the
+ * query_rollups rows every few seconds by one background thread, so a write
+ * costs a map update and a busy bucket is one UPDATE per flush.
+ *
+ * A backfill rebuilds every row from the queries table, attributing each
+ * query's whole history to its current category, priority and venue. It runs
+ * at startup when the table is empty and on request after that, and replaces
+ * the rows in one transaction. Writes made while it runs to queries it will
+ * scan are held back with the version they wrote, and afterwards kept only if
+ * the scan read an older version, so none is counted by both or by neither.
+ */
+@Service
+public class QueryRollupService {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final int BACKFILL_CHUNK = 1000;
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private QueryRollupRepository queryRollupRepository;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.rollups.flush-interval-seconds:10}")
+    private long flushIntervalSeconds;
+
+    // Most buckets one analytics request may span, e.g. 2000 hours is about 83 days
+    @Value("${app.rollups.max-buckets:2000}")
+    private int maxBuckets;
+
+    private final Map<Key, Delta> pending = new ConcurrentHashMap<>();
+    // Flushes and backfills never overlap
+    private final Object writeLock = new Object();
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+    // During a backfill, writes to ids up to backfillLimit are held in backfillWrites; -1 when idle.
+    // record() takes the read lock, starting and ending a backfill the write lock
+    private final ReentrantReadWriteLock backfillLock = new ReentrantReadWriteLock();
+    private volatile long backfillLimit = -1;
+    private final Map<Long, List<HeldWrite>> backfillWrites = new ConcurrentHashMap<>();
+    private ScheduledExecutorService writer;
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder rowsUpdated = new LongAdder();
+    private final LongAdder rowsInserted = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private volatile Map<String, Object> lastBackfill = Map.of();
+
+    @PostConstruct
+    public void start() {
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-rollups");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush, flushIntervalSeconds, Math.max(flushIntervalSeconds, 1), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        writer.shutdownNow();
+        flush();
+    }
+
+    // Fills an empty rollup table once startup seeding has written its queries
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (queryRollupRepository.count() == 0 && queryRepository.count() > 0) {
+            triggerBackfill();
+        }
+    }
+
+    // Moves one query's counts from what it was to what it is now; null means created / deleted
+    public void record(QuerySnapshot before, Query after) {
+        Long id = after != null ? after.getId() : before != null ? before.getId() : null;
+        backfillLock.readLock().lock();
+        try {
+            if (id == null || id > backfillLimit) {
+                addChange(before, after, pending);
+                return;
+            }
+            // The backfill scan may or may not see this write; which one is settled once it is done
+            Map<Key, Delta> deltas = new HashMap<>();
+            addChange(before, after, deltas);
+            HeldWrite write = new HeldWrite(before == null, after == null,
+                    after != null && after.getVersion() != null ? after.getVersion() : 0L, deltas);
+            backfillWrites.compute(id, (key, writes) -> {
+                List<HeldWrite> list = writes != null ? writes : new ArrayList<>();
+                list.add(write);
+                return list;
+            });
+        } finally {
+            backfillLock.readLock().unlock();
+        }
+    }
+
+    // The deltas one write makes, added to target
+    private static void addChange(QuerySnapshot before, Query after, Map<Key, Delta> target) {
+        LocalDateTime now = LocalDateTime.now();
+        if (before == null) {
+            if (after != null) {
+                addLifetime(after.getCategory(), after.getPriority(), venueIdOf(after), after.getStatus(),
+                        after.getCreatedAt(), after.getResolvedAt(), after.getUpdatedAt(), target);
+            }
+            return;
+        }
+        Key.Fields was = new Key.Fields(before.getCategory(), before.getPriority(), venueIdOf(before.getVenueId()));
+        boolean wasOpen = isOpen(before.getStatus());
+        if (after == null) {
+            if (wasOpen) {
+                add(target, was, now, 0, 0, -1);
+            }
+            return;
+        }
+        Key.Fields is = new Key.Fields(after.getCategory(), after.getPriority(), venueIdOf(after));
+        boolean open = isOpen(after.getStatus());
+        if (wasOpen && !open) {
+            add(target, was, now, 0, 0, -1);
+            add(target, is, now, 0, 1, 0);
+        } else if (!wasOpen && open) {
+            add(target, is, now, 0, 0, 1);
+        } else if (open && !was.equals(is)) {
+            add(target, was, now, 0, 0, -1);
+            add(target, is, now, 0, 0, 1);
+        }
+    }
+
+    // Adds everything pending to the table; a failed flush puts its deltas back for the next one
+    public void flush() {
+        synchronized (writeLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<Key, Delta> batch = new HashMap<>();
+            for (Key key : new ArrayList<>(pending.keySet())) {
+                Delta delta = pending.remove(key);
+                if (delta != null && !delta.isEmpty()) {
+                    batch.put(key, delta);
+                }
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (Map.Entry<Key, Delta> entry : batch.entrySet()) {
+                        write(entry.getKey(), entry.getValue());
+                    }
+                });
+                flushes.increment();
+            } catch (Exception e) {
+                flushFailures.increment();
+                batch.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+                System.err.println("Query rollup flush failed, will retry: " + e.getMessage());
+            }
+        }
+    }
+
+    // Starts a backfill on the rollup thread; false when one is already running
+    public boolean triggerBackfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            return false;
+        }
+        writer.execute(() -> {
+            try {
+                backfill();
+            } finally {
+                backfilling.set(false);
+            }
+        });
+        return true;
+    }
+
+    // Runs on the rollup thread; package-private so tests can run it in line
+    void backfill() {
+        long started = System.currentTimeMillis();
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", LocalDateTime.now());
+        synchronized (writeLock) {
+            // Whatever is pending is already in the rows read below; it is only needed again if the rebuild fails
+            Map<Key, Delta> setAside = new HashMap<>();
+            ScannedVersions scanned = new ScannedVersions();
+            boolean rebuilt = false;
+            try {
+                Long maxId = queryRepository.findMaxId();
+                startBackfill(maxId != null ? maxId : 0, setAside);
+                Map<Key, Delta> rows = scan(scanned);
+                transactionTemplate.executeWithoutResult(status -> replaceRows(rows));
+                rowsInserted.add(rows.size());
+                rebuilt = true;
+                run.put("queries", scanned.size());
+                run.put("rows", rows.size());
+                System.out.println("Query rollups rebuilt from " + scanned.size() + " queries into " + rows.size() + " rows");
+            } catch (Exception e) {
+                run.put("error", e.getMessage());
+                System.err.println("Query rollup backfill failed: " + e.getMessage());
+            } finally {
+                Map<Long, List<HeldWrite>> writes = endBackfill();
+                run.put("concurrentWritesKept", settle(writes, rebuilt ? scanned : null));
+                if (!rebuilt) {
+                    // The old rows are still there, so everything they were missing still has to be added
+                    setAside.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+                }
+            }
+        }
+        run.put("durationMs", System.currentTimeMillis() - started);
+        lastBackfill = run;
+    }
+
+    private void startBackfill(long limit, Map<Key, Delta> setAside) {
+        backfillLock.writeLock().lock();
+        try {
+            backfillLimit = limit;
+            for (Key key : new ArrayList<>(pending.keySet())) {
+                Delta delta = pending.remove(key);
+                if (delta != null) {
+                    setAside.merge(key, delta, Delta::plus);
+                }
+            }
+        } finally {
+            backfillLock.writeLock().unlock();
+        }
+    }
+
+    private Map<Long, List<HeldWrite>> endBackfill() {
+        backfillLock.writeLock().lock();
+        try {
+            backfillLimit = -1;
+            Map<Long, List<HeldWrite>> writes = new HashMap<>(backfillWrites);
+            backfillWrites.clear();
+            return writes;
+        } finally {
+            backfillLock.writeLock().unlock();
+        }
+    }
+
+    // Every query up to the backfill limit, counted over its life, with the version each was read at
+    private Map<Key, Delta> scan(ScannedVersions scanned) {
+        Map<Key, Delta> rebuilt = new HashMap<>();
+        PageRequest chunk = PageRequest.of(0, BACKFILL_CHUNK);
+        List<Object[]> rows;
+        long afterId = 0;
+        do {
+            rows = queryRepository.findRollupRowsAfter(afterId, chunk);
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                if (afterId > backfillLimit) {
+                    // Created after the backfill started; record() has counted it
+                    rows = List.of();
+                    break;
+                }
+                addLifetime((Query.Category) row[1], (Query.Priority) row[2], venueIdOf((Long) row[3]),
+                        (Query.Status) row[4], (LocalDateTime) row[5], (LocalDateTime) row[6],
+                        (LocalDateTime) row[7], rebuilt);
+                scanned.add(afterId, (Long) row[8]);
+            }
+        } while (rows.size() == BACKFILL_CHUNK);
+        return rebuilt;
+    }
+
+    // One transaction, so a failed rebuild leaves the old rows; flushed and cleared per chunk to bound memory
+    private void replaceRows(Map<Key, Delta> rows) {
+        queryRollupRepository.deleteAllInBatch();
+        List<QueryRollup> batch = new ArrayList<>(BACKFILL_CHUNK);
+        for (Map.Entry<Key, Delta> entry : rows.entrySet()) {
+            batch.add(toRow(entry.getKey(), entry.getValue()));
+            if (batch.size() == BACKFILL_CHUNK) {
+                insert(batch);
+            }
+        }
+        insert(batch);
+    }
+
+    private void insert(List<QueryRollup> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        queryRollupRepository.saveAll(batch);
+        entityManager.flush();
+        entityManager.clear();
+        batch.clear();
+    }
+
+    /**
+     * Moves the writes held during a backfill into pending. After a rebuild, a
+     * write to a query the scan read counts only if it wrote a newer version
+     * than the scan saw, or deleted the row; the writes to a query the scan
+     * never saw count only if they start with its creation, since otherwise it
+     * was deleted first. Without a rebuild (scanned is null) they all count.
+     * Returns how many were kept.
+     */
+    private int settle(Map<Long, List<HeldWrite>> writes, ScannedVersions scanned) {
+        int kept = 0;
+        for (Map.Entry<Long, List<HeldWrite>> entry : writes.entrySet()) {
+            long version = scanned != null ? scanned.find(entry.getKey()) : -1;
+            boolean unseenButCreated = !entry.getValue().isEmpty() && entry.getValue().get(0).created;
+            for (HeldWrite write : entry.getValue()) {
+                boolean keep = scanned == null
+                        || (version < 0 ? unseenButCreated : write.deleted || write.version > version);
+                if (keep) {
+                    write.deltas.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+                    kept++;
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Created, resolved and open counts per bucket in [from, to), summed per
+     * group: "category", "priority", "venue", "building" or "none" for one
+     * overall series. Read from the rollup rows only; open counts start from
+     * the sum of every open delta before the range.
+     */
+    public Map<String, Object> getSeries(QueryRollup.Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                         String groupBy) {
+        LocalDateTime start = granularity.truncate(from);
+        LocalDateTime end = granularity.truncate(to);
+        if (end.isBefore(to)) {
+            end = granularity.next(end);
+        }
+        List<LocalDateTime> buckets = new ArrayList<>();
+        for (LocalDateTime bucket = start; bucket.isBefore(end); bucket = granularity.next(bucket)) {
+            if (buckets.size() == maxBuckets) {
+                throw new IllegalArgumentException("Range spans more than " + maxBuckets + " " + granularity + " buckets");
+            }
+            buckets.add(bucket);
+        }
+        Function<Key.Fields, String> group = grouping(groupBy);
+
+        // Open counts as of the first bucket: whole days before it, then the hours of its own day
+        Map<String, Long> open = new TreeMap<>();
+        LocalDateTime dayStart = QueryRollup.Granularity.DAY.truncate(start);
+        addOpen(open, group, queryRollupRepository.sumOpenDeltaBetween(QueryRollup.Granularity.DAY, EPOCH, dayStart));
+        if (dayStart.isBefore(start)) {
+            addOpen(open, group, queryRollupRepository.sumOpenDeltaBetween(QueryRollup.Granularity.HOUR, dayStart, start));
+        }
+
+        Map<String, Map<LocalDateTime, long[]>> byGroup = new TreeMap<>();
+        for (QueryRollup row : queryRollupRepository.findRange(granularity, start, end)) {
+            String name = group.apply(new Key.Fields(row.getCategory(), row.getPriority(), row.getVenueId()));
+            long[] counts = byGroup.computeIfAbsent(name, g -> new HashMap<>())
+                    .computeIfAbsent(row.getBucketStart(), b -> new long[3]);
+            counts[0] += row.getCreated();
+            counts[1] += row.getResolved();
+            counts[2] += row.getOpenDelta();
+        }
+        for (String name : open.keySet()) {
+            byGroup.computeIfAbsent(name, g -> new HashMap<>());
+        }
+
+        Map<String, Object> series = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<LocalDateTime, long[]>> entry : byGroup.entrySet()) {
+            long openCount = open.getOrDefault(entry.getKey(), 0L);
+            List<Map<String, Object>> points = new ArrayList<>(buckets.size());
+            for (LocalDateTime bucket : buckets) {
+                long[] counts = entry.getValue().getOrDefault(bucket, new long[3]);
+                openCount += counts[2];
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("bucketStart", bucket);
+                point.put("created", counts[0]);
+                point.put("resolved", counts[1]);
+                point.put("open", openCount);
+                points.add(point);
+            }
+            series.put(entry.getKey(), points);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("granularity", granularity);
+        response.put("from", start);
+        response.put("to", end);
+        response.put("groupBy", groupBy);
+        response.put("backfillInProgress", backfilling.get());
+        response.put("series", series);
+        return response;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pendingBuckets", pending.size());
+        metrics.put("flushes", flushes.sum());
+        metrics.put("rowsUpdated", rowsUpdated.sum());
+        metrics.put("rowsInserted", rowsInserted.sum());
+        metrics.put("flushFailures", flushFailures.sum());
+        metrics.put("backfillInProgress", backfilling.get());
+        metrics.put("lastBackfill", lastBackfill);
+        return metrics;
+    }
+
+    private void write(Key key, Delta delta) {
+        int updated = queryRollupRepository.addToBucket(key.getGranularity(), key.getBucketStart(),
+                key.getFields().getCategory(), key.getFields().getPriority(), key.getFields().getVenueId(),
+                delta.created, delta.resolved, delta.openDelta);
+        if (updated > 0) {
+            rowsUpdated.increment();
+        } else {
+            queryRollupRepository.save(toRow(key, delta));
+            rowsInserted.increment();
+        }
+    }
+
+    // The counts a query contributes over its life so far, as a backfill sees it
+    private static void addLifetime(Query.Category category, Query.Priority priority, Long venueId, Query.Status status,
+                                    LocalDateTime createdAt, LocalDateTime resolvedAt, LocalDateTime updatedAt,
+                                    Map<Key, Delta> target) {
+        Key.Fields fields = new Key.Fields(category, priority, venueId);
+        LocalDateTime created = createdAt != null ? createdAt : LocalDateTime.now();
+        add(target, fields, created, 1, 0, 1);
+        if (!isOpen(status)) {
+            LocalDateTime closed = resolvedAt != null ? resolvedAt : updatedAt != null ? updatedAt : created;
+            add(target, fields, closed, 0, 1, -1);
+        }
+    }
+
+    private static void add(Map<Key, Delta> target, Key.Fields fields, LocalDateTime at,
+                            long created, long resolved, long openDelta) {
+        if (fields.getCategory() == null || fields.getPriority() == null) {
+            return;
+        }
+        for (QueryRollup.Granularity granularity : QueryRollup.Granularity.values()) {
+            target.compute(new Key(granularity, granularity.truncate(at), fields), (key, delta) ->
+                    (delta == null ? new Delta() : delta).plus(created, resolved, openDelta));
+        }
+    }
+
+    private void addOpen(Map<String, Long> open, Function<Key.Fields, String> group, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            String name = group.apply(new Key.Fields((Query.Category) row[0], (Query.Priority) row[1], (Long) row[2]));
+            open.merge(name, ((Number) row[3]).longValue(), Long::sum);
+        }
+    }
+
+    private Function<Key.Fields, String> grouping(String groupBy) {
+        switch (groupBy == null ? "none" : groupBy.toLowerCase()) {
+            case "none":
+                return fields -> "all";
+            case "category":
+                return fields -> fields.getCategory().name();
+            case "priority":
+                return fields -> fields.getPriority().name();
+            case "venue":
+                return fields -> venueService.getVenueById(fields.getVenueId()).map(Venue::getName).orElse("No venue");
+            case "building":
+                return fields -> venueService.getVenueById(fields.getVenueId())
+                        .map(Venue::getBuilding).orElse("Unknown");
+            default:
+                throw new IllegalArgumentException("Unknown groupBy: " + groupBy);
+        }
+    }
+
+    private static QueryRollup toRow(Key key, Delta delta) {
+        return QueryRollup.builder()
+                .granularity(key.getGranularity())
+                .bucketStart(key.getBucketStart())
+                .category(key.getFields().getCategory())
+                .priority(key.getFields().getPriority())
+                .venueId(key.getFields().getVenueId())
+                .created(delta.created)
+                .resolved(delta.resolved)
+                .openDelta(delta.openDelta)
+                .build();
+    }
+
+    private static boolean isOpen(Query.Status status) {
+        return status != Query.Status.RESOLVED && status != Query.Status.CLOSED;
+    }
+
+    private static long venueIdOf(Query query) {
+        Long venueId = query.getVenue() != null ? query.getVenue().getId() : null;
+        return venueIdOf(venueId);
+    }
+
+    private static long venueIdOf(Long venueId) {
+        return venueId != null ? venueId : QueryRollup.NO_VENUE;
+    }
+
+    @Data
+    private static class Key {
+        private final QueryRollup.Granularity granularity;
+        private final LocalDateTime bucketStart;
+        private final Fields fields;
+
+        @Data
+        private static class Fields {
+            private final Query.Category category;
+            private final Query.Priority priority;
+            private final Long venueId;
+        }
+    }
+
+    // One write record() held back during a backfill, with the version of the row it wrote
+    private static class HeldWrite {
+        final boolean created;
+        final boolean deleted;
+        final long version;
+        final Map<Key, Delta> deltas;
+
+        HeldWrite(boolean created, boolean deleted, long version, Map<Key, Delta> deltas) {
+            this.created = created;
+            this.deleted = deleted;
+            this.version = version;
+            this.deltas = deltas;
+        }
+    }
+
+    // (id, version) of every row a backfill read, in the ascending id order of its scan; two longs a query
+    private static class ScannedVersions {
+        private long[] ids = new long[BACKFILL_CHUNK];
+        private long[] versions = new long[BACKFILL_CHUNK];
+        private int size;
+
+        void add(long id, Long version) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                versions = Arrays.copyOf(versions, size * 2);
+            }
+            ids[size] = id;
+            versions[size] = version != null ? version : 0L;
+            size++;
+        }
+
+        // The version read for id, or -1 when the scan did not see it
+        long find(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index >= 0 ? versions[index] : -1;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    // Mutated only inside ConcurrentHashMap.compute, or once removed from the map
+    private static class Delta {
+        long created;
+        long resolved;
+        long openDelta;
+
+        Delta plus(long created, long resolved, long openDelta) {
+            this.created += created;
+            this.resolved += resolved;
+            this.openDelta += openDelta;
+            return this;
+        }
+
+        Delta plus(Delta other) {
+            return plus(other.created, other.resolved, other.openDelta);
+        }
+
+        boolean isEmpty() {
+            return created == 0 && resolved == 0 && openDelta == 0;
+        }
+    }
+}
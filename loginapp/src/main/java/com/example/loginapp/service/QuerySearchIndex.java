@@ -0,0 +1,205 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-process inverted index over query title, description and completion notes.
+ * Posting lists map a term to the weighted term frequency per query id; the
+ * last search token is matched as a prefix so results follow the search box
+ * keystroke by keystroke.
+ *
+ * The prefix is expanded to every indexed term it starts, with no cap, so a
+ * match is never lost to an arbitrary cut-off in term order. The price is
+ * that a one or two letter prefix reads the posting lists of all its terms,
+ * at most one entry per term and query; the per-call result limit only
+ * bounds what is returned, not what is scored.
+ */
+public class QuerySearchIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TEXT_WEIGHT = 1;
+
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentHashMap<Long, Document> documents = new ConcurrentHashMap<>();
+
+    public synchronized void index(Long id, String title, String description, String completionNotes,
+                                   Query.Status status, Query.Category category, Long venueId) {
+        removePostings(id);
+
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, title, TITLE_WEIGHT);
+        addTerms(weights, description, TEXT_WEIGHT);
+        addTerms(weights, completionNotes, TEXT_WEIGHT);
+
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new ConcurrentHashMap<>())
+                    .put(id, entry.getValue());
+        }
+        documents.put(id, new Document(status, category, venueId, weights.keySet()));
+    }
+
+    public void index(Query query) {
+        Long venueId = query.getVenue() != null ? query.getVenue().getId() : null;
+        index(query.getId(), query.getTitle(), query.getDescription(), query.getCompletionNotes(),
+                query.getStatus(), query.getCategory(), venueId);
+    }
+
+    public synchronized void remove(Long id) {
+        removePostings(id);
+        documents.remove(id);
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Returns matching query ids, best match first. Every token has to match;
+     * the final token may match any term it is a prefix of.
+     */
+    public List<Long> search(String keyword, Query.Status status, Query.Category category, Long venueId, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(keyword)));
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int totalDocuments = Math.max(documents.size(), 1);
+        Map<Long, Double> scores = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            boolean prefix = i == tokens.size() - 1;
+            Map<Long, Double> tokenScores = scoreToken(tokens.get(i), prefix, totalDocuments);
+            if (tokenScores.isEmpty()) {
+                return Collections.emptyList();
+            }
+            scores = scores == null ? tokenScores : intersect(scores, tokenScores);
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>();
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            if (document != null && document.matches(status, category, venueId)) {
+                ranked.add(entry);
+            }
+        }
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())));
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Long, Double> scoreToken(String token, boolean prefix, int totalDocuments) {
+        Map<Long, Double> tokenScores = new HashMap<>();
+        if (prefix) {
+            NavigableMap<String, Map<Long, Integer>> matches = postings.subMap(token, true, token + Character.MAX_VALUE, false);
+            for (Map<Long, Integer> posting : matches.values()) {
+                accumulate(tokenScores, posting, totalDocuments);
+            }
+        } else {
+            Map<Long, Integer> posting = postings.get(token);
+            if (posting != null) {
+                accumulate(tokenScores, posting, totalDocuments);
+            }
+        }
+        return tokenScores;
+    }
+
+    private void accumulate(Map<Long, Double> tokenScores, Map<Long, Integer> posting, int totalDocuments) {
+        double idf = Math.log(1.0 + (double) totalDocuments / Math.max(posting.size(), 1));
+        for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+            tokenScores.merge(entry.getKey(), entry.getValue() * idf, Double::sum);
+        }
+    }
+
+    private Map<Long, Double> intersect(Map<Long, Double> left, Map<Long, Double> right) {
+        Map<Long, Double> smaller = left.size() <= right.size() ? left : right;
+        Map<Long, Double> larger = smaller == left ? right : left;
+        Map<Long, Double> result = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : smaller.entrySet()) {
+            Double other = larger.get(entry.getKey());
+            if (other != null) {
+                result.put(entry.getKey(), entry.getValue() + other);
+            }
+        }
+        return result;
+    }
+
+    private void addTerms(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void removePostings(Long id) {
+        Document previous = documents.get(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term, posting);
+                }
+            }
+        }
+    }
+
+    private static class Document {
+        private final Query.Status status;
+        private final Query.Category category;
+        private final Long venueId;
+        private final Set<String> terms;
+
+        private Document(Query.Status status, Query.Category category, Long venueId, Set<String> terms) {
+            this.status = status;
+            this.category = category;
+            this.venueId = venueId;
+            this.terms = terms;
+        }
+
+        private boolean matches(Query.Status status, Query.Category category, Long venueId) {
+            return (status == null || status == this.status)
+                    && (category == null || category == this.category)
+                    && (venueId == null || venueId.equals(this.venueId));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.repository.QueryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keyword search over queries. By default searches the in-process
+ * QuerySearchIndex, which QueryService keeps current on every save. With
+ * app.search.mode=native the database's own full-text support is used
+ * instead (MySQL FULLTEXT, SQLite FTS5), falling back to the in-process
+ * index on any other database.
+ */
+@Service
+public class QuerySearchService {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.search.mode:memory}")
+    private String searchMode;
+
+    private final QuerySearchIndex index = new QuerySearchIndex();
+
+    private volatile boolean indexReady = false;
+
+    private volatile String nativeDatabase = null;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSearch() {
+        if ("native".equalsIgnoreCase(searchMode)) {
+            nativeDatabase = setUpNativeSearch();
+        }
+        if (nativeDatabase == null) {
+            rebuildIndex();
+        }
+    }
+
+    public void rebuildIndex() {
+        indexReady = false;
+        index.clear();
+        long afterId = 0L;
+        int indexed = 0;
+        while (true) {
+            List<Object[]> rows = queryRepository.findSearchRowsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                index.index(id, (String) row[1], (String) row[2], (String) row[3],
+                        (Query.Status) row[4], (Query.Category) row[5], (Long) row[6]);
+                afterId = id;
+            }
+            indexed += rows.size();
+            if (rows.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+        }
+        indexReady = true;
+        System.out.println("Query search index built with " + indexed + " queries");
+    }
+
+    public void onSaved(Query query) {
+        if (nativeDatabase == null) {
+            index.index(query);
+        }
+    }
+
+    public void onDeleted(Long queryId) {
+        if (nativeDatabase == null) {
+            index.remove(queryId);
+        }
+    }
+
+    /**
+     * Ranked query ids for the keyword and filters, or empty while the
+     * in-process index is still being built after startup.
+     */
+    public Optional<List<Long>> search(String keyword, Query.Status status, Query.Category category,
+                                       Long venueId, int limit) {
+        if ("mysql".equals(nativeDatabase)) {
+            return Optional.of(searchMySql(keyword, status, category, venueId, limit));
+        }
+        if ("sqlite".equals(nativeDatabase)) {
+            return Optional.of(searchSqlite(keyword, status, category, venueId, limit));
+        }
+        if (!indexReady) {
+            return Optional.empty();
+        }
+        return Optional.of(index.search(keyword, status, category, venueId, limit));
+    }
+
+    private String setUpNativeSearch() {
+        try {
+            String product = jdbcTemplate.execute((Connection connection) ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (product == null) {
+                return null;
+            }
+            if (product.toLowerCase().contains("mysql")) {
+                Integer existing = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() " +
+                        "AND table_name = 'queries' AND index_name = 'ft_queries_text'", Integer.class);
+                if (existing == null || existing == 0) {
+                    jdbcTemplate.execute("ALTER TABLE queries ADD FULLTEXT INDEX ft_queries_text " +
+                            "(title, description, completion_notes)");
+                }
+                System.out.println("Query search using MySQL FULLTEXT index");
+                return "mysql";
+            }
+            if (product.toLowerCase().contains("sqlite")) {
+                Integer existing = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'queries_fts'", Integer.class);
+                jdbcTemplate.execute("CREATE VIRTUAL TABLE IF NOT EXISTS queries_fts USING fts5(" +
+                        "title, description, completion_notes, content='queries', content_rowid='id')");
+                jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS queries_fts_ai AFTER INSERT ON queries BEGIN " +
+                        "INSERT INTO queries_fts(rowid, title, description, completion_notes) " +
+                        "VALUES (new.id, new.title, new.description, new.completion_notes); END");
+                jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS queries_fts_ad AFTER DELETE ON queries BEGIN " +
+                        "INSERT INTO queries_fts(queries_fts, rowid, title, description, completion_notes) " +
+                        "VALUES ('delete', old.id, old.title, old.description, old.completion_notes); END");
+                jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS queries_fts_au AFTER UPDATE ON queries BEGIN " +
+                        "INSERT INTO queries_fts(queries_fts, rowid, title, description, completion_notes) " +
+                        "VALUES ('delete', old.id, old.title, old.description, old.completion_notes); " +
+                        "INSERT INTO queries_fts(rowid, title, description, completion_notes) " +
+                        "VALUES (new.id, new.title, new.description, new.completion_notes); END");
+                if (existing == null || existing == 0) {
+                    // Existing rows predate the triggers, index them once
+                    jdbcTemplate.execute("INSERT INTO queries_fts(queries_fts) VALUES ('rebuild')");
+                }
+                System.out.println("Query search using SQLite FTS5 table");
+                return "sqlite";
+            }
+            System.out.println("No native full-text support for " + product + ", using in-process search index");
+        } catch (Exception e) {
+            System.err.println("Native full-text setup failed, using in-process search index: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private List<Long> searchMySql(String keyword, Query.Status status, Query.Category category,
+                                   Long venueId, int limit) {
+        List<String> tokens = QuerySearchIndex.tokenize(keyword);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            expression.append('+').append(tokens.get(i));
+            if (i == tokens.size() - 1) {
+                expression.append('*');
+            }
+            expression.append(' ');
+        }
+        String match = expression.toString().trim();
+        String statusName = status != null ? status.name() : null;
+        String categoryName = category != null ? category.name() : null;
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM queries WHERE MATCH(title, description, completion_notes) AGAINST (? IN BOOLEAN MODE) " +
+                "AND (? IS NULL OR status = ?) AND (? IS NULL OR category = ?) AND (? IS NULL OR venue_id = ?) " +
+                "ORDER BY MATCH(title, description, completion_notes) AGAINST (? IN BOOLEAN MODE) DESC, id DESC LIMIT ?",
+                Long.class,
+                match, statusName, statusName, categoryName, categoryName, venueId, venueId, match, limit);
+    }
+
+    private List<Long> searchSqlite(String keyword, Query.Status status, Query.Category category,
+                                    Long venueId, int limit) {
+        List<String> tokens = QuerySearchIndex.tokenize(keyword);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            expression.append('"').append(tokens.get(i)).append('"');
+            if (i == tokens.size() - 1) {
+                expression.append('*');
+            }
+            expression.append(' ');
+        }
+        String statusName = status != null ? status.name() : null;
+        String categoryName = category != null ? category.name() : null;
+        return jdbcTemplate.queryForList(
+                "SELECT q.id FROM queries_fts f JOIN queries q ON q.id = f.rowid WHERE queries_fts MATCH ? " +
+                "AND (? IS NULL OR q.status = ?) AND (? IS NULL OR q.category = ?) AND (? IS NULL OR q.venue_id = ?) " +
+                "ORDER BY bm25(queries_fts, 3.0, 1.0, 1.0), q.id DESC LIMIT ?",
+                Long.class,
+                expression.toString().trim(), statusName, statusName, categoryName, categoryName, venueId, venueId, limit);
+    }
+}
@@ -1,24 +1,35 @@
 package com.example.loginapp.service;
 
+import com.example.loginapp.model.CursorPage;
+import com.example.loginapp.model.ImageVariants;
 import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QueryCursor;
+import com.example.loginapp.model.QueryListItem;
+import com.example.loginapp.model.QuerySnapshot;
 import com.example.loginapp.model.QueryStatusHistory;
 import com.example.loginapp.model.User;
 import com.example.loginapp.repository.QueryRepository;
 import com.example.loginapp.repository.QueryStatusHistoryRepository;
 import com.example.loginapp.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @Service
 public class QueryService {
@@ -32,11 +43,65 @@ public class QueryService {
     @Autowired
     private UserRepository userRepository;
 
-    @Value("${app.upload.dir:uploads/}")
-    private String uploadDir;
+    @Autowired
+    private QueryStatsService queryStatsService;
+
+    @Autowired
+    private QuerySearchService querySearchService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    @Autowired
+    private DispatchService dispatchService;
+
+    @Autowired
+    private SlaService slaService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private QueryRollupService queryRollupService;
+
+    @Value("${app.queries.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.queries.page.max-size:100}")
+    private int maxPageSize;
+
+    // Upper bound for the legacy list endpoints, newest queries first
+    @Value("${app.queries.list.max-results:500}")
+    private int maxListResults;
+
+    @Value("${app.search.max-results:100}")
+    private int maxSearchResults;
+
+    // Striped by query id; see store()
+    private final Object[] writeLocks = newLocks(64);
+
+    // SLA escalations write through here so counters, loads and queues follow the new priority
+    @PostConstruct
+    public void registerEscalator() {
+        slaService.setEscalator(this::raisePriority);
+    }
 
     public List<Query> getAllQueries() {
-        return queryRepository.findAll();
+        QueryCursor start = QueryCursor.START;
+        return queryRepository.findPageBefore(start.getCreatedAt(), start.getId(), listLimit());
+    }
+
+    public long getTotalQueryCount() {
+        return queryStatsService.getTotal();
     }
 
     public Optional<Query> getQueryById(Long id) {
@@ -44,40 +109,286 @@ public class QueryService {
     }
 
     public List<Query> getQueriesByUser(User user) {
-        return queryRepository.findByRaisedByUser(user);
+        QueryCursor start = QueryCursor.START;
+        return queryRepository.findPageByRaisedByUserBefore(user.getId(), start.getCreatedAt(), start.getId(), listLimit());
     }
 
     public List<Query> getQueriesByWorker(User worker) {
-        return queryRepository.findByAssignedToWorker(worker);
+        QueryCursor start = QueryCursor.START;
+        return queryRepository.findPageByAssignedToWorkerBefore(worker.getId(), start.getCreatedAt(), start.getId(), listLimit());
     }
 
     public List<Query> getQueriesByStatus(Query.Status status) {
-        return queryRepository.findByStatus(status);
+        QueryCursor start = QueryCursor.START;
+        return queryRepository.findPageByStatusBefore(status, start.getCreatedAt(), start.getId(), listLimit());
     }
 
     public List<Query> getQueriesByVenue(Long venueId) {
-        return queryRepository.findByVenueId(venueId);
+        QueryCursor start = QueryCursor.START;
+        return queryRepository.findPageByVenueBefore(venueId, start.getCreatedAt(), start.getId(), listLimit());
+    }
+
+    public CursorPage<Query> getQueryPage(String cursor, Integer size) {
+        return fetchPage(cursor, size, (position, limit) ->
+                queryRepository.findPageBefore(position.getCreatedAt(), position.getId(), limit));
+    }
+
+    public CursorPage<Query> getQueryPageByUser(Long userId, String cursor, Integer size) {
+        return fetchPage(cursor, size, (position, limit) ->
+                queryRepository.findPageByRaisedByUserBefore(userId, position.getCreatedAt(), position.getId(), limit));
+    }
+
+    public CursorPage<Query> getQueryPageByWorker(Long workerId, String cursor, Integer size) {
+        return fetchPage(cursor, size, (position, limit) ->
+                queryRepository.findPageByAssignedToWorkerBefore(workerId, position.getCreatedAt(), position.getId(), limit));
+    }
+
+    public CursorPage<Query> getQueryPageByStatus(Query.Status status, String cursor, Integer size) {
+        return fetchPage(cursor, size, (position, limit) ->
+                queryRepository.findPageByStatusBefore(status, position.getCreatedAt(), position.getId(), limit));
+    }
+
+    public CursorPage<Query> getQueryPageByVenue(Long venueId, String cursor, Integer size) {
+        return fetchPage(cursor, size, (position, limit) ->
+                queryRepository.findPageByVenueBefore(venueId, position.getCreatedAt(), position.getId(), limit));
+    }
+
+    public CursorPage<QueryListItem> getQueryListPage(Query.Status status, Long userId, Long workerId,
+                                                      Long venueId, String cursor, Integer size) {
+        return this.<QueryListItem>fetchPage(cursor, size, (position, limit) ->
+                queryRepository.findListItemsBefore(status, userId, workerId, venueId,
+                        position.getCreatedAt(), position.getId(), limit),
+                QueryCursor::of);
     }
 
-    public List<Query> searchQueries(Query.Status status, Query.Category category, 
-                                   Long venueId, String keyword) {
-        return queryRepository.findWithFilters(status, category, venueId, keyword);
+    private CursorPage<Query> fetchPage(String cursor, Integer size,
+                                        BiFunction<QueryCursor, Pageable, List<Query>> finder) {
+        return fetchPage(cursor, size, finder, QueryCursor::of);
+    }
+
+    private <T> CursorPage<T> fetchPage(String cursor, Integer size,
+                                        BiFunction<QueryCursor, Pageable, List<T>> finder,
+                                        Function<T, QueryCursor> positionOf) {
+        int pageSize = resolvePageSize(size);
+        QueryCursor position = QueryCursor.decode(cursor);
+
+        // Fetch one extra row to find out whether another page follows
+        List<T> rows = finder.apply(position, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? positionOf.apply(items.get(items.size() - 1)).encode() : null;
+
+        return CursorPage.<T>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .size(items.size())
+                .build();
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    private Pageable listLimit() {
+        return PageRequest.of(0, maxListResults);
+    }
+
+    /**
+     * Filter-only searches return every match, newest first. Keyword searches return the best
+     * app.search.max-results matches in rank order, or empty while the search index is still
+     * being built after startup.
+     */
+    public Optional<List<Query>> searchQueries(Query.Status status, Query.Category category,
+                                               Long venueId, String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return Optional.of(queryRepository.findByFilters(status, category, venueId));
+        }
+
+        Optional<List<Long>> rankedIds = querySearchService.search(keyword, status, category, venueId, maxSearchResults);
+        if (rankedIds.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Load the matches in one select and hand them back in rank order
+        Map<Long, Query> byId = new HashMap<>();
+        for (Query query : queryRepository.findAllById(rankedIds.get())) {
+            byId.put(query.getId(), query);
+        }
+        List<Query> results = new ArrayList<>(byId.size());
+        for (Long id : rankedIds.get()) {
+            Query query = byId.get(id);
+            if (query != null) {
+                results.add(query);
+            }
+        }
+        return Optional.of(results);
     }
 
     public Query saveQuery(Query query) {
-        return queryRepository.save(query);
+        QuerySnapshot before = null;
+        if (query.getId() != null) {
+            Optional<Query> current = queryRepository.findById(query.getId());
+            if (current.isPresent()) {
+                // The request body carries no version; pin it to the row the delta is computed from
+                query.setVersion(current.get().getVersion());
+                before = QuerySnapshot.of(current.get());
+            } else {
+                query.setId(null);
+            }
+        }
+        if (before == null) {
+            return createQueryWithImagePath(query, null);
+        }
+        return store(query, before);
+    }
+
+    // For uploads already streamed into blob storage
+    public Query createQueryWithImagePath(Query query, String imagePath) {
+        if (imagePath != null) {
+            query.setImagePath(imagePath);
+        }
+        AssignmentService.Reservation reservation = reserveWorker(query);
+        try {
+            return store(query, null);
+        } finally {
+            assignmentService.release(reservation);
+        }
+    }
+
+    /**
+     * Auto-assigns a batch of new queries before they are inserted outside
+     * store(), as the bulk import does. The reservations must be released
+     * once the batch has been saved and reported, or has failed.
+     */
+    public List<AssignmentService.Reservation> reserveWorkers(List<Query> queries) {
+        List<AssignmentService.Reservation> reservations = new ArrayList<>();
+        for (Query query : queries) {
+            AssignmentService.Reservation reservation = reserveWorker(query);
+            if (reservation != null) {
+                reservations.add(reservation);
+            }
+        }
+        return reservations;
     }
 
-    public Query createQuery(Query query, MultipartFile imageFile) {
-        if (imageFile != null && !imageFile.isEmpty()) {
+    public void releaseWorkers(List<AssignmentService.Reservation> reservations) {
+        for (AssignmentService.Reservation reservation : reservations) {
+            assignmentService.release(reservation);
+        }
+    }
+
+    // Hands a pending, unassigned query to the least loaded worker of its trade; null when nobody fits
+    public Query autoAssignQuery(Long queryId) {
+        Query query = queryRepository.findById(queryId).orElseThrow(() -> new RuntimeException("Query not found"));
+        QuerySnapshot before = QuerySnapshot.of(query);
+        AssignmentService.Reservation reservation = reserveWorker(query);
+        if (reservation == null) {
+            return null;
+        }
+        try {
+            return store(query, before);
+        } finally {
+            assignmentService.release(reservation);
+        }
+    }
+
+    // Every path that creates a query asks for a worker here first
+    private AssignmentService.Reservation reserveWorker(Query query) {
+        AssignmentService.Reservation reservation = assignmentService.reserve(query);
+        if (reservation != null) {
+            query.setAssignedToWorker(reservation.getWorker());
+            query.setStatus(Query.Status.ASSIGNED);
+        }
+        return reservation;
+    }
+
+    // Unassigned pending queries in pick-up order (priority head start plus age), optionally for one trade
+    public List<Query> getDispatchQueue(User.WorkerType workerType, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (DispatchQueue.Entry entry : dispatchService.next(workerType, count)) {
+            ids.add(entry.getQueryId());
+        }
+        Map<Long, Query> byId = new HashMap<>();
+        for (Query query : queryRepository.findAllById(ids)) {
+            byId.put(query.getId(), query);
+        }
+        List<Query> queries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Query query = byId.get(id);
+            if (query != null) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Assigns the first query in the dispatch queue for the worker's trade to
+     * them. Null when there is nothing for them to pick up.
+     */
+    public Query claimNextQuery(Long workerId) {
+        User worker = userRepository.findById(workerId).orElseThrow(() -> new RuntimeException("Worker not found"));
+        if (worker.getRole() != User.Role.WORKER) {
+            throw new RuntimeException("User is not a worker");
+        }
+        Long queryId;
+        while ((queryId = dispatchService.claim(worker)) != null) {
+            Query query = queryRepository.findById(queryId).orElse(null);
+            // Another path may have assigned or deleted it since it was queued
+            if (query == null || query.getStatus() != Query.Status.PENDING || query.getAssignedToWorker() != null) {
+                continue;
+            }
+            QuerySnapshot before = QuerySnapshot.of(query);
+            query.setAssignedToWorker(worker);
+            query.setStatus(Query.Status.ASSIGNED);
             try {
-                String imagePath = saveImage(imageFile);
-                query.setImagePath(imagePath);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to save image", e);
+                return store(query, before);
+            } catch (RuntimeException e) {
+                dispatchService.requeue(queryRepository.findById(queryId).orElse(null));
+                throw e;
             }
         }
-        return queryRepository.save(query);
+        return null;
+    }
+
+    public Map<String, Object> getDispatchMetrics() {
+        return dispatchService.getMetrics();
+    }
+
+    /**
+     * Raises the priority of a query the SLA timer found overdue. A
+     * conditional update rather than a read-modify-write of the whole row,
+     * so a worker resolving or reassigning the query meanwhile is never
+     * written back over; false when that happened and nothing was changed.
+     */
+    public boolean raisePriority(Long queryId, Query.Priority from, Query.Priority to) {
+        // Under the query's write lock like store(), so the hooks see this write in commit order
+        synchronized (writeLock(queryId)) {
+            Query raised = transactionTemplate.execute(status -> {
+                if (queryRepository.raisePriority(queryId, from, to, SlaService.WATCHED, LocalDateTime.now()) != 1) {
+                    return null;
+                }
+                // Read in the same transaction, so it is this write the hooks see
+                return queryRepository.findById(queryId).orElse(null);
+            });
+            if (raised == null) {
+                return false;
+            }
+            afterWrite(QuerySnapshot.of(raised).withPriority(from), raised);
+            return true;
+        }
+    }
+
+    public Map<String, Object> getSlaMetrics() {
+        return slaService.getMetrics();
+    }
+
+    public Map<String, Object> getAssignmentMetrics() {
+        return assignmentService.getMetrics();
     }
 
     public Query assignQueryToWorker(Long queryId, Long workerId) {
@@ -89,9 +400,10 @@ public class QueryService {
             User worker = workerOpt.get();
             
             if (worker.getRole() == User.Role.WORKER) {
+                QuerySnapshot before = QuerySnapshot.of(query);
                 query.setAssignedToWorker(worker);
                 query.setStatus(Query.Status.ASSIGNED);
-                return queryRepository.save(query);
+                return store(query, before);
             } else {
                 throw new RuntimeException("User is not a worker");
             }
@@ -104,45 +416,170 @@ public class QueryService {
         Optional<Query> queryOpt = queryRepository.findById(queryId);
         if (queryOpt.isPresent()) {
             Query query = queryOpt.get();
+            QuerySnapshot before = QuerySnapshot.of(query);
             query.setStatus(status);
             if (status == Query.Status.RESOLVED) {
                 query.setResolvedAt(LocalDateTime.now());
             }
-            return queryRepository.save(query);
+            return store(query, before);
         } else {
             throw new RuntimeException("Query not found");
         }
     }
 
     public void deleteQuery(Long id) {
-        queryRepository.deleteById(id);
+        queryRepository.findById(id).ifPresent(query -> {
+            synchronized (writeLock(id)) {
+                QuerySnapshot before = QuerySnapshot.of(query);
+                queryRepository.delete(query);
+                queryStatsService.record(QueryStatsService.Bucket.of(before), null);
+                assignmentService.record(before, null);
+                dispatchService.record(before, null);
+                slaService.record(before, null);
+                queryRollupService.record(before, null);
+                blobStorageService.release(before.getImagePath());
+                blobStorageService.release(before.getCompletionImagePath());
+                replaceThumbnailReferences(before.getImageThumbnails(), null);
+                replaceThumbnailReferences(before.getCompletionImageThumbnails(), null);
+                querySearchService.onDeleted(query.getId());
+                entityTagService.queryDeleted(query.getId());
+            }
+        });
     }
 
     public Long getQueryCountByStatus(Query.Status status) {
-        return queryRepository.countByStatus(status);
+        return queryStatsService.getCountByStatus(status);
+    }
+
+    public Map<String, Object> getQueryStatsSnapshot() {
+        return queryStatsService.getSnapshot();
+    }
+
+    /**
+     * Every write to an existing or new query goes through here so the in-memory counters, blob references
+     * and search index stay in step.
+     * {@code before} must come from the same read as the entity's version: the save then either replaces
+     * exactly that row or fails with an optimistic locking error, so a delta is never applied twice.
+     * Writes to one query are saved and reported under its lock, so the counters see them in commit order.
+     */
+    private Query store(Query query, QuerySnapshot before) {
+        // Thumbnails belong to the image they were made from
+        if (before != null && !Objects.equals(before.getImagePath(), query.getImagePath())) {
+            query.setImageThumbnails(null);
+        }
+        if (before != null && !Objects.equals(before.getCompletionImagePath(), query.getCompletionImagePath())) {
+            query.setCompletionImageThumbnails(null);
+        }
+        // The SLA clock restarts on a new status or priority; request bodies never carry the old entry time
+        if (before == null || before.getStatus() != query.getStatus() || before.getPriority() != query.getPriority()) {
+            query.setStateEnteredAt(LocalDateTime.now());
+        } else {
+            query.setStateEnteredAt(before.getStateEnteredAt());
+        }
+        // A new query has no id to lock on yet, and nothing else can write it before it is saved
+        Object lock = query.getId() != null ? writeLock(query.getId()) : new Object();
+        Query savedQuery;
+        synchronized (lock) {
+            savedQuery = queryRepository.save(query);
+            afterWrite(before, savedQuery);
+        }
+        scheduleThumbnails(before, savedQuery);
+        return savedQuery;
+    }
+
+    // Queries inserted in bulk outside store(), already committed
+    public void onQueriesImported(List<Query> queries) {
+        for (Query query : queries) {
+            afterWrite(null, query);
+        }
+    }
+
+    private void afterWrite(QuerySnapshot before, Query savedQuery) {
+        queryStatsService.record(QueryStatsService.Bucket.of(before), QueryStatsService.Bucket.of(savedQuery));
+        assignmentService.record(before, savedQuery);
+        dispatchService.record(before, savedQuery);
+        slaService.record(before, savedQuery);
+        queryRollupService.record(before, savedQuery);
+        blobStorageService.replaceReference(before != null ? before.getImagePath() : null, savedQuery.getImagePath());
+        blobStorageService.replaceReference(before != null ? before.getCompletionImagePath() : null,
+                savedQuery.getCompletionImagePath());
+        replaceThumbnailReferences(before != null ? before.getImageThumbnails() : null, savedQuery.getImageThumbnails());
+        replaceThumbnailReferences(before != null ? before.getCompletionImageThumbnails() : null,
+                savedQuery.getCompletionImageThumbnails());
+        querySearchService.onSaved(savedQuery);
+        entityTagService.queryChanged(savedQuery);
+    }
+
+    private void replaceThumbnailReferences(String oldThumbnails, String newThumbnails) {
+        if (Objects.equals(oldThumbnails, newThumbnails)) {
+            return;
+        }
+        for (String path : ImageVariants.paths(newThumbnails)) {
+            blobStorageService.retain(path);
+        }
+        for (String path : ImageVariants.paths(oldThumbnails)) {
+            blobStorageService.release(path);
+        }
+    }
+
+    // Only for images that are new with this write; older ones are picked up when their thumbnail is first asked for
+    private void scheduleThumbnails(QuerySnapshot before, Query savedQuery) {
+        for (ThumbnailService.Kind kind : ThumbnailService.Kind.values()) {
+            String source = kind.sourceOf(savedQuery);
+            String previous = before == null ? null
+                    : kind == ThumbnailService.Kind.IMAGE ? before.getImagePath() : before.getCompletionImagePath();
+            if (source != null && kind.thumbnailsOf(savedQuery) == null && !source.equals(previous)) {
+                thumbnailService.schedule(savedQuery.getId(), kind, source);
+            }
+        }
+    }
+
+    /**
+     * The best downscaled copy of a query image for the given display width,
+     * or the original while thumbnails are still being made (or the image is
+     * already smaller). Empty when the query or the image does not exist.
+     */
+    public Optional<ThumbnailService.Thumbnail> getThumbnail(Long queryId, ThumbnailService.Kind kind, int width) {
+        return queryRepository.findById(queryId).flatMap(query -> {
+            String source = kind.sourceOf(query);
+            if (source == null) {
+                return Optional.empty();
+            }
+            String thumbnails = kind.thumbnailsOf(query);
+            if (thumbnails == null) {
+                thumbnailService.schedule(queryId, kind, source);
+                return Optional.of(new ThumbnailService.Thumbnail(source, false));
+            }
+            String variant = ImageVariants.pick(thumbnails, width);
+            return Optional.of(new ThumbnailService.Thumbnail(variant != null ? variant : source, true));
+        });
+    }
+
+    public Map<String, Object> getThumbnailMetrics() {
+        return thumbnailService.getMetrics();
+    }
+
+    private Object writeLock(Long queryId) {
+        return writeLocks[(int) Math.floorMod(queryId, (long) writeLocks.length)];
+    }
+
+    private static Object[] newLocks(int stripes) {
+        Object[] locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
     }
 
     public Long getQueryCountByUser(User user) {
         return queryRepository.countByUser(user);
     }
 
+    // Content-addressed, so re-uploading the same photo reuses the stored blob
     private String saveImage(MultipartFile file) throws IOException {
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        try (InputStream in = file.getInputStream()) {
+            return blobStorageService.store(in, file.getOriginalFilename()).getPath();
         }
-
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-        
-        // Save file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath);
-        
-        return "/" + uploadDir + uniqueFilename;
     }
 
     public Query assignWorker(Long queryId, Long workerId) {
@@ -155,10 +592,11 @@ public class QueryService {
             
             // Verify the user is actually a worker
             if (worker.getRole() == User.Role.WORKER) {
+                QuerySnapshot before = QuerySnapshot.of(query);
                 query.setAssignedToWorker(worker);
                 query.setStatus(Query.Status.ASSIGNED);
                 query.setUpdatedAt(LocalDateTime.now());
-                return queryRepository.save(query);
+                return store(query, before);
             }
         }
         return null;
@@ -167,7 +605,7 @@ public class QueryService {
     public List<Query> getQueriesByWorker(Long workerId) {
         User worker = userRepository.findById(workerId).orElse(null);
         if (worker != null) {
-            return queryRepository.findByAssignedToWorkerOrderByCreatedAtDesc(worker);
+            return getQueriesByWorker(worker);
         }
         return new ArrayList<>();
     }
@@ -176,6 +614,7 @@ public class QueryService {
         Optional<Query> queryOpt = queryRepository.findById(queryId);
         if (queryOpt.isPresent()) {
             Query query = queryOpt.get();
+            QuerySnapshot before = QuerySnapshot.of(query);
             query.setStatus(Query.Status.RESOLVED);
             query.setResolvedAt(LocalDateTime.now());
             
@@ -185,38 +624,19 @@ public class QueryService {
             
             if (completionImage != null && !completionImage.isEmpty()) {
                 try {
-                    String completionImagePath = saveCompletionImage(completionImage);
+                    String completionImagePath = saveImage(completionImage);
                     query.setCompletionImagePath(completionImagePath);
                 } catch (IOException e) {
                     throw new RuntimeException("Failed to save completion image", e);
                 }
             }
             
-            return queryRepository.save(query);
+            return store(query, before);
         } else {
             throw new RuntimeException("Query not found");
         }
     }
 
-    private String saveCompletionImage(MultipartFile file) throws IOException {
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir + "completions/");
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-        
-        // Save file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath);
-        
-        return "/" + uploadDir + "completions/" + uniqueFilename;
-    }
-
     public Query updateQueryStatusWithHistory(Long queryId, Query.Status newStatus, Long userId, String comment) {
         Optional<Query> queryOpt = queryRepository.findById(queryId);
         Optional<User> userOpt = userRepository.findById(userId);
@@ -225,13 +645,14 @@ public class QueryService {
             Query query = queryOpt.get();
             User user = userOpt.get();
             Query.Status oldStatus = query.getStatus();
+            QuerySnapshot before = QuerySnapshot.of(query);
             
             // Update query status
             query.setStatus(newStatus);
             if (newStatus == Query.Status.RESOLVED) {
                 query.setResolvedAt(LocalDateTime.now());
             }
-            Query savedQuery = queryRepository.save(query);
+            Query savedQuery = store(query, before);
             
             // Create status history entry
             QueryStatusHistory statusHistory = QueryStatusHistory.builder()
@@ -242,6 +663,8 @@ public class QueryService {
                     .comment(comment)
                     .build();
             queryStatusHistoryRepository.save(statusHistory);
+            // History is served under the query tags too
+            entityTagService.queryChanged(savedQuery);
             
             return savedQuery;
         } else {
@@ -250,11 +673,24 @@ public class QueryService {
     }
 
     public Query completeQueryWithHistory(Long queryId, Long userId, String completionNotes, MultipartFile completionImage) {
+        String completionImagePath = null;
+        if (completionImage != null && !completionImage.isEmpty()) {
+            try {
+                completionImagePath = saveImage(completionImage);
+            } catch (IOException e) {
+                System.err.println("Failed to save completion image: " + e.getMessage());
+                throw new RuntimeException("Failed to save completion image", e);
+            }
+        }
+        return completeQueryWithImagePath(queryId, userId, completionNotes, completionImagePath);
+    }
+
+    public Query completeQueryWithImagePath(Long queryId, Long userId, String completionNotes, String completionImagePath) {
         System.out.println("=== COMPLETION DEBUG ===");
         System.out.println("Query ID: " + queryId);
         System.out.println("User ID: " + userId);
         System.out.println("Completion Notes: " + completionNotes);
-        System.out.println("Has Image: " + (completionImage != null && !completionImage.isEmpty()));
+        System.out.println("Has Image: " + (completionImagePath != null));
         
         Optional<Query> queryOpt = queryRepository.findById(queryId);
         Optional<User> userOpt = userRepository.findById(userId);
@@ -263,6 +699,7 @@ public class QueryService {
             Query query = queryOpt.get();
             User user = userOpt.get();
             Query.Status oldStatus = query.getStatus();
+            QuerySnapshot before = QuerySnapshot.of(query);
             
             System.out.println("Found Query: " + query.getTitle());
             System.out.println("Found User: " + user.getName());
@@ -279,21 +716,13 @@ public class QueryService {
                 System.out.println("Set completion notes: " + completionNotes);
             }
             
-            // Save completion image if provided
-            String completionImagePath = null;
-            if (completionImage != null && !completionImage.isEmpty()) {
-                try {
-                    completionImagePath = saveCompletionImage(completionImage);
-                    query.setCompletionImagePath(completionImagePath);
-                    System.out.println("Saved completion image: " + completionImagePath);
-                } catch (IOException e) {
-                    System.err.println("Failed to save completion image: " + e.getMessage());
-                    throw new RuntimeException("Failed to save completion image", e);
-                }
+            if (completionImagePath != null) {
+                query.setCompletionImagePath(completionImagePath);
+                System.out.println("Saved completion image: " + completionImagePath);
             }
             
             // Save the updated query first
-            Query savedQuery = queryRepository.save(query);
+            Query savedQuery = store(query, before);
             System.out.println("Saved query with completion data");
             
             // Create status history entry with completion details
@@ -306,6 +735,8 @@ public class QueryService {
                     .completionImagePath(completionImagePath)
                     .build();
             queryStatusHistoryRepository.save(statusHistory);
+            blobStorageService.retain(completionImagePath);
+            entityTagService.queryChanged(savedQuery);
             System.out.println("Saved status history entry");
             
             System.out.println("=== COMPLETION COMPLETE ===");
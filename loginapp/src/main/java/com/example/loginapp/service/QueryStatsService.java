@@ -0,0 +1,169 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QuerySnapshot;
+import com.example.loginapp.repository.QueryRepository;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory query counters keyed by status x priority x category.
+ * Seeded once from a single grouped aggregate and then kept current by
+ * QueryService on every create, update and delete, so reading them never
+ * touches the queries table.
+ */
+@Service
+public class QueryStatsService {
+
+    private static final Query.Status[] STATUSES = Query.Status.values();
+    private static final Query.Priority[] PRIORITIES = Query.Priority.values();
+    private static final Query.Category[] CATEGORIES = Query.Category.values();
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    private final LongAdder[][][] counters = new LongAdder[STATUSES.length][PRIORITIES.length][CATEGORIES.length];
+
+    public QueryStatsService() {
+        for (int s = 0; s < STATUSES.length; s++) {
+            for (int p = 0; p < PRIORITIES.length; p++) {
+                for (int c = 0; c < CATEGORIES.length; c++) {
+                    counters[s][p][c] = new LongAdder();
+                }
+            }
+        }
+    }
+
+    @PostConstruct
+    public void initializeCounters() {
+        reload();
+    }
+
+    // Replace every counter with the result of one GROUP BY over the table
+    public synchronized void reload() {
+        long[][][] fresh = new long[STATUSES.length][PRIORITIES.length][CATEGORIES.length];
+        List<Object[]> rows = queryRepository.countGroupedByStatusPriorityCategory();
+        for (Object[] row : rows) {
+            Query.Status status = (Query.Status) row[0];
+            Query.Priority priority = (Query.Priority) row[1];
+            Query.Category category = (Query.Category) row[2];
+            if (status != null && priority != null && category != null) {
+                fresh[status.ordinal()][priority.ordinal()][category.ordinal()] += ((Number) row[3]).longValue();
+            }
+        }
+        for (int s = 0; s < STATUSES.length; s++) {
+            for (int p = 0; p < PRIORITIES.length; p++) {
+                for (int c = 0; c < CATEGORIES.length; c++) {
+                    counters[s][p][c].reset();
+                    counters[s][p][c].add(fresh[s][p][c]);
+                }
+            }
+        }
+        System.out.println("Query stats loaded from " + rows.size() + " aggregate rows");
+    }
+
+    // Move one query from its previous bucket to its new one; null means it did not exist before / no longer exists
+    public void record(Bucket before, Bucket after) {
+        if (before != null && before.equals(after)) {
+            return;
+        }
+        if (before != null) {
+            cell(before).decrement();
+        }
+        if (after != null) {
+            cell(after).increment();
+        }
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (int s = 0; s < STATUSES.length; s++) {
+            total += sumStatus(s);
+        }
+        return total;
+    }
+
+    public long getCountByStatus(Query.Status status) {
+        return sumStatus(status.ordinal());
+    }
+
+    public Map<String, Object> getSnapshot() {
+        Map<Query.Status, Long> byStatus = new LinkedHashMap<>();
+        Map<Query.Priority, Long> byPriority = new LinkedHashMap<>();
+        Map<Query.Category, Long> byCategory = new LinkedHashMap<>();
+        for (Query.Status status : STATUSES) {
+            byStatus.put(status, 0L);
+        }
+        for (Query.Priority priority : PRIORITIES) {
+            byPriority.put(priority, 0L);
+        }
+        for (Query.Category category : CATEGORIES) {
+            byCategory.put(category, 0L);
+        }
+
+        long total = 0;
+        for (int s = 0; s < STATUSES.length; s++) {
+            for (int p = 0; p < PRIORITIES.length; p++) {
+                for (int c = 0; c < CATEGORIES.length; c++) {
+                    long count = counters[s][p][c].sum();
+                    if (count == 0) {
+                        continue;
+                    }
+                    total += count;
+                    byStatus.merge(STATUSES[s], count, Long::sum);
+                    byPriority.merge(PRIORITIES[p], count, Long::sum);
+                    byCategory.merge(CATEGORIES[c], count, Long::sum);
+                }
+            }
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("total", total);
+        snapshot.put("byStatus", byStatus);
+        snapshot.put("byPriority", byPriority);
+        snapshot.put("byCategory", byCategory);
+        return snapshot;
+    }
+
+    private long sumStatus(int s) {
+        long total = 0;
+        for (int p = 0; p < PRIORITIES.length; p++) {
+            for (int c = 0; c < CATEGORIES.length; c++) {
+                total += counters[s][p][c].sum();
+            }
+        }
+        return total;
+    }
+
+    private LongAdder cell(Bucket bucket) {
+        return counters[bucket.getStatus().ordinal()][bucket.getPriority().ordinal()][bucket.getCategory().ordinal()];
+    }
+
+    @Value
+    public static class Bucket {
+        Query.Status status;
+        Query.Priority priority;
+        Query.Category category;
+
+        public static Bucket of(Query query) {
+            if (query == null || query.getStatus() == null || query.getPriority() == null || query.getCategory() == null) {
+                return null;
+            }
+            return new Bucket(query.getStatus(), query.getPriority(), query.getCategory());
+        }
+
+        public static Bucket of(QuerySnapshot snapshot) {
+            if (snapshot == null || snapshot.getStatus() == null || snapshot.getPriority() == null
+                    || snapshot.getCategory() == null) {
+                return null;
+            }
+            return new Bucket(snapshot.getStatus(), snapshot.getPriority(), snapshot.getCategory());
+        }
+    }
+}
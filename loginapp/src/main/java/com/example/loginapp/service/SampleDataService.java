@@ -4,7 +4,6 @@ import com.example.loginapp.model.User;
 import com.example.loginapp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import jakarta.annotation.PostConstruct;
 import java.util.List;
@@ -15,7 +14,8 @@ public class SampleDataService {
     @Autowired
     private UserRepository userRepository;
 
-    private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     @PostConstruct
     public void initializeSampleData() {
@@ -57,7 +57,7 @@ public class SampleDataService {
             User worker = User.builder()
                     .name(name)
                     .email(email)
-                    .password(passwordEncoder.encode("worker123")) // Default password
+                    .password(passwordHashingService.encode("worker123")) // Default password
                     .role(User.Role.WORKER)
                     .workerType(workerType)
                     .build();
@@ -0,0 +1,487 @@
+package com.example.loginapp.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Packs blobs into a few large append-only segment files instead of one
+ * file each. Every record carries its own header, so the in-memory index
+ * (name -> segment, offset, length) is rebuilt by scanning the segments at
+ * startup and a torn write at the end of the last segment is cut off.
+ *
+ * Record layout, big-endian:
+ * <pre>
+ *   put:    "BLOB" | name length (short) | name | modified (long) | length (long) | bytes
+ *   delete: "DEL!" | name length (short) | name | modified (long) | segment (int) | record offset (long)
+ * </pre>
+ *
+ * Reads go through a read-only mapping of the segment. A delete appends a
+ * tombstone; {@link #maintain()} copies the live records out of segments
+ * that have become mostly garbage and removes those files after a grace
+ * period, so readers still holding the old location can finish.
+ */
+public class SegmentBlobStore implements BlobStore {
+
+    private static final int PUT = 0x424C4F42;
+    private static final int DELETE = 0x44454C21;
+    private static final int PREFIX_BYTES = 6;
+    private static final int PUT_TAIL_BYTES = 16;
+    private static final int DELETE_TAIL_BYTES = 20;
+    private static final String SUFFIX = ".seg";
+
+    private final Path root;
+    private final long maxSegmentBytes;
+    private final double compactionThreshold;
+    private final long retireGraceMillis;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    // Guarded by this
+    private final List<Segment> retired = new ArrayList<>();
+    private Segment active;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private final LongAdder recordsMoved = new LongAdder();
+    private final LongAdder bytesReclaimed = new LongAdder();
+
+    public SegmentBlobStore(Path root, long maxSegmentBytes, double compactionThreshold, long retireGraceMillis)
+            throws IOException {
+        this.root = root;
+        // Mapped reads use int offsets
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, Integer.MAX_VALUE);
+        this.compactionThreshold = compactionThreshold;
+        this.retireGraceMillis = retireGraceMillis;
+        Files.createDirectories(root);
+        load();
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    @Override
+    public synchronized boolean put(String name, Path file) throws IOException {
+        if (index.containsKey(name)) {
+            return false;
+        }
+        long length = Files.size(file);
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        long modified = System.currentTimeMillis();
+        ByteBuffer header = ByteBuffer.allocate(PREFIX_BYTES + nameBytes.length + PUT_TAIL_BYTES);
+        header.putInt(PUT).putShort((short) nameBytes.length).put(nameBytes).putLong(modified).putLong(length).flip();
+
+        Segment segment = activeFor(header.remaining() + length);
+        long start = segment.size;
+        long dataOffset = start + header.remaining();
+        writeFully(segment.channel, header, start);
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            copy(source, 0, segment.channel, dataOffset, length);
+        }
+        segment.size = dataOffset + length;
+        segment.dataBytes.addAndGet(length);
+        segment.liveBytes.addAndGet(length);
+        index.put(name, new Location(segment.id, start, dataOffset, length, modified));
+        return true;
+    }
+
+    @Override
+    public Optional<Blob> open(String name) throws IOException {
+        // A second look covers a record moved by compaction between reading the index and the segment map
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Location location = index.get(name);
+            if (location == null) {
+                return Optional.empty();
+            }
+            Segment segment = segments.get(location.segment);
+            if (segment != null) {
+                reads.increment();
+                return Optional.of(new Blob(segment.path, location.dataOffset, location.length,
+                        location.lastModified, segment.slice(location.dataOffset, location.length)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public synchronized boolean touch(String name) {
+        // Kept in memory only; after a restart the write time in the record counts again
+        Location location = index.get(name);
+        if (location == null) {
+            return false;
+        }
+        location.lastModified = System.currentTimeMillis();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String name) throws IOException {
+        Location location = index.remove(name);
+        if (location == null) {
+            return false;
+        }
+        appendTombstone(name, location.segment, location.offset);
+        Segment segment = segments.get(location.segment);
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-location.length);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteIfModifiedBefore(String name, long cutoffMillis) throws IOException {
+        Location location = index.get(name);
+        if (location == null || location.lastModified >= cutoffMillis) {
+            return false;
+        }
+        return delete(name);
+    }
+
+    @Override
+    public void forEach(Consumer<Entry> action) {
+        index.forEach((name, location) -> action.accept(new Entry(name, location.length, location.lastModified)));
+    }
+
+    /**
+     * Deletes retired segment files whose grace period is over, then
+     * compacts every sealed segment whose live share has dropped below the
+     * threshold.
+     */
+    @Override
+    public void maintain() throws IOException {
+        deleteRetired();
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment == currentActive() || segment.size == 0) {
+                continue;
+            }
+            long data = segment.dataBytes.get();
+            // Segments holding nothing but tombstones go as well
+            if (data == 0 || (double) segment.liveBytes.get() / data < compactionThreshold) {
+                compact(segment);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        for (Segment segment : retired) {
+            segment.channel.close();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long total = 0;
+        long live = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.size;
+            live += segment.liveBytes.get();
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("store", "segments");
+        metrics.put("blobs", index.size());
+        metrics.put("segments", segments.size());
+        metrics.put("segmentBytes", total);
+        metrics.put("liveBytes", live);
+        metrics.put("reads", reads.sum());
+        metrics.put("compactions", compactions.sum());
+        metrics.put("recordsMoved", recordsMoved.sum());
+        metrics.put("bytesReclaimed", bytesReclaimed.sum());
+        return metrics;
+    }
+
+    // Copies the live records forward one at a time, so uploads only ever wait for a single copy
+    private void compact(Segment segment) throws IOException {
+        AtomicLong moved = new AtomicLong();
+        scan(segment, new RecordVisitor() {
+            @Override
+            public void put(String name, long offset, long dataOffset, long length, long modified) throws IOException {
+                synchronized (SegmentBlobStore.this) {
+                    Location location = index.get(name);
+                    if (location == null || location.segment != segment.id || location.offset != offset) {
+                        return;
+                    }
+                    byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+                    ByteBuffer header = ByteBuffer.allocate(PREFIX_BYTES + nameBytes.length + PUT_TAIL_BYTES);
+                    header.putInt(PUT).putShort((short) nameBytes.length).put(nameBytes)
+                            .putLong(location.lastModified).putLong(length).flip();
+                    Segment target = activeFor(header.remaining() + length);
+                    long start = target.size;
+                    long newDataOffset = start + header.remaining();
+                    writeFully(target.channel, header, start);
+                    copy(segment.channel, dataOffset, target.channel, newDataOffset, length);
+                    target.size = newDataOffset + length;
+                    target.dataBytes.addAndGet(length);
+                    target.liveBytes.addAndGet(length);
+                    moved.addAndGet(length);
+                    index.put(name, new Location(target.id, start, newDataOffset, length, location.lastModified));
+                    segment.liveBytes.addAndGet(-length);
+                    recordsMoved.increment();
+                }
+            }
+
+            @Override
+            public void delete(String name, int targetSegment, long targetOffset) throws IOException {
+                // A tombstone only matters while the segment holding the deleted record is still around
+                if (targetSegment != segment.id && segments.containsKey(targetSegment)) {
+                    synchronized (SegmentBlobStore.this) {
+                        appendTombstone(name, targetSegment, targetOffset);
+                    }
+                }
+            }
+        });
+        synchronized (this) {
+            segments.remove(segment.id);
+            segment.retiredAt = System.currentTimeMillis();
+            retired.add(segment);
+        }
+        compactions.increment();
+        bytesReclaimed.add(segment.size - moved.get());
+    }
+
+    private synchronized void deleteRetired() throws IOException {
+        long cutoff = System.currentTimeMillis() - retireGraceMillis;
+        for (Iterator<Segment> it = retired.iterator(); it.hasNext(); ) {
+            Segment segment = it.next();
+            if (segment.retiredAt <= cutoff) {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized Segment currentActive() {
+        return active;
+    }
+
+    // Caller holds the lock
+    private void appendTombstone(String name, int targetSegment, long targetOffset) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer record = ByteBuffer.allocate(PREFIX_BYTES + nameBytes.length + DELETE_TAIL_BYTES);
+        record.putInt(DELETE).putShort((short) nameBytes.length).put(nameBytes)
+                .putLong(System.currentTimeMillis()).putInt(targetSegment).putLong(targetOffset).flip();
+        Segment segment = activeFor(record.remaining());
+        long start = segment.size;
+        segment.size = start + record.remaining();
+        writeFully(segment.channel, record, start);
+    }
+
+    // Caller holds the lock; starts a new segment when the record would not fit in the current one
+    private Segment activeFor(long recordBytes) throws IOException {
+        if (active.size > 0 && active.size + recordBytes > maxSegmentBytes) {
+            active.channel.force(false);
+            active = openSegment(active.id + 1);
+        }
+        return active;
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(root)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            Segment segment = openSegment(Integer.parseInt(fileName.substring(0, fileName.length() - SUFFIX.length())));
+            long end = scan(segment, new RecordVisitor() {
+                @Override
+                public void put(String name, long offset, long dataOffset, long length, long modified) {
+                    Location previous = index.put(name, new Location(segment.id, offset, dataOffset, length, modified));
+                    release(previous);
+                    segment.dataBytes.addAndGet(length);
+                    segment.liveBytes.addAndGet(length);
+                }
+
+                @Override
+                public void delete(String name, int targetSegment, long targetOffset) {
+                    Location current = index.get(name);
+                    if (current != null && current.segment == targetSegment && current.offset == targetOffset) {
+                        index.remove(name);
+                        release(current);
+                    }
+                }
+            });
+            if (end < segment.channel.size()) {
+                System.err.println("Truncating torn record at " + end + " in " + file);
+                segment.channel.truncate(end);
+            }
+            segment.size = end;
+        }
+        active = segments.isEmpty() ? openSegment(1) : segments.lastEntry().getValue();
+        System.out.println("Segment blob store: " + index.size() + " blobs in " + segments.size() + " segments");
+    }
+
+    private void release(Location location) {
+        if (location != null) {
+            Segment segment = segments.get(location.segment);
+            if (segment != null) {
+                segment.liveBytes.addAndGet(-location.length);
+            }
+        }
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = root.resolve(String.format("%08d%s", id, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel);
+        segment.size = channel.size();
+        segments.put(id, segment);
+        return segment;
+    }
+
+    // Visits each complete record in file order and returns the offset just past the last one
+    private long scan(Segment segment, RecordVisitor visitor) throws IOException {
+        FileChannel channel = segment.channel;
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX_BYTES);
+        while (position < size) {
+            prefix.clear();
+            if (!readFully(channel, prefix, position)) {
+                break;
+            }
+            int type = prefix.getInt(0);
+            int nameLength = prefix.getShort(4);
+            if ((type != PUT && type != DELETE) || nameLength <= 0 || nameLength > 255) {
+                break;
+            }
+            ByteBuffer rest = ByteBuffer.allocate(nameLength + (type == PUT ? PUT_TAIL_BYTES : DELETE_TAIL_BYTES));
+            if (!readFully(channel, rest, position + PREFIX_BYTES)) {
+                break;
+            }
+            rest.flip();
+            byte[] nameBytes = new byte[nameLength];
+            rest.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.US_ASCII);
+            long modified = rest.getLong();
+            long recordEnd;
+            if (type == PUT) {
+                long length = rest.getLong();
+                long dataOffset = position + PREFIX_BYTES + nameLength + PUT_TAIL_BYTES;
+                if (length < 0 || dataOffset + length > size) {
+                    break;
+                }
+                visitor.put(name, position, dataOffset, length, modified);
+                recordEnd = dataOffset + length;
+            } else {
+                visitor.delete(name, rest.getInt(), rest.getLong());
+                recordEnd = position + PREFIX_BYTES + nameLength + DELETE_TAIL_BYTES;
+            }
+            position = recordEnd;
+        }
+        return position;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private static void copy(FileChannel source, long sourcePosition, FileChannel target, long targetPosition, long length)
+            throws IOException {
+        long copied = 0;
+        while (copied < length) {
+            // transferFrom reads from the source's own position; nothing else uses that position
+            source.position(sourcePosition + copied);
+            long count = target.transferFrom(source, targetPosition + copied, length - copied);
+            if (count <= 0) {
+                throw new IOException("Short copy into segment " + target);
+            }
+            copied += count;
+        }
+    }
+
+    private interface RecordVisitor {
+        void put(String name, long offset, long dataOffset, long length, long modified) throws IOException;
+
+        void delete(String name, int targetSegment, long targetOffset) throws IOException;
+    }
+
+    private static class Location {
+        private final int segment;
+        private final long offset;
+        private final long dataOffset;
+        private final long length;
+        private volatile long lastModified;
+
+        private Location(int segment, long offset, long dataOffset, long length, long lastModified) {
+            this.segment = segment;
+            this.offset = offset;
+            this.dataOffset = dataOffset;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        // Append position; only moved under the store lock
+        private volatile long size;
+        private final AtomicLong dataBytes = new AtomicLong();
+        private final AtomicLong liveBytes = new AtomicLong();
+        private volatile MappedByteBuffer mapped;
+        private long retiredAt;
+
+        private Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        /**
+         * Read-only view of a record's bytes. The active segment is remapped
+         * when a record lies past the current mapping; sealed ones are mapped
+         * once.
+         */
+        private ByteBuffer slice(long offset, long length) throws IOException {
+            MappedByteBuffer map = mapped;
+            if (map == null || offset + length > map.capacity()) {
+                synchronized (this) {
+                    map = mapped;
+                    if (map == null || offset + length > map.capacity()) {
+                        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                        mapped = map;
+                    }
+                }
+            }
+            return map.slice((int) offset, (int) length);
+        }
+    }
+}
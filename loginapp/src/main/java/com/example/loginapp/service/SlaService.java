@@ -0,0 +1,310 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QuerySnapshot;
+import com.example.loginapp.repository.QueryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SLA deadlines for queries waiting to be picked up (PENDING) or started
+ * (ASSIGNED). Each such query has one timer in a TimingWheel, set when it
+ * enters the state or changes priority and cancelled when it leaves; the
+ * wheel is ticked by one daemon thread and due queries are escalated in
+ * batches. Escalation raises the priority one step, which restarts the
+ * clock at the new priority's deadline; an URGENT query that is still
+ * overdue is reported again after another URGENT deadline.
+ *
+ * Timers are not persisted. At startup they are recovered from the table,
+ * counting from each query's stateEnteredAt, so edits that leave the status
+ * and priority alone do not push a deadline back.
+ */
+@Service
+public class SlaService {
+
+    static final Set<Query.Status> WATCHED = EnumSet.of(Query.Status.PENDING, Query.Status.ASSIGNED);
+
+    private static final int RECOVERY_CHUNK = 1000;
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Value("${app.sla.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.sla.pending-minutes:LOW=2880,MEDIUM=1440,HIGH=240,URGENT=60}")
+    private String pendingSetting;
+
+    @Value("${app.sla.assigned-minutes:LOW=4320,MEDIUM=2880,HIGH=720,URGENT=240}")
+    private String assignedSetting;
+
+    @Value("${app.sla.tick-millis:1000}")
+    private long tickMillis;
+
+    @Value("${app.sla.wheel-size:4096}")
+    private int wheelSize;
+
+    @Value("${app.sla.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.sla.recent-escalations:200}")
+    private int recentLimit;
+
+    private final Map<Query.Status, Map<Query.Priority, Long>> deadlines = new EnumMap<>(Query.Status.class);
+    private TimingWheel wheel;
+    private ScheduledExecutorService ticker;
+    // Writes the raised priority through QueryService, which registers itself here
+    private volatile Escalator escalator;
+
+    private final Deque<Escalation> recent = new ArrayDeque<>();
+
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder escalated = new LongAdder();
+    private final LongAdder reported = new LongAdder();
+    private final LongAdder resolvedMeanwhile = new LongAdder();
+    private final LongAdder changedMeanwhile = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        deadlines.put(Query.Status.PENDING, parseDeadlines(pendingSetting));
+        deadlines.put(Query.Status.ASSIGNED, parseDeadlines(assignedSetting));
+        wheel = new TimingWheel(tickMillis, wheelSize, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sla-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    public void setEscalator(Escalator escalator) {
+        this.escalator = escalator;
+    }
+
+    // Sets a timer for every waiting query, then starts the clock; overdue ones fire on the first tick
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverTimers() {
+        if (!enabled) {
+            return;
+        }
+        PageRequest chunk = PageRequest.of(0, RECOVERY_CHUNK);
+        List<Object[]> rows;
+        long afterId = 0;
+        int recovered = 0;
+        do {
+            rows = queryRepository.findSlaRowsAfter(afterId, WATCHED, chunk);
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                Query.Status status = (Query.Status) row[1];
+                Query.Priority priority = (Query.Priority) row[2];
+                wheel.schedule(afterId, millis((LocalDateTime) row[3]) + deadlineOf(status, priority));
+                recovered++;
+            }
+        } while (rows.size() == RECOVERY_CHUNK);
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, Math.max(tickMillis, 1), TimeUnit.MILLISECONDS);
+        System.out.println("SLA timers recovered for " + recovered + " waiting queries");
+    }
+
+    // Restarts the clock when a query enters a watched state or changes priority, and stops it when it leaves
+    public void record(QuerySnapshot before, Query after) {
+        if (!enabled) {
+            return;
+        }
+        if (after == null) {
+            if (before != null) {
+                wheel.cancel(before.getId());
+            }
+            return;
+        }
+        if (!WATCHED.contains(after.getStatus())) {
+            wheel.cancel(after.getId());
+            return;
+        }
+        if (before == null || before.getStatus() != after.getStatus() || before.getPriority() != after.getPriority()) {
+            // Counts from when the query entered this state, as recovery does; imported queries keep their own
+            long from = after.getStateEnteredAt() != null ? millis(after.getStateEnteredAt()) : System.currentTimeMillis();
+            wheel.schedule(after.getId(), from + deadlineOf(after.getStatus(), after.getPriority()));
+        }
+    }
+
+    // Run by the sla-timer thread; package-private so tests can drive the clock
+    void tick() {
+        try {
+            List<Long> due = wheel.advance(System.currentTimeMillis());
+            fired.add(due.size());
+            for (int start = 0; start < due.size(); start += Math.max(batchSize, 1)) {
+                escalate(due.subList(start, Math.min(due.size(), start + Math.max(batchSize, 1))));
+            }
+        } catch (Exception e) {
+            System.err.println("SLA tick failed: " + e.getMessage());
+        }
+    }
+
+    // One read for the whole batch; each escalation is its own write
+    private void escalate(List<Long> ids) {
+        for (Query query : queryRepository.findAllById(ids)) {
+            try {
+                if (!WATCHED.contains(query.getStatus())) {
+                    resolvedMeanwhile.increment();
+                    continue;
+                }
+                if (wheel.deadlineOf(query.getId()) != null) {
+                    // Re-armed by a write after this timer fired
+                    continue;
+                }
+                Query.Priority from = query.getPriority();
+                Escalator raise = escalator;
+                if (from != Query.Priority.URGENT && raise != null) {
+                    Query.Priority to = Query.Priority.values()[from.ordinal() + 1];
+                    if (!raise.raise(query.getId(), from, to)) {
+                        // Written by someone else after the read above; that write already re-armed or cancelled the timer
+                        changedMeanwhile.increment();
+                        continue;
+                    }
+                    escalated.increment();
+                    remember(new Escalation(query.getId(), query.getTitle(), query.getStatus(), from, to, LocalDateTime.now()));
+                } else {
+                    wheel.schedule(query.getId(), System.currentTimeMillis() + deadlineOf(query.getStatus(), from));
+                    reported.increment();
+                    remember(new Escalation(query.getId(), query.getTitle(), query.getStatus(), from, from, LocalDateTime.now()));
+                }
+            } catch (Exception e) {
+                failed.increment();
+                System.err.println("SLA escalation failed for query " + query.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Admins read these from the SLA metrics; there is no other notification channel
+    private void remember(Escalation escalation) {
+        System.out.println("SLA breach: query " + escalation.getQueryId() + " " + escalation.getStatus()
+                + " past its " + escalation.getFromPriority() + " deadline, now " + escalation.getToPriority());
+        synchronized (recent) {
+            recent.addFirst(escalation);
+            while (recent.size() > Math.max(recentLimit, 0)) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    public Long getDeadline(Long queryId) {
+        return wheel.deadlineOf(queryId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("timers", wheel.size());
+        metrics.put("fired", fired.sum());
+        metrics.put("escalated", escalated.sum());
+        metrics.put("reportedAtUrgent", reported.sum());
+        metrics.put("resolvedBeforeEscalation", resolvedMeanwhile.sum());
+        metrics.put("changedBeforeEscalation", changedMeanwhile.sum());
+        metrics.put("failed", failed.sum());
+        synchronized (recent) {
+            metrics.put("recentEscalations", new ArrayList<>(recent));
+        }
+        return metrics;
+    }
+
+    private long deadlineOf(Query.Status status, Query.Priority priority) {
+        return deadlines.get(status).get(priority == null ? Query.Priority.MEDIUM : priority);
+    }
+
+    // "LOW=2880,HIGH=240" in minutes; priorities left out get a day
+    private static Map<Query.Priority, Long> parseDeadlines(String setting) {
+        Map<Query.Priority, Long> byPriority = new EnumMap<>(Query.Priority.class);
+        for (Query.Priority priority : Query.Priority.values()) {
+            byPriority.put(priority, TimeUnit.DAYS.toMillis(1));
+        }
+        for (String pair : setting.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length == 2) {
+                byPriority.put(Query.Priority.valueOf(parts[0].trim()),
+                        TimeUnit.MINUTES.toMillis(Long.parseLong(parts[1].trim())));
+            }
+        }
+        return byPriority;
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time == null ? System.currentTimeMillis() : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @FunctionalInterface
+    public interface Escalator {
+        // Raises the priority only if the query is still waiting at `from`; false when it changed meanwhile
+        boolean raise(Long queryId, Query.Priority from, Query.Priority to);
+    }
+
+    public static class Escalation {
+        private final Long queryId;
+        private final String title;
+        private final Query.Status status;
+        private final Query.Priority fromPriority;
+        private final Query.Priority toPriority;
+        private final LocalDateTime at;
+
+        Escalation(Long queryId, String title, Query.Status status, Query.Priority fromPriority,
+                   Query.Priority toPriority, LocalDateTime at) {
+            this.queryId = queryId;
+            this.title = title;
+            this.status = status;
+            this.fromPriority = fromPriority;
+            this.toPriority = toPriority;
+            this.at = at;
+        }
+
+        public Long getQueryId() {
+            return queryId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public Query.Status getStatus() {
+            return status;
+        }
+
+        public Query.Priority getFromPriority() {
+            return fromPriority;
+        }
+
+        public Query.Priority getToPriority() {
+            return toPriority;
+        }
+
+        public LocalDateTime getAt() {
+            return at;
+        }
+    }
+}
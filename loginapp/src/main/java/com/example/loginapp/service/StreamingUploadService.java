@@ -0,0 +1,268 @@
+package com.example.loginapp.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads upload forms straight off the request body. Text fields are
+ * collected as they come; file fields are hashed into blob storage while
+ * they arrive, with the size limits from spring.servlet.multipart enforced
+ * on the running byte count, so an oversized upload is cut off at the limit
+ * rather than after the container has spooled all of it.
+ *
+ * Endpoints using this must not touch request parameters before calling
+ * {@link #receive}: on a multipart request that makes the container parse
+ * and buffer the whole body. (spring.servlet.multipart.resolve-lazily keeps
+ * Spring from doing so up front.)
+ */
+@Service
+public class StreamingUploadService {
+
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Value("${spring.servlet.multipart.max-file-size:10MB}")
+    private DataSize maxFileSize;
+
+    @Value("${spring.servlet.multipart.max-request-size:10MB}")
+    private DataSize maxRequestSize;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder tooLarge = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Reads the whole form. Files are only taken from the named fields (any
+     * other file part is skipped); an empty file input counts as absent.
+     * Query-string parameters are included as fields unless the body sets
+     * the same name.
+     */
+    public Form receive(HttpServletRequest request, Set<String> fileFields) throws IOException {
+        long declared = request.getContentLengthLong();
+        if (declared > maxRequestSize.toBytes()) {
+            tooLarge.increment();
+            throw new TooLarge("Request body of " + declared + " bytes exceeds " + maxRequestSize);
+        }
+
+        Form form = new Form();
+        form.fields.putAll(queryParameters(request.getQueryString()));
+        if (!isMultipart(request.getContentType())) {
+            // Plain form posts carry no files, so letting the container parse them is fine
+            request.getParameterMap().forEach((name, values) -> {
+                if (values.length > 0) {
+                    form.fields.put(name, values[0]);
+                }
+            });
+            return form;
+        }
+
+        active.incrementAndGet();
+        long started = System.nanoTime();
+        CountingInputStream body = new CountingInputStream(request.getInputStream(), maxRequestSize.toBytes(), "Request");
+        try {
+            String boundary = MediaType.parseMediaType(request.getContentType()).getParameter("boundary");
+            MultipartStreamReader reader = new MultipartStreamReader(body, unquote(boundary));
+            MultipartStreamReader.Part part;
+            while ((part = reader.nextPart()) != null) {
+                if (part.getName() == null) {
+                    continue;
+                }
+                if (!part.isFile()) {
+                    form.fields.put(part.getName(), readField(part.getContent()));
+                } else if (fileFields.contains(part.getName()) && !part.getFilename().isEmpty()
+                        && !form.files.containsKey(part.getName())) {
+                    CountingInputStream content = new CountingInputStream(part.getContent(), maxFileSize.toBytes(), "File");
+                    BlobStorageService.StoredBlob blob = blobStorageService.store(content, part.getFilename());
+                    if (blob.getSize() > 0) {
+                        form.files.put(part.getName(), new UploadedFile(part.getFilename(), blob));
+                        files.increment();
+                    }
+                }
+            }
+            uploads.increment();
+            return form;
+        } catch (TooLarge e) {
+            tooLarge.increment();
+            throw e;
+        } catch (IOException | IllegalArgumentException e) {
+            failed.increment();
+            throw e;
+        } finally {
+            bytesReceived.add(body.count);
+            totalNanos.add(System.nanoTime() - started);
+            active.decrementAndGet();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long bytes = bytesReceived.sum();
+        double seconds = totalNanos.sum() / 1_000_000_000.0;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("uploads", uploads.sum());
+        metrics.put("files", files.sum());
+        metrics.put("active", active.get());
+        metrics.put("bytesReceived", bytes);
+        metrics.put("rejectedTooLarge", tooLarge.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("averageMegabytesPerSecond", seconds == 0 ? 0.0 : bytes / 1_048_576.0 / seconds);
+        metrics.put("maxFileBytes", maxFileSize.toBytes());
+        metrics.put("maxRequestBytes", maxRequestSize.toBytes());
+        metrics.put("blobs", blobStorageService.getMetrics());
+        return metrics;
+    }
+
+    private static boolean isMultipart(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    private static String readField(InputStream in) throws IOException {
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            if (value.size() + read > MAX_FIELD_BYTES) {
+                throw new TooLarge("Form field exceeds " + MAX_FIELD_BYTES + " bytes");
+            }
+            value.write(chunk, 0, read);
+        }
+        return value.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> queryParameters(String queryString) {
+        Map<String, String> parameters = new HashMap<>();
+        if (queryString == null || queryString.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : queryString.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.putIfAbsent(name, value);
+        }
+        return parameters;
+    }
+
+    private static String unquote(String value) {
+        if (value != null && value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    // Fails the read as soon as more than `max` bytes have come through
+    private static class CountingInputStream extends FilterInputStream {
+        private final long max;
+        private final String what;
+        private long count;
+
+        private CountingInputStream(InputStream in, long max, String what) {
+            super(in);
+            this.max = max;
+            this.what = what;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                advance(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        private void advance(int read) {
+            count += read;
+            if (count > max) {
+                throw new TooLarge(what + " exceeds " + max + " bytes");
+            }
+        }
+    }
+
+    public static class Form {
+        private final Map<String, String> fields = new HashMap<>();
+        private final Map<String, UploadedFile> files = new HashMap<>();
+
+        public String get(String name) {
+            String value = fields.get(name);
+            return value == null || value.isEmpty() ? null : value;
+        }
+
+        public String require(String name) {
+            String value = get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing form field: " + name);
+            }
+            return value;
+        }
+
+        public Long getLong(String name) {
+            String value = get(name);
+            return value == null ? null : Long.valueOf(value.trim());
+        }
+
+        public UploadedFile getFile(String name) {
+            return files.get(name);
+        }
+    }
+
+    public static class UploadedFile {
+        private final String originalFilename;
+        private final BlobStorageService.StoredBlob blob;
+
+        private UploadedFile(String originalFilename, BlobStorageService.StoredBlob blob) {
+            this.originalFilename = originalFilename;
+            this.blob = blob;
+        }
+
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        public BlobStorageService.StoredBlob getBlob() {
+            return blob;
+        }
+
+        public String getPath() {
+            return blob.getPath();
+        }
+    }
+
+    // Unchecked so it can leave the stream mid-read; the blob store deletes its temp file on the way out
+    public static class TooLarge extends RuntimeException {
+        public TooLarge(String message) {
+            super(message);
+        }
+    }
+}
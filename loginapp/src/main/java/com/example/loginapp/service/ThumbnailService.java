@@ -0,0 +1,339 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.ImageVariants;
+import com.example.loginapp.model.Query;
+import com.example.loginapp.repository.QueryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Makes downscaled JPEG copies of query and completion photos in the
+ * background, so lists can show a small image instead of the full upload.
+ * Work runs on a small bounded pool; each finished set is written to the
+ * query only if its image has not been replaced in the meantime, and until
+ * then the thumbnail endpoint falls back to the original.
+ */
+@Service
+public class ThumbnailService {
+
+    public enum Kind {
+        IMAGE, COMPLETION;
+
+        public String sourceOf(Query query) {
+            return this == IMAGE ? query.getImagePath() : query.getCompletionImagePath();
+        }
+
+        public String thumbnailsOf(Query query) {
+            return this == IMAGE ? query.getImageThumbnails() : query.getCompletionImageThumbnails();
+        }
+    }
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Value("${app.thumbnails.widths:160,480,1024}")
+    private String widthsSetting;
+
+    @Value("${app.thumbnails.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${app.thumbnails.threads:2}")
+    private int threads;
+
+    @Value("${app.thumbnails.queue-capacity:500}")
+    private int queueCapacity;
+
+    private int[] widths;
+    private ThreadPoolExecutor executor;
+
+    // "IMAGE:42" while a set for that query image is queued or running
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder variantsWritten = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        widths = Arrays.stream(widthsSetting.split(","))
+                .map(String::trim)
+                .filter(width -> !width.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .filter(width -> width > 0)
+                .sorted()
+                .distinct()
+                .toArray();
+        // Sources are streams now, which ImageIO would otherwise cache to a temp file first
+        ImageIO.setUseCache(false);
+        int poolSize = Math.max(threads, 1);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        System.out.println("Thumbnail pool: " + poolSize + " threads, widths " + Arrays.toString(widths));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues thumbnails for one image of a query. Returns false when the pool
+     * is full; nothing is lost, the next thumbnail request for that query
+     * schedules it again.
+     */
+    public boolean schedule(Long queryId, Kind kind, String sourcePath) {
+        if (queryId == null || sourcePath == null) {
+            return false;
+        }
+        String key = kind + ":" + queryId;
+        if (!inFlight.add(key)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(queryId, kind, sourcePath);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            rejected.increment();
+            return false;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = generated.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("widths", widths);
+        metrics.put("imagesProcessed", count);
+        metrics.put("variantsWritten", variantsWritten.sum());
+        metrics.put("discardedAsStale", discarded.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("averageMillis", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+        return metrics;
+    }
+
+    private void process(Long queryId, Kind kind, String sourcePath) {
+        long started = System.nanoTime();
+        try {
+            Optional<BlobStore.Blob> source = resolveSource(sourcePath);
+            if (source.isEmpty()) {
+                failed.increment();
+                return;
+            }
+            Map<Integer, String> variants;
+            try (InputStream in = source.get().openStream()) {
+                variants = generate(in);
+            }
+            record(queryId, kind, sourcePath, variants);
+            generated.increment();
+            totalNanos.add(System.nanoTime() - started);
+        } catch (Exception e) {
+            failed.increment();
+            System.err.println("Thumbnail generation failed for query " + queryId + " (" + sourcePath + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one JPEG per configured width below the original's width, each
+     * scaled down from the previous (larger) one. An empty map means there
+     * was nothing worth making, e.g. the photo is already small.
+     */
+    Map<Integer, String> generate(InputStream source) throws IOException {
+        BufferedImage image = read(source, widths.length == 0 ? 0 : widths[widths.length - 1]);
+        Map<Integer, String> variants = new TreeMap<>();
+        if (image == null) {
+            return variants;
+        }
+        int originalWidth = image.getWidth();
+        for (int i = widths.length - 1; i >= 0; i--) {
+            if (widths[i] >= originalWidth) {
+                continue;
+            }
+            image = scale(image, widths[i]);
+            BlobStorageService.StoredBlob blob = blobStorageService.store(
+                    new ByteArrayInputStream(encodeJpeg(image)), "thumbnail.jpg");
+            variants.put(widths[i], blob.getPath());
+            variantsWritten.increment();
+        }
+        return variants;
+    }
+
+    private void record(Long queryId, Kind kind, String sourcePath, Map<Integer, String> variants) {
+        // An empty value marks the image as done so it is not scheduled again
+        String encoded = ImageVariants.format(variants);
+        LocalDateTime now = LocalDateTime.now();
+        int updated = kind == Kind.IMAGE
+                ? queryRepository.setImageThumbnails(queryId, sourcePath, encoded, now)
+                : queryRepository.setCompletionImageThumbnails(queryId, sourcePath, encoded, now);
+        if (updated == 0) {
+            // Image replaced or query deleted meanwhile; the unreferenced blobs are the sweeper's
+            discarded.increment();
+            return;
+        }
+        for (String path : variants.values()) {
+            blobStorageService.retain(path);
+        }
+        queryRepository.findById(queryId).ifPresent(entityTagService::queryChanged);
+    }
+
+    private Optional<BlobStore.Blob> resolveSource(String publicPath) throws IOException {
+        String blob = BlobStorageService.blobName(publicPath);
+        if (blob != null) {
+            return blobStorageService.open(blob);
+        }
+        // Uploads from before content addressing sit directly in the upload directory
+        Optional<Path> legacy = blobStorageService.legacyFile(publicPath);
+        if (legacy.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new BlobStore.Blob(legacy.get(), 0, Files.size(legacy.get()), 0L, null));
+    }
+
+    // Decodes with subsampling when the photo is much wider than the largest variant, which keeps big uploads cheap
+    private static BufferedImage read(InputStream source, int largestWidth) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = largestWidth > 0 ? reader.getWidth(0) / largestWidth : 1;
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halving first, then one bilinear step to the exact width; a single big bilinear step aliases badly
+    private static BufferedImage scale(BufferedImage image, int targetWidth) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth) {
+            current = resize(current, current.getWidth() / 2);
+        }
+        return current.getWidth() == targetWidth ? current : resize(current, targetWidth);
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width) {
+        int height = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha, so transparent PNG areas become white rather than black
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    // Where the thumbnail endpoint sends a client, and whether better variants may still come
+    public static class Thumbnail {
+        private final String path;
+        private final boolean ready;
+
+        public Thumbnail(String path, boolean ready) {
+            this.path = path;
+            this.ready = ready;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public boolean isReady() {
+            return ready;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.loginapp.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel of deadlines keyed by id. A deadline lands in the
+ * bucket of its tick modulo the wheel size; each tick looks at one bucket
+ * and fires the entries that are due, leaving the ones due in a later
+ * rotation. Scheduling and cancelling are O(1), a tick costs the size of
+ * one bucket. Time only moves when advance() is called, which keeps the
+ * wheel independent of any thread or clock.
+ */
+public class TimingWheel {
+
+    private final long tickMillis;
+    private final long originMillis;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Map<Long, Timeout> timeouts = new HashMap<>();
+    // The next tick advance() will process
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        this.tickMillis = Math.max(tickMillis, 1);
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.originMillis = nowMillis;
+    }
+
+    // Sets the key's deadline, replacing any earlier one; past deadlines fire on the next tick
+    public synchronized void schedule(Long key, long deadlineMillis) {
+        cancel(key);
+        long elapsed = deadlineMillis - originMillis;
+        long tick = Math.max(elapsed <= 0 ? 0 : (elapsed + tickMillis - 1) / tickMillis, currentTick);
+        Timeout timeout = new Timeout(key, tick, deadlineMillis);
+        int index = (int) (tick & mask);
+        timeout.next = buckets[index];
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        buckets[index] = timeout;
+        timeouts.put(key, timeout);
+    }
+
+    public synchronized boolean cancel(Long key) {
+        Timeout timeout = timeouts.remove(key);
+        if (timeout == null) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    public synchronized Long deadlineOf(Long key) {
+        Timeout timeout = timeouts.get(key);
+        return timeout == null ? null : timeout.deadlineMillis;
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    public synchronized void clear() {
+        timeouts.clear();
+        Arrays.fill(buckets, null);
+    }
+
+    // Processes every tick up to now and returns the keys whose deadline passed, earliest ticks first
+    public synchronized List<Long> advance(long nowMillis) {
+        List<Long> expired = new ArrayList<>();
+        long targetTick = Math.floorDiv(nowMillis - originMillis, tickMillis);
+        if (targetTick < currentTick) {
+            return expired;
+        }
+        if (targetTick - currentTick >= buckets.length) {
+            // Fell behind by a whole rotation or more: one pass over every bucket is enough
+            for (int index = 0; index < buckets.length; index++) {
+                expire(index, targetTick, expired);
+            }
+        } else {
+            for (long tick = currentTick; tick <= targetTick; tick++) {
+                expire((int) (tick & mask), tick, expired);
+            }
+        }
+        currentTick = targetTick + 1;
+        return expired;
+    }
+
+    private void expire(int index, long tick, List<Long> expired) {
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.tick <= tick) {
+                unlink(timeout);
+                timeouts.remove(timeout.key);
+                expired.add(timeout.key);
+            }
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        int index = (int) (timeout.tick & mask);
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[index] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+    }
+
+    private static class Timeout {
+        final Long key;
+        final long tick;
+        final long deadlineMillis;
+        Timeout previous;
+        Timeout next;
+
+        Timeout(Long key, long tick, long deadlineMillis) {
+            this.key = key;
+            this.tick = tick;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.loginapp.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.loginapp.model.AuthenticatedUser;
+import com.example.loginapp.model.RefreshToken;
+import com.example.loginapp.model.User;
+import com.example.loginapp.repository.RefreshTokenRepository;
+import com.example.loginapp.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Issues short-lived HMAC-signed access tokens carrying the user's id, email,
+ * role and worker type, so requests can be authenticated without loading the
+ * user. Longer-lived refresh tokens are opaque random strings and are
+ * single-use: each refresh revokes the presented token and issues a new one.
+ */
+@Service
+public class TokenService {
+
+    private static final String CLAIM_EMAIL = "email";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_WORKER_TYPE = "workerType";
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.auth.jwt-secret:}")
+    private String jwtSecret;
+
+    @Value("${app.auth.issuer:loginapp}")
+    private String issuer;
+
+    @Value("${app.auth.access-token-ttl-seconds:900}")
+    private long accessTokenTtlSeconds;
+
+    @Value("${app.auth.refresh-token-ttl-days:14}")
+    private long refreshTokenTtlDays;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+
+    @PostConstruct
+    public void initializeSigningKey() {
+        byte[] secret;
+        if (jwtSecret == null || jwtSecret.isBlank()) {
+            secret = new byte[32];
+            random.nextBytes(secret);
+            System.err.println("app.auth.jwt-secret is not set; using a random key, tokens will not survive a restart");
+        } else {
+            secret = jwtSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        algorithm = Algorithm.HMAC256(secret);
+        verifier = JWT.require(algorithm).withIssuer(issuer).build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void purgeExpiredRefreshTokens() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        System.out.println("Purged " + purged + " expired refresh tokens");
+    }
+
+    // A fresh token pair for a user who just proved who they are
+    @Transactional
+    public Map<String, Object> issueTokens(User user) {
+        return issueTokens(user, UUID.randomUUID().toString(), newRefreshToken());
+    }
+
+    /**
+     * Swaps a refresh token for a new pair. Presenting a token that was
+     * already rotated means it leaked, so its whole family is revoked. The
+     * rotation is a conditional update, so of two concurrent refreshes with
+     * the same token only one gets a pair; the other counts as reuse.
+     */
+    @Transactional(noRollbackFor = RuntimeException.class)
+    public Map<String, Object> refresh(String refreshToken) {
+        String tokenHash = hash(refreshToken);
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> new RuntimeException("Unknown refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+        if (stored.getRevokedAt() != null) {
+            throw reused(stored, now);
+        }
+        if (stored.getExpiresAt().isBefore(now)) {
+            throw new RuntimeException("Refresh token expired");
+        }
+        User user = userRepository.findById(stored.getUserId())
+                .orElseThrow(() -> new RuntimeException("User no longer exists"));
+
+        String next = newRefreshToken();
+        if (refreshTokenRepository.rotate(tokenHash, hash(next), now) != 1) {
+            throw reused(stored, now);
+        }
+        return issueTokens(user, stored.getFamilyId(), next);
+    }
+
+    private RuntimeException reused(RefreshToken stored, LocalDateTime now) {
+        refreshTokenRepository.revokeFamily(stored.getFamilyId(), now);
+        return new RuntimeException("Refresh token already used; please sign in again");
+    }
+
+    @Transactional
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(stored -> refreshTokenRepository.revokeFamily(stored.getFamilyId(), LocalDateTime.now()));
+    }
+
+    // Throws JWTVerificationException for a bad signature, wrong issuer or expired token
+    public AuthenticatedUser parseAccessToken(String accessToken) {
+        DecodedJWT token = verifier.verify(accessToken);
+        String workerType = token.getClaim(CLAIM_WORKER_TYPE).asString();
+        return AuthenticatedUser.builder()
+                .id(Long.valueOf(token.getSubject()))
+                .email(token.getClaim(CLAIM_EMAIL).asString())
+                .role(User.Role.valueOf(token.getClaim(CLAIM_ROLE).asString()))
+                .workerType(workerType != null ? User.WorkerType.valueOf(workerType) : null)
+                .build();
+    }
+
+    private Map<String, Object> issueTokens(User user, String familyId, String refreshToken) {
+        Instant now = Instant.now();
+        JWTCreator.Builder accessToken = JWT.create()
+                .withIssuer(issuer)
+                .withSubject(String.valueOf(user.getId()))
+                .withIssuedAt(now)
+                .withExpiresAt(now.plusSeconds(accessTokenTtlSeconds))
+                .withClaim(CLAIM_EMAIL, user.getEmail())
+                .withClaim(CLAIM_ROLE, user.getRole() != null ? user.getRole().name() : User.Role.STUDENT.name());
+        if (user.getWorkerType() != null) {
+            accessToken.withClaim(CLAIM_WORKER_TYPE, user.getWorkerType().name());
+        }
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(refreshToken))
+                .userId(user.getId())
+                .familyId(familyId)
+                .expiresAt(LocalDateTime.now().plusDays(refreshTokenTtlDays))
+                .build());
+
+        Map<String, Object> tokens = new LinkedHashMap<>();
+        tokens.put("tokenType", "Bearer");
+        tokens.put("accessToken", accessToken.sign(algorithm));
+        tokens.put("expiresIn", accessTokenTtlSeconds);
+        tokens.put("refreshToken", refreshToken);
+        return tokens;
+    }
+
+    private String newRefreshToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private String hash(String token) {
+        if (token == null) {
+            throw new RuntimeException("Refresh token is required");
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.ImageVariants;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.QueryStatusHistoryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Finds uploads nothing points at any more and removes them. A run reads
+ * every image column in id-ordered chunks into a Bloom filter, then walks
+ * the stored files: a file the filter has never seen is certainly
+ * unreferenced, but it is still checked against the database (and the blob
+ * reference counts) right before it goes, which also covers rows written
+ * while the run was going. Files younger than the grace period are left
+ * alone, since an upload is stored before the row that references it. The
+ * age is read again inside the store's lock as the file is removed, so a
+ * blob an upload de-duplicated onto during the run is kept.
+ *
+ * By default removed files are moved to uploads/quarantine/ and purged
+ * after the retention period; mode=delete removes them outright and
+ * mode=dry-run only counts them.
+ */
+@Service
+public class UploadSweeperService {
+
+    @Autowired
+    private QueryRepository queryRepository;
+
+    @Autowired
+    private QueryStatusHistoryRepository queryStatusHistoryRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Value("${app.upload.dir:uploads/}")
+    private String uploadDir;
+
+    @Value("${app.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.gc.initial-delay-minutes:10}")
+    private long initialDelayMinutes;
+
+    @Value("${app.gc.interval-minutes:360}")
+    private long intervalMinutes;
+
+    @Value("${app.gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${app.gc.mode:quarantine}")
+    private String mode;
+
+    @Value("${app.gc.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.gc.max-deletes-per-second:50}")
+    private int maxDeletesPerSecond;
+
+    @Value("${app.gc.bloom-false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.gc.max-candidates-per-run:10000}")
+    private int maxCandidatesPerRun;
+
+    @Value("${app.gc.quarantine-retention-days:14}")
+    private long quarantineRetentionDays;
+
+    private ScheduledExecutorService executor;
+    private Path quarantineDir;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder bytesFreed = new LongAdder();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @PostConstruct
+    public void start() {
+        quarantineDir = Paths.get(uploadDir, "quarantine").toAbsolutePath().normalize();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upload-sweeper");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::sweep, initialDelayMinutes,
+                    Math.max(intervalMinutes, 1), TimeUnit.MINUTES);
+            System.out.println("Upload sweeper every " + intervalMinutes + " min, mode " + mode);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    // Starts a run now; false when one is already going
+    public boolean trigger() {
+        if (running.get()) {
+            return false;
+        }
+        executor.execute(this::sweep);
+        return true;
+    }
+
+    void sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", LocalDateTime.now());
+        run.put("mode", mode);
+        try {
+            long cutoff = started - TimeUnit.MINUTES.toMillis(graceMinutes);
+            BloomFilter live = collectLiveReferences(run);
+            List<BlobStore.Entry> candidates = findCandidates(live, cutoff, run);
+            removeUnreferenced(candidates, cutoff, run);
+            run.put("tempFilesRemoved", blobStorageService.cleanTemp(cutoff));
+            run.put("quarantinePurged", purgeQuarantine(started - TimeUnit.DAYS.toMillis(quarantineRetentionDays)));
+            runs.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.put("error", "interrupted");
+        } catch (Exception e) {
+            failures.increment();
+            run.put("error", e.getMessage());
+            System.err.println("Upload sweep failed: " + e.getMessage());
+        } finally {
+            run.put("durationMs", System.currentTimeMillis() - started);
+            lastRun = run;
+            running.set(false);
+        }
+        System.out.println("Upload sweep: " + run);
+    }
+
+    private BloomFilter collectLiveReferences(Map<String, Object> run) {
+        // Two images per query plus a few thumbnail variants of each; a generous estimate only costs bits
+        long expected = queryRepository.count() * 8 + queryStatusHistoryRepository.count() + 1024;
+        BloomFilter live = new BloomFilter(expected, falsePositiveRate);
+        PageRequest chunk = PageRequest.of(0, Math.max(chunkSize, 1));
+        long references = 0;
+
+        List<Object[]> rows;
+        long afterId = 0;
+        do {
+            rows = queryRepository.findImagePathsAfter(afterId, chunk);
+            for (Object[] row : rows) {
+                afterId = ((Number) row[0]).longValue();
+                references += add(live, (String) row[1]) + add(live, (String) row[2]);
+                for (int column = 3; column <= 4; column++) {
+                    for (String path : ImageVariants.paths((String) row[column])) {
+                        references += add(live, path);
+                    }
+                }
+            }
+        } while (rows.size() == chunk.getPageSize());
+
+        afterId = 0;
+        do {
+            rows = queryStatusHistoryRepository.findCompletionImagePathsAfter(afterId, chunk);
+            for (Object[] row : rows) {
+                afterId = ((Number) row[0]).longValue();
+                references += add(live, (String) row[1]);
+            }
+        } while (rows.size() == chunk.getPageSize());
+
+        run.put("liveReferences", references);
+        run.put("bloomBits", live.getBitSize());
+        run.put("bloomHashes", live.getHashCount());
+        run.put("bloomFalsePositiveRate", live.expectedFalsePositiveRate());
+        return live;
+    }
+
+    private int add(BloomFilter live, String publicPath) {
+        String key = blobStorageService.referenceKey(publicPath);
+        if (key == null) {
+            return 0;
+        }
+        live.put(key);
+        return 1;
+    }
+
+    private List<BlobStore.Entry> findCandidates(BloomFilter live, long cutoff, Map<String, Object> run) throws IOException {
+        List<BlobStore.Entry> candidates = new ArrayList<>();
+        long[] counts = new long[3];
+        blobStorageService.forEachStoredFile(entry -> {
+            counts[0]++;
+            if (entry.getLastModified() >= cutoff) {
+                counts[1]++;
+            } else if (live.mightContain(entry.getName())) {
+                counts[2]++;
+            } else if (candidates.size() < maxCandidatesPerRun) {
+                candidates.add(entry);
+            }
+        });
+        run.put("scanned", counts[0]);
+        run.put("withinGracePeriod", counts[1]);
+        run.put("possiblyReferenced", counts[2]);
+        run.put("candidates", candidates.size());
+        return candidates;
+    }
+
+    private void removeUnreferenced(List<BlobStore.Entry> candidates, long cutoff, Map<String, Object> run)
+            throws InterruptedException {
+        boolean dryRun = "dry-run".equalsIgnoreCase(mode);
+        Path quarantine = "delete".equalsIgnoreCase(mode) ? null : quarantineDir;
+        long pauseNanos = maxDeletesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond : 0;
+        long next = System.nanoTime();
+        long verifiedLive = 0;
+        long count = 0;
+        long bytes = 0;
+        for (BlobStore.Entry candidate : candidates) {
+            if (isReferenced(candidate.getName())) {
+                verifiedLive++;
+                continue;
+            }
+            if (dryRun) {
+                count++;
+                bytes += candidate.getLength();
+                continue;
+            }
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            next = Math.max(next, System.nanoTime() - pauseNanos) + pauseNanos;
+            try {
+                // Re-checked against the cutoff inside the store: the listing may be minutes old by now
+                long freed = blobStorageService.removeStoredFile(candidate.getName(), quarantine, cutoff);
+                if (freed >= 0) {
+                    count++;
+                    bytes += freed;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not remove unreferenced upload " + candidate.getName() + ": " + e.getMessage());
+            }
+        }
+        if (!dryRun) {
+            removed.add(count);
+            bytesFreed.add(bytes);
+        }
+        run.put("verifiedLive", verifiedLive);
+        run.put(dryRun ? "wouldRemove" : quarantine == null ? "deleted" : "quarantined", count);
+        run.put(dryRun ? "bytesReclaimable" : "bytesFreed", bytes);
+    }
+
+    // The exact check behind a Bloom filter miss, made as late as possible
+    private boolean isReferenced(String key) {
+        if (BlobStorageService.isBlobName(key) && blobStorageService.getReferenceCount(key) > 0) {
+            return true;
+        }
+        List<String> paths = blobStorageService.referencePaths(key);
+        return queryRepository.countImageReferencesTo(paths, "%" + key + "%") > 0
+                || queryStatusHistoryRepository.countByCompletionImagePathIn(paths) > 0;
+    }
+
+    private int purgeQuarantine(long olderThanMillis) throws IOException {
+        if (!Files.isDirectory(quarantineDir)) {
+            return 0;
+        }
+        int purged = 0;
+        try (Stream<Path> files = Files.walk(quarantineDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (Files.getLastModifiedTime(file).toMillis() < olderThanMillis && Files.deleteIfExists(file)) {
+                    purged++;
+                }
+            }
+        }
+        return purged;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("mode", mode);
+        metrics.put("running", running.get());
+        metrics.put("runs", runs.sum());
+        metrics.put("failedRuns", failures.sum());
+        metrics.put("filesRemoved", removed.sum());
+        metrics.put("bytesFreed", bytesFreed.sum());
+        metrics.put("lastRun", lastRun);
+        return metrics;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.User;
+import lombok.Value;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process directory of users for the admin Users page and worker pickers.
+ * Lower-cased name and email are broken into trigrams; a search intersects the
+ * posting sets of the keyword's trigrams, confirms the substring and ranks by
+ * how well it matched (exact, prefix, word prefix, anywhere). Role and worker
+ * type counts over the matches are returned alongside each page.
+ */
+public class UserDirectoryIndex {
+
+    private static final int GRAM = 3;
+
+    private static final int EXACT = 100;
+    private static final int PREFIX = 80;
+    private static final int WORD_PREFIX = 60;
+    private static final int NAME_CONTAINS = 40;
+    private static final int EMAIL_CONTAINS = 30;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Long>> grams = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        Entry entry = new Entry(user.getId(), normalize(user.getName()), normalize(user.getEmail()),
+                user.getRole(), user.getWorkerType());
+        lock.writeLock().lock();
+        try {
+            removeGrams(entries.put(entry.getId(), entry));
+            for (String gram : gramsOf(entry)) {
+                grams.computeIfAbsent(gram, g -> new HashSet<>()).add(entry.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            removeGrams(entries.remove(userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void replaceAll(Collection<User> users) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            grams.clear();
+            for (User user : users) {
+                put(user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of matching user ids, best match first. A blank keyword matches
+     * everyone (ordered by name); role and workerType narrow the page but not
+     * the facet counts.
+     */
+    public Result search(String keyword, User.Role role, User.WorkerType workerType, int page, int size) {
+        String normalized = normalize(keyword);
+        List<Hit> hits = new ArrayList<>();
+        Map<User.Role, Long> roleCounts = new EnumMap<>(User.Role.class);
+        Map<User.WorkerType, Long> workerTypeCounts = new EnumMap<>(User.WorkerType.class);
+
+        lock.readLock().lock();
+        try {
+            for (Entry entry : candidates(normalized)) {
+                int score = score(entry, normalized);
+                if (score == 0) {
+                    continue;
+                }
+                if (entry.getRole() != null) {
+                    roleCounts.merge(entry.getRole(), 1L, Long::sum);
+                }
+                if (entry.getWorkerType() != null) {
+                    workerTypeCounts.merge(entry.getWorkerType(), 1L, Long::sum);
+                }
+                if ((role == null || role == entry.getRole())
+                        && (workerType == null || workerType == entry.getWorkerType())) {
+                    hits.add(new Hit(entry, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort(Comparator.comparingInt((Hit hit) -> -hit.score)
+                .thenComparing(hit -> hit.entry.getName())
+                .thenComparing(hit -> hit.entry.getId()));
+        int from = Math.min(page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        List<Long> ids = new ArrayList<>(to - from);
+        for (Hit hit : hits.subList(from, to)) {
+            ids.add(hit.entry.getId());
+        }
+        return new Result(ids, hits.size(), roleCounts, workerTypeCounts);
+    }
+
+    // Callers hold the read lock
+    private Collection<Entry> candidates(String keyword) {
+        if (keyword.length() < GRAM) {
+            return entries.values();
+        }
+        Set<Long> matched = null;
+        for (String gram : gramsOf(keyword)) {
+            Set<Long> posting = grams.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            if (matched == null) {
+                matched = new HashSet<>(posting);
+            } else {
+                matched.retainAll(posting);
+            }
+            if (matched.isEmpty()) {
+                return List.of();
+            }
+        }
+        List<Entry> result = new ArrayList<>(matched.size());
+        for (Long id : matched) {
+            result.add(entries.get(id));
+        }
+        return result;
+    }
+
+    private int score(Entry entry, String keyword) {
+        if (keyword.isEmpty()) {
+            return 1;
+        }
+        String name = entry.getName();
+        String email = entry.getEmail();
+        if (name.equals(keyword) || email.equals(keyword)) {
+            return EXACT;
+        }
+        if (name.startsWith(keyword) || email.startsWith(keyword)) {
+            return PREFIX;
+        }
+        int index = name.indexOf(keyword);
+        if (index < 0) {
+            return email.contains(keyword) ? EMAIL_CONTAINS : 0;
+        }
+        // Any occurrence at the start of a later word, e.g. "smi" in "bob smith"
+        for (; index >= 0; index = name.indexOf(keyword, index + 1)) {
+            if (index > 0 && !Character.isLetterOrDigit(name.charAt(index - 1))) {
+                return WORD_PREFIX;
+            }
+        }
+        return NAME_CONTAINS;
+    }
+
+    private void removeGrams(Entry previous) {
+        if (previous == null) {
+            return;
+        }
+        for (String gram : gramsOf(previous)) {
+            Set<Long> posting = grams.get(gram);
+            if (posting != null) {
+                posting.remove(previous.getId());
+                if (posting.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> gramsOf(Entry entry) {
+        Set<String> result = gramsOf(entry.getName());
+        result.addAll(gramsOf(entry.getEmail()));
+        return result;
+    }
+
+    private static Set<String> gramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Value
+    public static class Result {
+        List<Long> ids;
+        long total;
+        Map<User.Role, Long> roleCounts;
+        Map<User.WorkerType, Long> workerTypeCounts;
+    }
+
+    @Value
+    private static class Entry {
+        Long id;
+        String name;
+        String email;
+        User.Role role;
+        User.WorkerType workerType;
+    }
+
+    private static class Hit {
+        private final Entry entry;
+        private final int score;
+
+        private Hit(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+}
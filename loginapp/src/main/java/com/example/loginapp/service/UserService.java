@@ -2,16 +2,25 @@ package com.example.loginapp.service;
 
 import com.example.loginapp.model.User;
 import com.example.loginapp.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
-import java.util.Collections;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
@@ -19,10 +28,51 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
-    private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    @Autowired
+    private GoogleTokenVerifier googleTokenVerifier;
 
-    public boolean validateLogin(String email, String password) {
-        Optional<User> userOpt = userRepository.findByEmail(email);
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.users.search.max-results:100}")
+    private int maxSearchResults;
+
+    @Value("${app.users.directory.max-page-size:100}")
+    private int maxDirectoryPageSize;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    // Runs password upgrades after a login has already been answered
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
+    // Name/email search index, kept in step with every write made through this service
+    private final UserDirectoryIndex directory = new UserDirectoryIndex();
+
+    // Runs after DatabaseInitializer and the other startup seeders have written their users
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildDirectory() {
+        directory.replaceAll(userRepository.findAll());
+        System.out.println("User directory built with " + directory.size() + " users");
+    }
+
+    // Completes once the password check has run on the verification pool; plain-text matches complete at once
+    public CompletableFuture<Boolean> validateLogin(String email, String password) {
+        Optional<User> userOpt = Optional.ofNullable(getUserByEmail(email));
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             System.out.println("Login attempt - Email: " + email + ", Password: " + password);
@@ -31,25 +81,49 @@ public class UserService {
             // For local development, use simple text comparison first
             if (user.getPassword().equals(password)) {
                 System.out.println("Plain text password match!");
-                return true;
+                return CompletableFuture.completedFuture(true);
             }
             
             // Check if stored password is hashed and try BCrypt validation
             if (user.getPassword().startsWith("$2a$") || user.getPassword().startsWith("$2b$")) {
-                boolean matches = passwordEncoder.matches(password, user.getPassword());
-                System.out.println("BCrypt password match: " + matches);
-                return matches;
+                return passwordHashingService.matchesAsync(password, user.getPassword()).thenApply(matches -> {
+                    System.out.println("BCrypt password match: " + matches);
+                    if (matches && passwordHashingService.needsRehash(user.getPassword())) {
+                        // Its own task: the login does not wait for it, and the verification thread is freed now
+                        CompletableFuture.runAsync(() -> rehashPassword(user, password), taskExecutor);
+                    }
+                    return matches;
+                });
             }
             
             System.out.println("No password match found");
         } else {
             System.out.println("User not found for email: " + email);
         }
-        return false;
+        return CompletableFuture.completedFuture(false);
     }
 
+    // The password was just verified, so store it again at the configured cost
+    private void rehashPassword(User user, String password) {
+        try {
+            UserStatsService.Bucket before = UserStatsService.Bucket.of(user);
+            user.setPassword(passwordHashingService.encode(password));
+            afterSave(before, userRepository.save(user));
+            System.out.println("Rehashed password for " + user.getEmail() + " at cost " + passwordHashingService.getBcryptCost());
+        } catch (Exception e) {
+            // The login itself already succeeded
+            System.err.println("Password rehash failed for " + user.getEmail() + ": " + e.getMessage());
+        }
+    }
+
+    // Natural-id lookup, answered from the users-by-email and users cache regions when warm
     public User getUserByEmail(String email) {
-        return userRepository.findByEmail(email).orElse(null);
+        if (email == null) {
+            return null;
+        }
+        return transactionTemplate.execute(status -> entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .load(email));
     }
 
     public User getUserById(Long id) {
@@ -80,25 +154,17 @@ public class UserService {
         Optional<User> userOpt = userRepository.findById(id);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
+            UserStatsService.Bucket before = UserStatsService.Bucket.of(user);
             user.setRole(role);
-            return userRepository.save(user);
+            User savedUser = userRepository.save(user);
+            afterSave(before, savedUser);
+            return savedUser;
         }
         return null;
     }
 
     public Object getUserStats() {
-        List<User> allUsers = userRepository.findAll();
-        long totalUsersCount = allUsers.size();
-        long adminsCount = allUsers.stream().filter(u -> u.getRole() == User.Role.ADMIN).count();
-        long workersCount = allUsers.stream().filter(u -> u.getRole() == User.Role.WORKER).count();
-        long studentsCount = allUsers.stream().filter(u -> u.getRole() == User.Role.STUDENT).count();
-        
-        return new Object() {
-            public final long totalUsers = totalUsersCount;
-            public final long admins = adminsCount;
-            public final long workers = workersCount;
-            public final long students = studentsCount;
-        };
+        return userStatsService.getSnapshot();
     }
 
     public User saveUser(User user) {
@@ -110,7 +176,13 @@ public class UserService {
         // For local development, keep passwords as plain text
         // Don't encrypt passwords to make login easier
         System.out.println("Saving user with plain text password for local development");
-        return userRepository.save(user);
+        UserStatsService.Bucket before = null;
+        if (user.getId() != null) {
+            before = userRepository.findById(user.getId()).map(UserStatsService.Bucket::of).orElse(null);
+        }
+        User savedUser = userRepository.save(user);
+        afterSave(before, savedUser);
+        return savedUser;
     }
 
     public User registerUser(User user) {
@@ -124,11 +196,61 @@ public class UserService {
     }
 
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        userRepository.findById(id).ifPresent(user -> {
+            userRepository.delete(user);
+            userStatsService.record(UserStatsService.Bucket.of(user), null);
+            directory.remove(id);
+            assignmentService.onUserDeleted(id);
+            entityTagService.usersChanged();
+        });
     }
 
     public List<User> searchUsers(String keyword) {
-        return userRepository.searchUsers(keyword);
+        return loadInOrder(directory.search(keyword, null, null, 0, maxSearchResults).getIds());
+    }
+
+    /**
+     * Paged directory search ranked by match quality, with role and worker
+     * type counts for the keyword so the page can show filter badges.
+     */
+    public Map<String, Object> searchDirectory(String keyword, User.Role role, User.WorkerType workerType,
+                                               int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxDirectoryPageSize));
+        int pageNumber = Math.max(page, 0);
+        UserDirectoryIndex.Result result = directory.search(keyword, role, workerType, pageNumber, pageSize);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", loadInOrder(result.getIds()));
+        response.put("total", result.getTotal());
+        response.put("page", pageNumber);
+        response.put("size", pageSize);
+        response.put("roleCounts", result.getRoleCounts());
+        response.put("workerTypeCounts", result.getWorkerTypeCounts());
+        return response;
+    }
+
+    // findAllById returns rows in no particular order; put them back in rank order
+    private List<User> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> byId = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(user -> user.getId(), Function.identity()));
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private void afterSave(UserStatsService.Bucket before, User savedUser) {
+        userStatsService.record(before, UserStatsService.Bucket.of(savedUser));
+        directory.put(savedUser);
+        assignmentService.onUserSaved(savedUser);
+        entityTagService.usersChanged();
     }
 
     public User updateUser(User user) {
@@ -139,6 +261,7 @@ public class UserService {
         if (existingUserOpt.isPresent()) {
             User existingUser = existingUserOpt.get();
             System.out.println("Found existing user: " + existingUser.getName());
+            UserStatsService.Bucket before = UserStatsService.Bucket.of(existingUser);
             
             // Update fields
             existingUser.setName(user.getName());
@@ -150,12 +273,13 @@ public class UserService {
             // Only update password if provided
             if (user.getPassword() != null && !user.getPassword().isEmpty()) {
                 System.out.println("Updating password for user: " + existingUser.getName());
-                existingUser.setPassword(passwordEncoder.encode(user.getPassword()));
+                existingUser.setPassword(passwordHashingService.encode(user.getPassword()));
             } else {
                 System.out.println("Password not provided or empty, keeping existing password");
             }
             
             User savedUser = userRepository.save(existingUser);
+            afterSave(before, savedUser);
             System.out.println("User updated successfully: " + savedUser.getName());
             return savedUser;
         } else {
@@ -164,41 +288,12 @@ public class UserService {
     }
 
     public String validateGoogleToken(String credential) {
-        try {
-            System.out.println("Validating Google token...");
-            
-            // Use Google's official library to verify the token
-            GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(
-                    new NetHttpTransport(),
-                    new GsonFactory())
-                    .setAudience(Collections.singletonList("791771900325-5ijss13doodjul67iun04cofqqtjn37s.apps.googleusercontent.com"))
-                    .build();
-
-            GoogleIdToken idToken = verifier.verify(credential);
-            if (idToken != null) {
-                GoogleIdToken.Payload payload = idToken.getPayload();
-                String email = payload.getEmail();
-                boolean emailVerified = Boolean.valueOf(payload.getEmailVerified());
-                
-                System.out.println("Token verified. Email: " + email + ", Verified: " + emailVerified);
-                
-                if (emailVerified && email != null) {
-                    // Allow any valid Google email address
-                    System.out.println("Valid Google email: " + email);
-                    return email;
-                } else {
-                    System.out.println("Email not verified or null");
-                    return null;
-                }
-            } else {
-                System.out.println("Invalid ID token - verification failed");
-                return null;
-            }
-        } catch (Exception e) {
-            System.out.println("Token validation error: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+        System.out.println("Validating Google token...");
+        String email = googleTokenVerifier.verify(credential);
+        if (email != null) {
+            System.out.println("Valid Google email: " + email);
         }
+        return email;
     }
 
     public User createGoogleUser(String email) {
@@ -214,7 +309,9 @@ public class UserService {
                 .workerType(null) // Students don't have worker type
                 .build();
                 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        afterSave(null, savedUser);
+        return savedUser;
     }
 
     public List<User> getWorkers() {
@@ -227,7 +324,7 @@ public class UserService {
             User student1 = User.builder()
                     .name("Alice Johnson")
                     .email("student1@college.edu")
-                    .password(passwordEncoder.encode("password123"))
+                    .password(passwordHashingService.encode("password123"))
                     .role(User.Role.STUDENT)
                     .phone("9876543211")
                     .build();
@@ -238,7 +335,7 @@ public class UserService {
             User student2 = User.builder()
                     .name("Bob Smith")
                     .email("student2@college.edu")
-                    .password(passwordEncoder.encode("password123"))
+                    .password(passwordHashingService.encode("password123"))
                     .role(User.Role.STUDENT)
                     .phone("9876543212")
                     .build();
@@ -250,7 +347,7 @@ public class UserService {
             User electrician = User.builder()
                     .name("David Electrician")
                     .email("electrician2@college.edu")
-                    .password(passwordEncoder.encode("password123"))
+                    .password(passwordHashingService.encode("password123"))
                     .role(User.Role.WORKER)
                     .workerType(User.WorkerType.ELECTRICIAN)
                     .phone("9876543213")
@@ -262,7 +359,7 @@ public class UserService {
             User plumber = User.builder()
                     .name("Sarah Plumber")
                     .email("plumber2@college.edu")
-                    .password(passwordEncoder.encode("password123"))
+                    .password(passwordHashingService.encode("password123"))
                     .role(User.Role.WORKER)
                     .workerType(User.WorkerType.PLUMBER)
                     .phone("9876543214")
@@ -274,7 +371,7 @@ public class UserService {
             User carpenter = User.builder()
                     .name("Mike Carpenter")
                     .email("carpenter2@college.edu")
-                    .password(passwordEncoder.encode("password123"))
+                    .password(passwordHashingService.encode("password123"))
                     .role(User.Role.WORKER)
                     .workerType(User.WorkerType.CARPENTER)
                     .phone("9876543215")
@@ -287,11 +384,16 @@ public class UserService {
             User admin = User.builder()
                     .name("Super Admin")
                     .email("admin2@college.edu")
-                    .password(passwordEncoder.encode("password123"))
+                    .password(passwordHashingService.encode("password123"))
                     .role(User.Role.ADMIN)
                     .phone("9876543216")
                     .build();
             userRepository.save(admin);
         }
+
+        rebuildDirectory();
+        userStatsService.reload();
+        assignmentService.reload();
+        entityTagService.usersChanged();
     }
 }
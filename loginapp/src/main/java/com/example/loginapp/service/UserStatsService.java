@@ -0,0 +1,122 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.User;
+import com.example.loginapp.repository.UserRepository;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * User counts per role x worker type (column 0 holds users without a worker
+ * type). Loaded with one GROUP BY once startup seeding is done, then moved
+ * along by UserService on create, update, role change and delete.
+ */
+@Service
+public class UserStatsService {
+
+    private static final User.Role[] ROLES = User.Role.values();
+    private static final User.WorkerType[] WORKER_TYPES = User.WorkerType.values();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final LongAdder[][] counters = new LongAdder[ROLES.length][WORKER_TYPES.length + 1];
+
+    public UserStatsService() {
+        for (int r = 0; r < ROLES.length; r++) {
+            for (int w = 0; w <= WORKER_TYPES.length; w++) {
+                counters[r][w] = new LongAdder();
+            }
+        }
+    }
+
+    // DatabaseInitializer inserts users straight through the repository, so wait for it
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeCounters() {
+        reload();
+    }
+
+    public synchronized void reload() {
+        long[][] fresh = new long[ROLES.length][WORKER_TYPES.length + 1];
+        List<Object[]> rows = userRepository.countGroupedByRoleAndWorkerType();
+        for (Object[] row : rows) {
+            User.Role role = (User.Role) row[0];
+            if (role != null) {
+                fresh[role.ordinal()][column((User.WorkerType) row[1])] += ((Number) row[2]).longValue();
+            }
+        }
+        for (int r = 0; r < ROLES.length; r++) {
+            for (int w = 0; w <= WORKER_TYPES.length; w++) {
+                counters[r][w].reset();
+                counters[r][w].add(fresh[r][w]);
+            }
+        }
+        System.out.println("User stats loaded from " + rows.size() + " aggregate rows");
+    }
+
+    // null before: the user is new; null after: the user was deleted
+    public void record(Bucket before, Bucket after) {
+        if (before != null && before.equals(after)) {
+            return;
+        }
+        if (before != null) {
+            counters[before.getRole().ordinal()][column(before.getWorkerType())].decrement();
+        }
+        if (after != null) {
+            counters[after.getRole().ordinal()][column(after.getWorkerType())].increment();
+        }
+    }
+
+    public long getCountByRole(User.Role role) {
+        long total = 0;
+        for (LongAdder cell : counters[role.ordinal()]) {
+            total += cell.sum();
+        }
+        return total;
+    }
+
+    public Map<String, Object> getSnapshot() {
+        long total = 0;
+        for (User.Role role : ROLES) {
+            total += getCountByRole(role);
+        }
+
+        // Only workers are broken down; students and admins carry a worker type only by accident
+        Map<User.WorkerType, Long> workersByType = new LinkedHashMap<>();
+        for (User.WorkerType workerType : WORKER_TYPES) {
+            workersByType.put(workerType, counters[User.Role.WORKER.ordinal()][column(workerType)].sum());
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("totalUsers", total);
+        snapshot.put("admins", getCountByRole(User.Role.ADMIN));
+        snapshot.put("workers", getCountByRole(User.Role.WORKER));
+        snapshot.put("students", getCountByRole(User.Role.STUDENT));
+        snapshot.put("workersByType", workersByType);
+        snapshot.put("workersWithoutType", counters[User.Role.WORKER.ordinal()][0].sum());
+        return snapshot;
+    }
+
+    private static int column(User.WorkerType workerType) {
+        return workerType == null ? 0 : workerType.ordinal() + 1;
+    }
+
+    @Value
+    public static class Bucket {
+        User.Role role;
+        User.WorkerType workerType;
+
+        public static Bucket of(User user) {
+            if (user == null || user.getRole() == null) {
+                return null;
+            }
+            return new Bucket(user.getRole(), user.getWorkerType());
+        }
+    }
+}
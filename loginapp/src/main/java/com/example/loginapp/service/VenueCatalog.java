@@ -0,0 +1,216 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Venue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable, versioned snapshot of the venue catalog. Name, location and
+ * building (whole values and individual words, lower-cased) are kept in one
+ * sorted key array, so a prefix lookup is a binary search followed by a short
+ * scan. VenueService swaps in a new snapshot on every write; readers never lock.
+ */
+public class VenueCatalog {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BUILDING_WEIGHT = 2;
+    private static final int LOCATION_WEIGHT = 1;
+    // Whole-value matches rank above matches on a later word
+    private static final int WHOLE_VALUE_BONUS = 4;
+    private static final int MAX_SCANNED_KEYS = 2000;
+
+    private static final Comparator<Venue> BY_NAME = Comparator.comparing(
+            (Venue venue) -> venue.getName() == null ? "" : venue.getName().toLowerCase(Locale.ROOT))
+            .thenComparing((Venue venue) -> venue.getId(), Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final long version;
+    private final List<Venue> venues;
+    private final Map<Long, Venue> byId;
+    private final String[] keys;
+    private final int[] keyVenues;
+    private final int[] keyWeights;
+
+    private VenueCatalog(long version, List<Venue> venues) {
+        this.version = version;
+        this.venues = Collections.unmodifiableList(venues);
+
+        Map<Long, Venue> ids = new HashMap<>();
+        List<KeyEntry> entries = new ArrayList<>();
+        for (int i = 0; i < venues.size(); i++) {
+            Venue venue = venues.get(i);
+            ids.put(venue.getId(), venue);
+            addKeys(entries, venue.getName(), i, NAME_WEIGHT);
+            addKeys(entries, venue.getBuilding(), i, BUILDING_WEIGHT);
+            addKeys(entries, venue.getLocation(), i, LOCATION_WEIGHT);
+        }
+        entries.sort(Comparator.comparing((KeyEntry entry) -> entry.key));
+
+        this.byId = Collections.unmodifiableMap(ids);
+        this.keys = new String[entries.size()];
+        this.keyVenues = new int[entries.size()];
+        this.keyWeights = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            keys[i] = entries.get(i).key;
+            keyVenues[i] = entries.get(i).venue;
+            keyWeights[i] = entries.get(i).weight;
+        }
+    }
+
+    public static VenueCatalog of(long version, Collection<Venue> venues) {
+        List<Venue> sorted = new ArrayList<>(venues);
+        sorted.sort(BY_NAME);
+        return new VenueCatalog(version, sorted);
+    }
+
+    public static VenueCatalog empty() {
+        return new VenueCatalog(0L, new ArrayList<>());
+    }
+
+    public VenueCatalog with(Venue venue) {
+        List<Venue> next = new ArrayList<>(venues.size() + 1);
+        for (Venue existing : venues) {
+            if (!existing.getId().equals(venue.getId())) {
+                next.add(existing);
+            }
+        }
+        next.add(venue);
+        return of(version + 1, next);
+    }
+
+    public VenueCatalog without(Long venueId) {
+        List<Venue> next = new ArrayList<>(venues.size());
+        for (Venue existing : venues) {
+            if (!existing.getId().equals(venueId)) {
+                next.add(existing);
+            }
+        }
+        return of(version + 1, next);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Venue> getVenues() {
+        return venues;
+    }
+
+    public int size() {
+        return venues.size();
+    }
+
+    public Optional<Venue> getById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * Venues with a name, building or location (or a word in one) starting
+     * with the prefix, best match first.
+     */
+    public List<Venue> autocomplete(String prefix, int limit) {
+        String normalized = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return venues.subList(0, Math.min(limit, venues.size()));
+        }
+
+        Map<Integer, Integer> bestWeight = new LinkedHashMap<>();
+        int start = lowerBound(normalized);
+        for (int i = start; i < keys.length && i - start < MAX_SCANNED_KEYS && keys[i].startsWith(normalized); i++) {
+            bestWeight.merge(keyVenues[i], keyWeights[i], Math::max);
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(bestWeight.entrySet());
+        // Catalog order is by name, so equal weights stay alphabetical
+        ranked.sort(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Venue> results = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            results.add(venues.get(ranked.get(i).getKey()));
+        }
+        return results;
+    }
+
+    // Case-insensitive substring match on name, location or building
+    public List<Venue> search(String keyword) {
+        String normalized = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        List<Venue> results = new ArrayList<>();
+        for (Venue venue : venues) {
+            if (contains(venue.getName(), normalized) || contains(venue.getLocation(), normalized)
+                    || contains(venue.getBuilding(), normalized)) {
+                results.add(venue);
+            }
+        }
+        return results;
+    }
+
+    public List<Venue> byType(Venue.VenueType type) {
+        List<Venue> results = new ArrayList<>();
+        for (Venue venue : venues) {
+            if (venue.getType() == type) {
+                results.add(venue);
+            }
+        }
+        return results;
+    }
+
+    public List<Venue> byBuilding(String building) {
+        List<Venue> results = new ArrayList<>();
+        for (Venue venue : venues) {
+            if (venue.getBuilding() != null && venue.getBuilding().equalsIgnoreCase(building)) {
+                results.add(venue);
+            }
+        }
+        return results;
+    }
+
+    private int lowerBound(String prefix) {
+        int index = Arrays.binarySearch(keys, prefix);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // Step back over duplicates of the same key
+        while (index > 0 && keys[index - 1].equals(prefix)) {
+            index--;
+        }
+        return index;
+    }
+
+    private static boolean contains(String value, String keyword) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(keyword);
+    }
+
+    private static void addKeys(List<KeyEntry> entries, String value, int venue, int weight) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        entries.add(new KeyEntry(normalized, venue, weight + WHOLE_VALUE_BONUS));
+        String[] words = normalized.split("[^\\p{L}\\p{Nd}]+");
+        for (int i = 1; i < words.length; i++) {
+            if (!words[i].isEmpty()) {
+                entries.add(new KeyEntry(words[i], venue, weight));
+            }
+        }
+    }
+
+    private static class KeyEntry {
+        private final String key;
+        private final int venue;
+        private final int weight;
+
+        private KeyEntry(String key, int venue, int weight) {
+            this.key = key;
+            this.venue = venue;
+            this.weight = weight;
+        }
+    }
+}
@@ -8,38 +8,68 @@ import jakarta.annotation.PostConstruct;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Venue reads are served from an in-memory {@link VenueCatalog} snapshot;
+ * the table is small and rarely written, so each write builds a new snapshot
+ * and swaps it in while readers keep using the one they already hold.
+ */
 @Service
 public class VenueService {
 
     @Autowired
     private VenueRepository venueRepository;
 
+    @Autowired
+    private EntityTagService entityTagService;
+
+    private volatile VenueCatalog catalog = VenueCatalog.empty();
+
     public List<Venue> getAllVenues() {
-        return venueRepository.findAll();
+        return catalog.getVenues();
     }
 
     public Optional<Venue> getVenueById(Long id) {
-        return venueRepository.findById(id);
+        return catalog.getById(id);
     }
 
-    public Venue saveVenue(Venue venue) {
-        return venueRepository.save(venue);
+    public synchronized Venue saveVenue(Venue venue) {
+        Venue savedVenue = venueRepository.save(venue);
+        catalog = catalog.with(savedVenue);
+        entityTagService.venuesChanged();
+        return savedVenue;
     }
 
-    public void deleteVenue(Long id) {
+    public synchronized void deleteVenue(Long id) {
         venueRepository.deleteById(id);
+        catalog = catalog.without(id);
+        entityTagService.venuesChanged();
     }
 
     public List<Venue> getVenuesByType(Venue.VenueType type) {
-        return venueRepository.findByType(type);
+        return catalog.byType(type);
     }
 
     public List<Venue> searchVenues(String keyword) {
-        return venueRepository.searchVenues(keyword);
+        return catalog.search(keyword);
     }
 
     public List<Venue> getVenuesByBuilding(String building) {
-        return venueRepository.findByBuildingIgnoreCase(building);
+        return catalog.byBuilding(building);
+    }
+
+    public List<Venue> autocompleteVenues(String prefix, int limit) {
+        return catalog.autocomplete(prefix, limit);
+    }
+
+    public long getCatalogVersion() {
+        return catalog.getVersion();
+    }
+
+    // Re-reads the table, e.g. after rows were changed outside this service
+    public synchronized void reloadCatalog() {
+        catalog = VenueCatalog.of(catalog.getVersion() + 1, venueRepository.findAll());
+        entityTagService.venuesChanged();
+        System.out.println("Venue catalog loaded: " + catalog.size() + " venues, version " + catalog.getVersion());
     }
 
     @PostConstruct
@@ -48,6 +78,7 @@ public class VenueService {
             // Create sample venues
             createSampleVenues();
         }
+        reloadCatalog();
     }
 
     private void createSampleVenues() {
@@ -0,0 +1,211 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.User;
+import lombok.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted open load per worker, for handing the next ticket to whoever has
+ * the least on their plate. Workers are kept in one indexed binary min-heap
+ * per worker type, ordered by load and then by how long ago they were last
+ * picked, so workers with equal load take turns. Picking, adding load and
+ * removing a worker are O(log n).
+ */
+public class WorkerLoadIndex {
+
+    private final Map<Long, Worker> workers = new HashMap<>();
+    private final Map<User.WorkerType, Heap> heaps = new EnumMap<>(User.WorkerType.class);
+    private long picks;
+
+    // Adds or retypes a worker; a worker already known keeps its load
+    public synchronized void putWorker(Long workerId, User.WorkerType type, long load) {
+        Worker worker = workers.get(workerId);
+        if (worker == null) {
+            worker = new Worker(workerId);
+            worker.load = load;
+            workers.put(workerId, worker);
+        } else if (worker.type == type) {
+            return;
+        } else if (worker.type != null) {
+            heaps.get(worker.type).remove(worker);
+        }
+        worker.type = type;
+        if (type != null) {
+            heaps.computeIfAbsent(type, t -> new Heap()).add(worker);
+        }
+    }
+
+    public synchronized void removeWorker(Long workerId) {
+        Worker worker = workers.remove(workerId);
+        if (worker != null && worker.type != null) {
+            heaps.get(worker.type).remove(worker);
+        }
+    }
+
+    public synchronized boolean contains(Long workerId) {
+        return workers.containsKey(workerId);
+    }
+
+    // Load of workers the index does not know is not tracked; a reload counts it again
+    public synchronized void addLoad(Long workerId, long delta) {
+        Worker worker = workerId == null || delta == 0 ? null : workers.get(workerId);
+        if (worker == null) {
+            return;
+        }
+        worker.load += delta;
+        if (worker.type != null) {
+            heaps.get(worker.type).update(worker, delta < 0);
+        }
+    }
+
+    /**
+     * Takes the least loaded worker of the type and adds the weight to their
+     * load in the same step, so concurrent picks spread out. Null when there
+     * is no worker of that type.
+     */
+    public synchronized Long pick(User.WorkerType type, long weight) {
+        Heap heap = heaps.get(type);
+        if (heap == null || heap.size == 0) {
+            return null;
+        }
+        Worker worker = heap.items[0];
+        worker.load += weight;
+        worker.lastPicked = ++picks;
+        heap.update(worker, false);
+        return worker.id;
+    }
+
+    public synchronized long loadOf(Long workerId) {
+        Worker worker = workers.get(workerId);
+        return worker == null ? 0 : worker.load;
+    }
+
+    public synchronized int size() {
+        return workers.size();
+    }
+
+    public synchronized void clear() {
+        workers.clear();
+        heaps.clear();
+    }
+
+    // Every worker of each type, least loaded (next to be picked) first
+    public synchronized Map<User.WorkerType, List<Load>> snapshot() {
+        Map<User.WorkerType, List<Load>> snapshot = new EnumMap<>(User.WorkerType.class);
+        for (Map.Entry<User.WorkerType, Heap> entry : heaps.entrySet()) {
+            Heap heap = entry.getValue();
+            Worker[] ordered = Arrays.copyOf(heap.items, heap.size);
+            Arrays.sort(ordered, WorkerLoadIndex::compare);
+            List<Load> loads = new ArrayList<>(ordered.length);
+            for (Worker worker : ordered) {
+                loads.add(new Load(worker.id, worker.load));
+            }
+            snapshot.put(entry.getKey(), loads);
+        }
+        return snapshot;
+    }
+
+    private static int compare(Worker a, Worker b) {
+        if (a.load != b.load) {
+            return Long.compare(a.load, b.load);
+        }
+        if (a.lastPicked != b.lastPicked) {
+            return Long.compare(a.lastPicked, b.lastPicked);
+        }
+        return Long.compare(a.id, b.id);
+    }
+
+    @Value
+    public static class Load {
+        Long workerId;
+        long load;
+    }
+
+    private static class Worker {
+        final Long id;
+        User.WorkerType type;
+        long load;
+        long lastPicked;
+        // Position in its type's heap
+        int index = -1;
+
+        Worker(Long id) {
+            this.id = id;
+        }
+    }
+
+    private static class Heap {
+        Worker[] items = new Worker[8];
+        int size;
+
+        void add(Worker worker) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            place(worker, size++);
+            siftUp(worker.index);
+        }
+
+        void remove(Worker worker) {
+            int index = worker.index;
+            Worker last = items[--size];
+            items[size] = null;
+            worker.index = -1;
+            if (last != worker) {
+                place(last, index);
+                siftDown(index);
+                siftUp(last.index);
+            }
+        }
+
+        // A lower load can only move a worker up, a higher one (or a fresh pick) only down
+        void update(Worker worker, boolean decreased) {
+            if (decreased) {
+                siftUp(worker.index);
+            } else {
+                siftDown(worker.index);
+            }
+        }
+
+        private void siftUp(int index) {
+            Worker worker = items[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (compare(worker, items[parent]) >= 0) {
+                    break;
+                }
+                place(items[parent], index);
+                index = parent;
+            }
+            place(worker, index);
+        }
+
+        private void siftDown(int index) {
+            Worker worker = items[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < size && compare(items[right], items[child]) < 0) {
+                    child = right;
+                }
+                if (compare(worker, items[child]) <= 0) {
+                    break;
+                }
+                place(items[child], index);
+                index = child;
+            }
+            place(worker, index);
+        }
+
+        private void place(Worker worker, int index) {
+            items[index] = worker;
+            worker.index = index;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.loginapp.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdGeneratorAlignerTests {
+
+	private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+	private IdGeneratorAligner aligner;
+
+	@BeforeEach
+	void setUp() {
+		aligner = new IdGeneratorAligner();
+		ReflectionTestUtils.setField(aligner, "jdbcTemplate", jdbc);
+	}
+
+	@Test
+	void startsAMissingGeneratorAFullBlockPastTheHighestId() throws Exception {
+		maxId("queries", 120L);
+		generator("queries");
+		maxId("query_status_history", 0L);
+		generator("query_status_history");
+
+		aligner.run();
+
+		verify(jdbc).update("INSERT INTO id_generators (sequence_name, next_val) VALUES (?, ?)", "queries", 171L);
+		// Nothing to protect in an empty table
+		verify(jdbc, never()).update(anyString(), eq("query_status_history"), eq(51L));
+	}
+
+	@Test
+	void movesAGeneratorThatFellBehindAndLeavesOneAheadAlone() throws Exception {
+		maxId("queries", 500L);
+		generator("queries", 120L);
+		maxId("query_status_history", 80L);
+		generator("query_status_history", 400L);
+
+		aligner.run();
+
+		verify(jdbc).update("UPDATE id_generators SET next_val = ? WHERE sequence_name = ?", 551L, "queries");
+		verify(jdbc, never()).update(anyString(), eq(131L), eq("query_status_history"));
+	}
+
+	@Test
+	void oneFailingTableDoesNotStopTheOthers() throws Exception {
+		when(jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM queries", Long.class))
+				.thenThrow(new IllegalStateException("no such table"));
+		maxId("query_status_history", 10L);
+		generator("query_status_history", 1L);
+
+		aligner.run();
+
+		verify(jdbc).update("UPDATE id_generators SET next_val = ? WHERE sequence_name = ?", 61L, "query_status_history");
+	}
+
+	private void maxId(String table, Long id) {
+		when(jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class)).thenReturn(id);
+	}
+
+	private void generator(String table, Long... nextVal) {
+		when(jdbc.queryForList("SELECT next_val FROM id_generators WHERE sequence_name = ?", Long.class, table))
+				.thenReturn(List.of(nextVal));
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.loginapp.controller;
+
+import com.example.loginapp.model.User;
+import com.example.loginapp.service.PasswordHashingService;
+import com.example.loginapp.service.TokenService;
+import com.example.loginapp.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoginControllerTests {
+
+	private static final String HASH = "$2a$04$abcdefghijklmnopqrstuu5Zz3p1Tjx9v8m8QpI4kM0S1Y8yG6c1e";
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final ExecutorService requests = Executors.newSingleThreadExecutor(task -> new Thread(task, "request-task"));
+	private PasswordHashingService hashing;
+	private UserService users;
+	private TokenService tokens;
+	private LoginController controller;
+
+	@BeforeEach
+	void setUp() {
+		hashing = new PasswordHashingService();
+		ReflectionTestUtils.setField(hashing, "bcryptCost", 4);
+		ReflectionTestUtils.setField(hashing, "threads", 1);
+		ReflectionTestUtils.setField(hashing, "queueCapacity", 1);
+		ReflectionTestUtils.setField(hashing, "timeoutMillis", 200L);
+		hashing.start();
+
+		users = mock(UserService.class);
+		tokens = mock(TokenService.class);
+		when(users.validateLogin(anyString(), anyString()))
+				.thenAnswer(call -> hashing.matchesAsync(call.getArgument(1), HASH));
+		controller = new LoginController();
+		ReflectionTestUtils.setField(controller, "userService", users);
+		ReflectionTestUtils.setField(controller, "passwordHashingService", hashing);
+		ReflectionTestUtils.setField(controller, "tokenService", tokens);
+		ReflectionTestUtils.setField(controller, "taskExecutor", requests);
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		hashing.stop();
+		requests.shutdownNow();
+	}
+
+	@Test
+	void successfulLoginLooksUpTheUserOffTheVerificationPool() throws Exception {
+		String hash = hashing.encode("secret");
+		when(users.validateLogin(anyString(), anyString()))
+				.thenAnswer(call -> hashing.matchesAsync(call.getArgument(1), hash));
+		StringBuilder lookupThread = new StringBuilder();
+		when(users.getUserByEmail("student@college.edu")).thenAnswer(call -> {
+			lookupThread.append(Thread.currentThread().getName());
+			return new User();
+		});
+		when(tokens.issueTokens(any(User.class))).thenReturn(Map.of("accessToken", "token"));
+
+		ResponseEntity<Map<String, Object>> response =
+				controller.login(Map.of("email", "student@college.edu", "password", "secret")).get(5, TimeUnit.SECONDS);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("token", response.getBody().get("accessToken"));
+		assertEquals("request-task", lookupThread.toString());
+	}
+
+	@Test
+	void fullQueueAnswers503WithRetryAfter() throws Exception {
+		occupy(2);
+
+		assertBusy(controller.login(Map.of("email", "student@college.edu", "password", "secret")).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void checkStuckInTheQueueAnswers503WithRetryAfter() throws Exception {
+		occupy(1);
+
+		// Queued behind the blocked check until the timeout fails it
+		assertBusy(controller.login(Map.of("email", "student@college.edu", "password", "secret")).get(5, TimeUnit.SECONDS));
+		assertEquals(1L, hashing.getMetrics().get("rejections"));
+	}
+
+	private void assertBusy(ResponseEntity<Map<String, Object>> response) {
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		assertEquals(false, response.getBody().get("success"));
+	}
+
+	// Fills the single verification thread, then its queue
+	private void occupy(int tasks) {
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(hashing, "executor");
+		for (int i = 0; i < tasks; i++) {
+			executor.execute(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+	}
+}
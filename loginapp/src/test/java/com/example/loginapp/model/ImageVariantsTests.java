@@ -0,0 +1,40 @@
+package com.example.loginapp.model;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageVariantsTests {
+
+	@Test
+	void formatsInWidthOrderAndParsesBack() {
+		String encoded = ImageVariants.format(Map.of(480, "/api/files/b.jpg", 160, "/api/files/a.jpg"));
+
+		assertEquals("160=/api/files/a.jpg;480=/api/files/b.jpg", encoded);
+		assertEquals(Map.of(160, "/api/files/a.jpg", 480, "/api/files/b.jpg"), ImageVariants.parse(encoded));
+		assertEquals(List.of("/api/files/a.jpg", "/api/files/b.jpg"), List.copyOf(ImageVariants.paths(encoded)));
+	}
+
+	@Test
+	void picksTheNarrowestVariantThatIsWideEnough() {
+		String encoded = "160=/api/files/a.jpg;480=/api/files/b.jpg;1024=/api/files/c.jpg";
+
+		assertEquals("/api/files/a.jpg", ImageVariants.pick(encoded, 100));
+		assertEquals("/api/files/a.jpg", ImageVariants.pick(encoded, 160));
+		assertEquals("/api/files/b.jpg", ImageVariants.pick(encoded, 161));
+		assertEquals("/api/files/c.jpg", ImageVariants.pick(encoded, 1024));
+		// Wider than every variant: the original is the best fit
+		assertNull(ImageVariants.pick(encoded, 2000));
+		assertNull(ImageVariants.pick("", 160));
+	}
+
+	@Test
+	void skipsDamagedEntries() {
+		assertEquals(Map.of(480, "/api/files/b.jpg"), ImageVariants.parse("x=/api/files/a.jpg;=oops;480=/api/files/b.jpg"));
+		assertTrue(ImageVariants.paths(null).isEmpty());
+	}
+}
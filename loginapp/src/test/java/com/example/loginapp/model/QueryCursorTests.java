@@ -0,0 +1,47 @@
+package com.example.loginapp.model;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryCursorTests {
+
+	@Test
+	void decodesWhatItEncodes() {
+		QueryCursor cursor = new QueryCursor(LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_000_000), 42L);
+
+		assertEquals(cursor, QueryCursor.decode(cursor.encode()));
+		assertEquals(QueryCursor.START, QueryCursor.decode(QueryCursor.START.encode()));
+	}
+
+	@Test
+	void missingCursorStartsAtTheNewestRow() {
+		assertSame(QueryCursor.START, QueryCursor.decode(null));
+		assertSame(QueryCursor.START, QueryCursor.decode(""));
+		assertSame(QueryCursor.START, QueryCursor.decode("  "));
+	}
+
+	@Test
+	void rejectsDamagedCursors() {
+		// Not base64url
+		assertInvalid("not a cursor!");
+		assertInvalid(encode("2024-03-01T09:30:15"));
+		assertInvalid(encode("yesterday|42"));
+		assertInvalid(encode("2024-03-01T09:30:15|forty-two"));
+		assertInvalid(encode("2024-03-01T09:30:15|"));
+	}
+
+	private static void assertInvalid(String cursor) {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> QueryCursor.decode(cursor));
+		assertEquals("Invalid cursor", e.getMessage());
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
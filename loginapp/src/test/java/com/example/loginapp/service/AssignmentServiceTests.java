@@ -0,0 +1,80 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.User;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssignmentServiceTests {
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private final UserRepository users = mock(UserRepository.class);
+	private AssignmentService assignments;
+
+	@BeforeEach
+	void setUp() {
+		assignments = new AssignmentService();
+		ReflectionTestUtils.setField(assignments, "queryRepository", queries);
+		ReflectionTestUtils.setField(assignments, "userRepository", users);
+		ReflectionTestUtils.setField(assignments, "autoAssign", true);
+		ReflectionTestUtils.setField(assignments, "workerTypeSetting", "PLUMBING=PLUMBER");
+		ReflectionTestUtils.setField(assignments, "weightSetting", "LOW=1,MEDIUM=2,HIGH=4,URGENT=8");
+		assignments.initializeRules();
+		when(queries.countOpenByWorkerAndPriority(anyCollection())).thenReturn(List.of());
+		when(queries.countOpenByPriorityForWorker(anyLong(), anyCollection())).thenReturn(List.of());
+	}
+
+	@Test
+	void workerWithoutATradeCountsAsGeneral() {
+		User untyped = worker(7L, null);
+		when(users.findByRole(User.Role.WORKER)).thenReturn(List.of(untyped));
+		assignments.reload();
+
+		AssignmentService.Reservation reservation = assignments.reserve(query(Query.Category.PLUMBING));
+
+		// No plumber, so the query falls back to GENERAL, where the untyped worker now sits
+		assertNotNull(reservation);
+		assertEquals(7L, reservation.getWorker().getId());
+		assertEquals(User.WorkerType.GENERAL, AssignmentService.tradeOf(untyped));
+	}
+
+	@Test
+	void workerSavedWithoutATradeIsPickedToo() {
+		when(users.findByRole(User.Role.WORKER)).thenReturn(List.of());
+		assignments.reload();
+		assignments.onUserSaved(worker(8L, null));
+
+		AssignmentService.Reservation reservation = assignments.reserve(query(Query.Category.OTHER));
+
+		assertNotNull(reservation);
+		assertEquals(8L, reservation.getWorker().getId());
+	}
+
+	private User worker(Long id, User.WorkerType type) {
+		User worker = new User();
+		worker.setId(id);
+		worker.setRole(User.Role.WORKER);
+		worker.setWorkerType(type);
+		when(users.findById(id)).thenReturn(Optional.of(worker));
+		return worker;
+	}
+
+	private static Query query(Query.Category category) {
+		Query query = new Query();
+		query.setCategory(category);
+		query.setPriority(Query.Priority.MEDIUM);
+		return query;
+	}
+}
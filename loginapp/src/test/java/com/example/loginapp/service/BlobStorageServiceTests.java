@@ -0,0 +1,149 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.QueryStatusHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlobStorageServiceTests {
+
+	private static final String PHOTO = BlobStorageService.PUBLIC_PREFIX + "a".repeat(64) + ".jpg";
+	private static final String OTHER = BlobStorageService.PUBLIC_PREFIX + "b".repeat(64) + ".png";
+
+	@TempDir
+	Path uploads;
+
+	private QueryRepository queries;
+	private QueryStatusHistoryRepository history;
+	private BlobStorageService blobs;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		queries = mock(QueryRepository.class);
+		history = mock(QueryStatusHistoryRepository.class);
+		blobs = new BlobStorageService();
+		ReflectionTestUtils.setField(blobs, "queryRepository", queries);
+		ReflectionTestUtils.setField(blobs, "queryStatusHistoryRepository", history);
+		ReflectionTestUtils.setField(blobs, "uploadDir", uploads.toString());
+		blobs.initializeDirectories();
+	}
+
+	@Test
+	void sameBytesAreStoredOnce() throws Exception {
+		BlobStorageService.StoredBlob first = blobs.store(stream("same photo"), "IMG_1.JPG");
+		BlobStorageService.StoredBlob second = blobs.store(stream("same photo"), "copy.jpg");
+
+		assertEquals(first.getName(), second.getName());
+		assertFalse(first.isDeduplicated());
+		assertTrue(second.isDeduplicated());
+		assertTrue(first.getName().endsWith(".jpg"));
+		assertTrue(blobs.open(first.getName()).isPresent());
+		try (Stream<Path> files = Files.walk(uploads.resolve("blobs"))) {
+			assertEquals(1, files.filter(Files::isRegularFile).count());
+		}
+		// The temp file of the duplicate upload is gone too
+		try (Stream<Path> files = Files.list(uploads.resolve("tmp"))) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	void removalLeavesABlobUploadedAgainSinceTheCutoff() throws Exception {
+		long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+		String name = blobs.store(stream("old photo"), "old.jpg").getName();
+		Path file = blobs.open(name).get().getFile();
+		Files.setLastModifiedTime(file, FileTime.fromMillis(cutoff - TimeUnit.HOURS.toMillis(1)));
+		Path quarantine = uploads.resolve("quarantine");
+
+		// The sweeper listed it as stale, then the same bytes came in again
+		assertTrue(blobs.store(stream("old photo"), "again.jpg").isDeduplicated());
+
+		assertEquals(-1, blobs.removeStoredFile(name, quarantine, cutoff));
+		assertTrue(blobs.open(name).isPresent());
+		assertFalse(Files.exists(quarantine.resolve(name)));
+	}
+
+	@Test
+	void removalTakesABlobOlderThanTheCutoff() throws Exception {
+		long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+		String name = blobs.store(stream("old photo"), "old.jpg").getName();
+		Files.setLastModifiedTime(blobs.open(name).get().getFile(), FileTime.fromMillis(cutoff - 1));
+
+		assertEquals(9, blobs.removeStoredFile(name, null, cutoff));
+		assertTrue(blobs.open(name).isEmpty());
+		// Stored again from scratch rather than pointed at the removed file
+		assertFalse(blobs.store(stream("old photo"), "old.jpg").isDeduplicated());
+	}
+
+	@Test
+	void startupCountsAddUpEverySource() {
+		when(queries.countImageReferences()).thenReturn(List.<Object[]>of(new Object[]{PHOTO, 2L}));
+		when(queries.countCompletionImageReferences()).thenReturn(List.<Object[]>of(
+				new Object[]{PHOTO, 1L}, new Object[]{"/uploads/legacy-uuid.jpg", 4L}));
+		when(history.countCompletionImageReferences()).thenReturn(List.<Object[]>of(
+				new Object[]{PHOTO, 1L}, new Object[]{OTHER, 1L}));
+
+		blobs.loadReferenceCounts();
+
+		assertEquals(4, blobs.getReferenceCount(name(PHOTO)));
+		assertEquals(1, blobs.getReferenceCount(name(OTHER)));
+		// Paths that are not blobs are not counted
+		assertEquals(2, blobs.getMetrics().get("referencedBlobs"));
+	}
+
+	@Test
+	void releasingTheLastReferenceDropsTheEntry() {
+		blobs.retain(PHOTO);
+		blobs.retain(PHOTO);
+
+		blobs.release(PHOTO);
+		assertEquals(1, blobs.getReferenceCount(name(PHOTO)));
+
+		blobs.release(PHOTO);
+		assertEquals(0, blobs.getReferenceCount(name(PHOTO)));
+		assertEquals(0, blobs.getMetrics().get("referencedBlobs"));
+
+		// Never goes below zero
+		blobs.release(PHOTO);
+		assertEquals(0, blobs.getReferenceCount(name(PHOTO)));
+	}
+
+	@Test
+	void replacingAReferenceMovesTheCount() {
+		blobs.retain(PHOTO);
+
+		blobs.replaceReference(PHOTO, PHOTO);
+		assertEquals(1, blobs.getReferenceCount(name(PHOTO)));
+
+		blobs.replaceReference(PHOTO, OTHER);
+		assertEquals(0, blobs.getReferenceCount(name(PHOTO)));
+		assertEquals(1, blobs.getReferenceCount(name(OTHER)));
+
+		blobs.replaceReference(OTHER, null);
+		assertEquals(0, blobs.getReferenceCount(name(OTHER)));
+	}
+
+	private static String name(String publicPath) {
+		return BlobStorageService.blobName(publicPath);
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
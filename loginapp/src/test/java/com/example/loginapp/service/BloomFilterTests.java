@@ -0,0 +1,35 @@
+package com.example.loginapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+
+	@Test
+	void neverMissesAnAddedValue() {
+		BloomFilter filter = new BloomFilter(20_000, 0.01);
+		for (int i = 0; i < 20_000; i++) {
+			filter.put("/api/files/" + i + ".jpg");
+		}
+		for (int i = 0; i < 20_000; i++) {
+			assertTrue(filter.mightContain("/api/files/" + i + ".jpg"));
+		}
+	}
+
+	@Test
+	void keepsFalsePositivesNearTheConfiguredRate() {
+		BloomFilter filter = new BloomFilter(20_000, 0.01);
+		for (int i = 0; i < 20_000; i++) {
+			filter.put("live-" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 20_000; i++) {
+			if (filter.mightContain("orphan-" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 20_000 * 0.02, "false positives: " + falsePositives);
+		assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DispatchQueueTests {
+
+	private static final long HOUR = 3_600_000L;
+
+	private final DispatchQueue queue = new DispatchQueue(Map.of(
+			Query.Priority.MEDIUM, 4 * HOUR,
+			Query.Priority.HIGH, 12 * HOUR,
+			Query.Priority.URGENT, 48 * HOUR));
+
+	@Test
+	void ordersByPriorityHeadStartThenAge() {
+		long now = 100 * 24 * HOUR;
+		queue.put(1L, Query.Priority.LOW, Query.Category.PLUMBING, now - 3 * HOUR);
+		queue.put(2L, Query.Priority.MEDIUM, Query.Category.PLUMBING, now);
+		queue.put(3L, Query.Priority.URGENT, Query.Category.ELECTRICAL, now);
+		// Waited longer than URGENT's head start, so it comes first
+		queue.put(4L, Query.Priority.LOW, Query.Category.OTHER, now - 50 * HOUR);
+
+		assertEquals(List.of(4L, 3L, 2L, 1L), ids(queue.peek(null, 10)));
+		assertEquals(List.of(2L, 1L), ids(queue.peek(Set.of(Query.Category.PLUMBING), 10)));
+		assertEquals(List.of(4L, 3L), ids(queue.peek(null, 2)));
+	}
+
+	@Test
+	void movesAndRemovesEntries() {
+		queue.put(1L, Query.Priority.LOW, Query.Category.NETWORK, 1000);
+		queue.put(2L, Query.Priority.LOW, Query.Category.NETWORK, 2000);
+		queue.put(2L, Query.Priority.HIGH, Query.Category.NETWORK, 2000);
+		assertEquals(List.of(2L, 1L), ids(queue.peek(null, 10)));
+
+		assertEquals(2L, queue.poll(Set.of(Query.Category.NETWORK)).getQueryId());
+		queue.remove(1L);
+		assertNull(queue.poll(null));
+		assertEquals(0, queue.size());
+	}
+
+	private List<Long> ids(List<DispatchQueue.Entry> entries) {
+		return entries.stream().map(DispatchQueue.Entry::getQueryId).toList();
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DispatchServiceTests {
+
+	private final DispatchService dispatch = new DispatchService();
+
+	@BeforeEach
+	void setUp() {
+		AssignmentService assignment = new AssignmentService();
+		ReflectionTestUtils.setField(assignment, "workerTypeSetting", "ELECTRICAL=ELECTRICIAN");
+		ReflectionTestUtils.setField(assignment, "weightSetting", "");
+		assignment.initializeRules();
+
+		ReflectionTestUtils.setField(dispatch, "assignmentService", assignment);
+		ReflectionTestUtils.setField(dispatch, "headStartSetting", "");
+		ReflectionTestUtils.setField(dispatch, "maxCount", 100);
+		dispatch.initializeQueue();
+
+		LocalDateTime now = LocalDateTime.now();
+		dispatch.record(null, pending(1L, Query.Category.ELECTRICAL, now.minusHours(2)));
+		dispatch.record(null, pending(2L, Query.Category.OTHER, now.minusHours(1)));
+	}
+
+	@Test
+	void workerWithoutATradeOnlyClaimsGeneralQueries() {
+		assertEquals(2L, dispatch.claim(worker(null)));
+		assertNull(dispatch.claim(worker(null)));
+		assertEquals(1L, dispatch.claim(worker(User.WorkerType.ELECTRICIAN)));
+	}
+
+	@Test
+	void adminViewWithoutATypeSeesEveryCategory() {
+		assertEquals(List.of(1L, 2L), dispatch.next(null, 10).stream().map(DispatchQueue.Entry::getQueryId).toList());
+	}
+
+	private static User worker(User.WorkerType type) {
+		User worker = new User();
+		worker.setRole(User.Role.WORKER);
+		worker.setWorkerType(type);
+		return worker;
+	}
+
+	private static Query pending(Long id, Query.Category category, LocalDateTime createdAt) {
+		return Query.builder()
+				.id(id)
+				.title("Query " + id)
+				.category(category)
+				.priority(Query.Priority.MEDIUM)
+				.status(Query.Status.PENDING)
+				.createdAt(createdAt)
+				.build();
+	}
+}
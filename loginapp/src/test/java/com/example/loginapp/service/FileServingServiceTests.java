@@ -0,0 +1,33 @@
+package com.example.loginapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileServingServiceTests {
+
+	@Test
+	void parsesSingleByteRanges() {
+		assertArrayEquals(new long[]{0, 99}, FileServingService.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[]{900, 999}, FileServingService.parseRange("bytes=900-", 1000));
+		assertArrayEquals(new long[]{950, 999}, FileServingService.parseRange("bytes=-50", 1000));
+		assertArrayEquals(new long[]{500, 999}, FileServingService.parseRange("bytes=500-5000", 1000));
+	}
+
+	@Test
+	void fallsBackToFullBodyOrRejectsUnsatisfiableRanges() {
+		assertEquals(0, FileServingService.parseRange("bytes=0-1,5-9", 1000).length);
+		assertEquals(0, FileServingService.parseRange("items=0-1", 1000).length);
+		assertNull(FileServingService.parseRange("bytes=1000-", 1000));
+		assertNull(FileServingService.parseRange("bytes=20-10", 1000));
+	}
+
+	@Test
+	void cachesContentTypePerExtension() {
+		FileServingService service = new FileServingService();
+		assertEquals("image/jpeg", service.contentTypeOf("photo.JPG"));
+		assertEquals("application/octet-stream", service.contentTypeOf("blob"));
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.loginapp.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GoogleTokenVerifierTests {
+
+	private static final String CLIENT_ID = "test-client";
+
+	private GoogleTokenVerifier verifier;
+	private Algorithm signer;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		KeyPair keyPair = generator.generateKeyPair();
+		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+		signer = Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate());
+
+		verifier = new GoogleTokenVerifier();
+		GoogleKeySource localKeys = () -> Map.of("local-key", publicKey);
+		ReflectionTestUtils.setField(verifier, "keySource", localKeys);
+		ReflectionTestUtils.setField(verifier, "clientId", CLIENT_ID);
+		ReflectionTestUtils.setField(verifier, "ttlSeconds", 3600L);
+		ReflectionTestUtils.setField(verifier, "minRefreshIntervalSeconds", 30L);
+		ReflectionTestUtils.setField(verifier, "clockSkewSeconds", 60L);
+	}
+
+	@Test
+	void acceptsTokenSignedWithCachedKey() {
+		assertEquals("student@college.edu", verifier.verify(token("local-key", CLIENT_ID, true)));
+		assertEquals("student@college.edu", verifier.verify(token("local-key", CLIENT_ID, true)));
+
+		// Keys were fetched once and reused for the second token
+		assertEquals(1L, verifier.getMetrics().get("keyRefreshes"));
+	}
+
+	@Test
+	void rejectsWrongAudienceUnknownKeyAndUnverifiedEmail() {
+		assertNull(verifier.verify(token("local-key", "other-client", true)));
+		assertNull(verifier.verify(token("rotated-key", CLIENT_ID, true)));
+		assertNull(verifier.verify(token("local-key", CLIENT_ID, false)));
+		assertEquals(3L, verifier.getMetrics().get("failures"));
+	}
+
+	private String token(String keyId, String audience, boolean emailVerified) {
+		return JWT.create()
+				.withKeyId(keyId)
+				.withIssuer("https://accounts.google.com")
+				.withAudience(audience)
+				.withClaim("email", "student@college.edu")
+				.withClaim("email_verified", emailVerified)
+				.withExpiresAt(Instant.now().plusSeconds(300))
+				.sign(signer);
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.loginapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultipartStreamReaderTests {
+
+	private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+	@Test
+	void readsFieldsAndFilesAcrossSmallReads() throws IOException {
+		byte[] photo = new byte[200_000];
+		new Random(7).nextBytes(photo);
+		byte[] body = body(photo);
+
+		MultipartStreamReader reader = new MultipartStreamReader(trickle(body), BOUNDARY);
+
+		MultipartStreamReader.Part title = reader.nextPart();
+		assertEquals("title", title.getName());
+		assertNull(title.getFilename());
+		assertEquals("Leaking tap; room 2", new String(title.getContent().readAllBytes(), StandardCharsets.UTF_8));
+
+		MultipartStreamReader.Part image = reader.nextPart();
+		assertEquals("image", image.getName());
+		assertEquals("tap;1.jpg", image.getFilename());
+		assertEquals("image/jpeg", image.getContentType());
+		assertArrayEquals(photo, image.getContent().readAllBytes());
+
+		MultipartStreamReader.Part empty = reader.nextPart();
+		assertEquals("notes", empty.getName());
+		assertEquals(0, empty.getContent().readAllBytes().length);
+
+		assertNull(reader.nextPart());
+	}
+
+	@Test
+	void skipsUnreadParts() throws IOException {
+		MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body(new byte[5000])), BOUNDARY);
+		reader.nextPart();
+		reader.nextPart();
+		assertEquals("notes", reader.nextPart().getName());
+		assertNull(reader.nextPart());
+	}
+
+	@Test
+	void rejectsTruncatedBody() {
+		byte[] body = body(new byte[5000]);
+		MultipartStreamReader reader = new MultipartStreamReader(
+				new ByteArrayInputStream(Arrays.copyOf(body, body.length / 2)), BOUNDARY);
+		IOException error = assertThrows(IOException.class, () -> {
+			MultipartStreamReader.Part part;
+			while ((part = reader.nextPart()) != null) {
+				part.getContent().readAllBytes();
+			}
+		});
+		assertTrue(error.getMessage().startsWith("Unexpected end"));
+	}
+
+	private static byte[] body(byte[] photo) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.writeBytes(("--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+				+ "Leaking tap; room 2\r\n"
+				+ "--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"image\"; filename=\"tap;1.jpg\"\r\n"
+				+ "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+		out.writeBytes(photo);
+		out.writeBytes(("\r\n--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"notes\"\r\n\r\n"
+				+ "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+		return out.toByteArray();
+	}
+
+	// Hands out a few hundred bytes per read, so boundaries straddle buffer refills
+	private static InputStream trickle(byte[] body) {
+		return new ByteArrayInputStream(body) {
+			@Override
+			public synchronized int read(byte[] buffer, int offset, int length) {
+				return super.read(buffer, offset, Math.min(length, 333));
+			}
+		};
+	}
+}
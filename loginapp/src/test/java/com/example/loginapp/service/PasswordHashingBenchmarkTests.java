@@ -0,0 +1,62 @@
+package com.example.loginapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingBenchmarkTests {
+
+	private PasswordHashingService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new PasswordHashingService();
+		ReflectionTestUtils.setField(service, "bcryptCost", Integer.getInteger("bcrypt.cost", 10));
+		ReflectionTestUtils.setField(service, "threads", 0);
+		ReflectionTestUtils.setField(service, "queueCapacity", 10_000);
+		ReflectionTestUtils.setField(service, "timeoutMillis", 600_000L);
+		service.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.stop();
+	}
+
+	@Test
+	void detectsHashesMadeWithAnotherCost() {
+		assertTrue(service.needsRehash("$2a$04$abcdefghijklmnopqrstuu5Zz3p1Tjx9v8m8QpI4kM0S1Y8yG6c1e"));
+		assertEquals(Integer.valueOf(12), PasswordHashingService.costOf("$2b$12$abc"));
+		assertNull(PasswordHashingService.costOf("password123"));
+	}
+
+	// Run with -Dbenchmark=true [-Dbcrypt.cost=12] to print logins/sec per core
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void measuresLoginsPerSecondPerCore() throws Exception {
+		String hash = service.encode("password123");
+		int cores = Runtime.getRuntime().availableProcessors();
+		int logins = cores * 50;
+
+		long started = System.nanoTime();
+		List<Future<Boolean>> results = new ArrayList<>();
+		for (int i = 0; i < logins; i++) {
+			results.add(service.matchesAsync("password123", hash));
+		}
+		for (Future<Boolean> result : results) {
+			assertTrue(result.get());
+		}
+		double seconds = (System.nanoTime() - started) / 1e9;
+		System.out.printf("BCrypt cost %d: %d logins in %.2fs on %d cores = %.1f logins/sec/core%n",
+				service.getBcryptCost(), logins, seconds, cores, logins / seconds / cores);
+	}
+}
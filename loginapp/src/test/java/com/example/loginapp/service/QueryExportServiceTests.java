@@ -0,0 +1,81 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QueryExportRow;
+import com.example.loginapp.repository.QueryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryExportServiceTests {
+
+	private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private QueryExportService export;
+
+	@BeforeEach
+	void setUp() {
+		export = new QueryExportService();
+		ReflectionTestUtils.setField(export, "queryRepository", queries);
+		ReflectionTestUtils.setField(export, "objectMapper", new ObjectMapper().findAndRegisterModules());
+	}
+
+	@Test
+	void quotesCsvFieldsOnlyWhenTheyNeedIt() throws Exception {
+		QueryExportRow row = row(7L, "Tap, kitchen", "Says \"drip\"\r\nthen stops");
+		row.setCompletionNotes("plain");
+		when(queries.streamExportRows()).thenReturn(Stream.of(row));
+
+		String[] lines = csv().split("\r\n", -1);
+
+		// Header, the record split by its quoted line break, and nothing after the final CRLF
+		assertEquals(4, lines.length);
+		assertTrue(lines[0].startsWith("id,title,description,category,priority,status,venueId,"));
+		assertEquals("7,\"Tap, kitchen\",\"Says \"\"drip\"\"", lines[1]);
+		assertEquals("then stops\",PLUMBING,HIGH,PENDING,,,,,,,,,,,plain,," + CREATED + "," + CREATED + ",", lines[2]);
+		assertEquals("", lines[3]);
+	}
+
+	@Test
+	void writesOneJsonObjectPerLine() throws Exception {
+		when(queries.streamExportRows()).thenReturn(Stream.of(row(1L, "First", "Line one\nline two"), row(2L, "Second", "")));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(2, export.exportQueries(out, QueryExportService.FORMAT_NDJSON));
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].startsWith("{\"id\":1,\"title\":\"First\",\"description\":\"Line one\\nline two\""));
+		assertTrue(lines[1].startsWith("{\"id\":2,"));
+	}
+
+	private String csv() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		export.exportQueries(out, QueryExportService.FORMAT_CSV);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static QueryExportRow row(Long id, String title, String description) {
+		QueryExportRow row = new QueryExportRow();
+		row.setId(id);
+		row.setTitle(title);
+		row.setDescription(description);
+		row.setCategory(Query.Category.PLUMBING);
+		row.setPriority(Query.Priority.HIGH);
+		row.setStatus(Query.Status.PENDING);
+		row.setCreatedAt(CREATED);
+		row.setUpdatedAt(CREATED);
+		return row;
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.UserRepository;
+import com.example.loginapp.repository.VenueRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryImportServiceTests {
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private final VenueRepository venues = mock(VenueRepository.class);
+	private final UserRepository users = mock(UserRepository.class);
+	// Rows of every chunk that committed, in order
+	private final List<Query> saved = new ArrayList<>();
+	private QueryImportService importer;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		TransactionTemplate transactions = mock(TransactionTemplate.class);
+		when(transactions.execute(any())).thenAnswer(call -> ((TransactionCallback<Object>) call.getArgument(0)).doInTransaction(null));
+		when(queries.saveAll(anyList())).thenAnswer(call -> {
+			List<Query> chunk = new ArrayList<>((List<Query>) call.getArgument(0));
+			for (Query query : chunk) {
+				if (query.getTitle().contains("poison")) {
+					throw new IllegalStateException("constraint violated");
+				}
+			}
+			saved.addAll(chunk);
+			return chunk;
+		});
+		when(venues.existsById(anyLong())).thenAnswer(call -> call.<Long>getArgument(0) == 1L);
+		when(users.existsById(anyLong())).thenReturn(true);
+
+		importer = new QueryImportService();
+		ReflectionTestUtils.setField(importer, "queryRepository", queries);
+		ReflectionTestUtils.setField(importer, "venueRepository", venues);
+		ReflectionTestUtils.setField(importer, "userRepository", users);
+		ReflectionTestUtils.setField(importer, "queryService", mock(QueryService.class));
+		ReflectionTestUtils.setField(importer, "transactionTemplate", transactions);
+		ReflectionTestUtils.setField(importer, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(importer, "entityManager", mock(EntityManager.class));
+		ReflectionTestUtils.setField(importer, "defaultBatchSize", 500);
+		ReflectionTestUtils.setField(importer, "maxBatchSize", 5000);
+	}
+
+	@Test
+	void readsCsvWithQuotedFieldsAcrossLines() throws Exception {
+		String csv = "id,title,description,category,priority,status,venueId,createdAt\r\n"
+				+ "9,\"Leak, basement\",\"Drips \"\"a lot\"\"\r\nat night\",plumbing,HIGH,,1,2023-02-01T10:15:30\r\n"
+				+ "\r\n"
+				+ "10,Fan,Noisy,ELECTRICAL,,RESOLVED,,\r\n";
+
+		Map<String, Object> report = importer.importQueries(stream(csv), "csv", null);
+
+		assertEquals(2L, report.get("imported"));
+		assertEquals(0L, report.get("rejected"));
+		Query leak = saved.get(0);
+		// Ids are never taken from the file
+		assertNull(leak.getId());
+		assertEquals("Leak, basement", leak.getTitle());
+		assertEquals("Drips \"a lot\"\nat night", leak.getDescription());
+		assertEquals(Query.Category.PLUMBING, leak.getCategory());
+		assertEquals(Query.Priority.HIGH, leak.getPriority());
+		assertEquals(Query.Status.PENDING, leak.getStatus());
+		assertEquals(1L, leak.getVenue().getId());
+		assertEquals(LocalDateTime.of(2023, 2, 1, 10, 15, 30), leak.getCreatedAt());
+		assertEquals(Query.Priority.MEDIUM, saved.get(1).getPriority());
+		assertEquals(Query.Status.RESOLVED, saved.get(1).getStatus());
+	}
+
+	@Test
+	void rejectsBadNdjsonLinesWithTheirLineNumbers() throws Exception {
+		String ndjson = "{\"title\":\"Door\",\"description\":\"Stuck\",\"category\":\"CARPENTRY\",\"raisedByUserId\":4,\"completionNotes\":null}\n"
+				+ "not json\n"
+				+ "{\"title\":\"Door\",\"category\":\"CARPENTRY\"}\n"
+				+ "{\"title\":\"Wifi\",\"description\":\"Down\",\"category\":\"NETWORK\",\"venueId\":2}\n"
+				+ "[1, 2]\n";
+
+		Map<String, Object> report = importer.importQueries(stream(ndjson), "ndjson", null);
+
+		assertEquals(1L, report.get("imported"));
+		assertEquals(4L, report.get("rejected"));
+		assertEquals(4L, saved.get(0).getRaisedByUser().getId());
+		assertNull(saved.get(0).getCompletionNotes());
+		List<?> rejections = (List<?>) report.get("rejections");
+		assertEquals(List.of(2L, 3L, 4L, 5L), rejections.stream().map(r -> ((Map<?, ?>) r).get("line")).toList());
+		assertEquals("title and description are required", ((Map<?, ?>) rejections.get(1)).get("reason"));
+		assertEquals("venue 2 not found", ((Map<?, ?>) rejections.get(2)).get("reason"));
+	}
+
+	@Test
+	void reportsEveryRowOfAChunkThatRolledBack() throws Exception {
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 1; i <= 7; i++) {
+			String title = i == 4 ? "poison" : "Query " + i;
+			ndjson.append("{\"title\":\"").append(title).append("\",\"description\":\"d\",\"category\":\"OTHER\"}\n");
+		}
+
+		Map<String, Object> report = importer.importQueries(stream(ndjson.toString()), "ndjson", 3);
+
+		// Lines 1-3 and 7 commit; the chunk with line 4 is rolled back as a whole
+		assertEquals(4L, report.get("imported"));
+		assertEquals(3L, report.get("rejected"));
+		assertEquals(2L, report.get("batches"));
+		assertEquals(3, report.get("batchSize"));
+		assertEquals(List.of("Query 1", "Query 2", "Query 3", "Query 7"), saved.stream().map(Query::getTitle).toList());
+		List<?> rejections = (List<?>) report.get("rejections");
+		assertEquals(List.of(4L, 5L, 6L), rejections.stream().map(r -> ((Map<?, ?>) r).get("line")).toList());
+		assertTrue(((Map<?, ?>) rejections.get(0)).get("reason").toString().startsWith("Batch failed: "));
+	}
+
+	private static ByteArrayInputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,310 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QueryRollup;
+import com.example.loginapp.model.QuerySnapshot;
+import com.example.loginapp.model.Venue;
+import com.example.loginapp.repository.QueryRepository;
+import com.example.loginapp.repository.QueryRollupRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryRollupServiceTests {
+
+	private static final LocalDateTime CREATED = LocalDateTime.of(2020, 1, 5, 10, 15);
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private final QueryRollupRepository rollups = mock(QueryRollupRepository.class);
+	// Everything flushed or inserted, summed per "granularity bucket category priority venue" as [created, resolved, open]
+	private final Map<String, List<Long>> written = new TreeMap<>();
+	private QueryRollupService service;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		TransactionTemplate transactions = mock(TransactionTemplate.class);
+		doAnswer(call -> {
+			((Consumer<TransactionStatus>) call.getArgument(0)).accept(null);
+			return null;
+		}).when(transactions).executeWithoutResult(any());
+		when(rollups.addToBucket(any(), any(), any(), any(), anyLong(), anyLong(), anyLong(), anyLong())).thenAnswer(call -> {
+			write(call.getArgument(0), call.getArgument(1), call.getArgument(2), call.getArgument(3), call.getArgument(4),
+					call.getArgument(5), call.getArgument(6), call.getArgument(7));
+			return 1;
+		});
+		when(rollups.saveAll(anyIterable())).thenAnswer(call -> {
+			for (QueryRollup row : (Iterable<QueryRollup>) call.getArgument(0)) {
+				write(row.getGranularity(), row.getBucketStart(), row.getCategory(), row.getPriority(), row.getVenueId(),
+						row.getCreated(), row.getResolved(), row.getOpenDelta());
+			}
+			return List.of();
+		});
+
+		service = new QueryRollupService();
+		ReflectionTestUtils.setField(service, "queryRepository", queries);
+		ReflectionTestUtils.setField(service, "queryRollupRepository", rollups);
+		ReflectionTestUtils.setField(service, "venueService", mock(VenueService.class));
+		ReflectionTestUtils.setField(service, "transactionTemplate", transactions);
+		ReflectionTestUtils.setField(service, "entityManager", mock(EntityManager.class));
+		ReflectionTestUtils.setField(service, "maxBuckets", 2000);
+	}
+
+	@Test
+	void recordMovesCountsFromTheOldKeyToTheNewOne() {
+		Query query = query(1L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		service.record(null, query);
+		update(query, q -> q.setStatus(Query.Status.RESOLVED));
+		update(query, q -> q.setStatus(Query.Status.PENDING));
+		update(query, q -> q.setPriority(Query.Priority.URGENT));
+		// Deleted while open
+		service.record(QuerySnapshot.of(query), null);
+		service.flush();
+
+		LocalDateTime now = LocalDateTime.now();
+		// URGENT gained the open query and lost it again on delete, so nothing is written for it
+		assertEquals(expected(
+				CREATED, Query.Priority.HIGH, 1, 0, 1,
+				now, Query.Priority.HIGH, 0, 1, -1), written);
+	}
+
+	@Test
+	void seriesStartFromTheOpenCountBeforeTheRange() {
+		LocalDateTime day = LocalDateTime.of(2020, 1, 5, 0, 0);
+		LocalDateTime start = day.withHour(10);
+		when(rollups.sumOpenDeltaBetween(QueryRollup.Granularity.DAY, LocalDateTime.of(1970, 1, 1, 0, 0), day))
+				.thenReturn(List.<Object[]>of(new Object[]{Query.Category.ELECTRICAL, Query.Priority.HIGH, 0L, 5L}));
+		when(rollups.sumOpenDeltaBetween(QueryRollup.Granularity.HOUR, day, start))
+				.thenReturn(List.<Object[]>of(new Object[]{Query.Category.ELECTRICAL, Query.Priority.LOW, 0L, 2L}));
+		when(rollups.findRange(eq(QueryRollup.Granularity.HOUR), eq(start), eq(day.withHour(14)))).thenReturn(List.of(
+				row(day.withHour(11), Query.Category.ELECTRICAL, Query.Priority.HIGH, 3, 1, 2),
+				row(day.withHour(12), Query.Category.OTHER, Query.Priority.LOW, 1, 0, 1),
+				row(day.withHour(13), Query.Category.ELECTRICAL, Query.Priority.LOW, 0, 4, -4)));
+
+		// Rounded out to whole hours: 10:00 up to 14:00
+		Map<String, Object> response = service.getSeries(QueryRollup.Granularity.HOUR,
+				day.withHour(10).withMinute(30), day.withHour(13).withMinute(10), "category");
+
+		assertEquals(start, response.get("from"));
+		assertEquals(day.withHour(14), response.get("to"));
+		Map<?, ?> series = (Map<?, ?>) response.get("series");
+		assertEquals(List.of(7L, 9L, 9L, 5L), column(series.get("ELECTRICAL"), "open"));
+		assertEquals(List.of(0L, 3L, 0L, 0L), column(series.get("ELECTRICAL"), "created"));
+		assertEquals(List.of(0L, 1L, 0L, 4L), column(series.get("ELECTRICAL"), "resolved"));
+		assertEquals(List.of(0L, 0L, 1L, 1L), column(series.get("OTHER"), "open"));
+	}
+
+	@Test
+	void backfillRebuildsWhatRecordCounted() {
+		Query resolved = query(1L, Query.Status.PENDING, Query.Priority.MEDIUM, null);
+		Query open = query(2L, Query.Status.ASSIGNED, Query.Priority.LOW, Venue.builder().id(7L).build());
+		service.record(null, resolved);
+		service.record(null, open);
+		update(resolved, q -> q.setStatus(Query.Status.RESOLVED));
+		service.flush();
+		Map<String, List<Long>> recorded = new TreeMap<>(written);
+		written.clear();
+
+		when(queries.findMaxId()).thenReturn(2L);
+		when(queries.findRollupRowsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(rollupRow(resolved), rollupRow(open)));
+		service.backfill();
+
+		assertEquals(recorded, written);
+	}
+
+	@Test
+	void writesDuringABackfillAreCountedOnce() {
+		Query read = query(1L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		Query unread = query(2L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		Query created = query(3L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		created.setCreatedAt(LocalDateTime.now());
+		when(queries.findMaxId()).thenReturn(2L);
+		when(queries.findRollupRowsAfter(eq(0L), any(Pageable.class))).thenAnswer(call -> {
+			// Both land before the scan reads them: the rows below already show the resolve, and query 3 is new
+			update(unread, q -> q.setStatus(Query.Status.RESOLVED));
+			service.record(null, created);
+			return List.of(rollupRow(read), rollupRow(unread), rollupRow(created));
+		});
+		when(rollups.saveAll(anyIterable())).thenAnswer(call -> {
+			// Lands after the scan read query 1 as pending
+			update(read, q -> q.setStatus(Query.Status.RESOLVED));
+			for (Object row : (Iterable<?>) call.getArgument(0)) {
+				QueryRollup rollup = (QueryRollup) row;
+				write(rollup.getGranularity(), rollup.getBucketStart(), rollup.getCategory(), rollup.getPriority(),
+						rollup.getVenueId(), rollup.getCreated(), rollup.getResolved(), rollup.getOpenDelta());
+			}
+			return List.of();
+		});
+
+		service.backfill();
+		service.flush();
+
+		LocalDateTime now = LocalDateTime.now();
+		assertEquals(expected(
+				CREATED, Query.Priority.HIGH, 2, 0, 2,
+				now, Query.Priority.HIGH, 1, 2, -1), written);
+	}
+
+	@Test
+	void writeBetweenTheChunkReadAndItsEndIsKept() {
+		Query query = query(1L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		when(queries.findMaxId()).thenReturn(1L);
+		when(queries.findRollupRowsAfter(eq(0L), any(Pageable.class))).thenAnswer(call -> {
+			List<Object[]> rows = List.<Object[]>of(rollupRow(query));
+			// Committed after the rows were read, reported before the scan moved on
+			update(query, q -> q.setStatus(Query.Status.RESOLVED));
+			return rows;
+		});
+
+		service.backfill();
+		service.flush();
+
+		LocalDateTime now = LocalDateTime.now();
+		assertEquals(expected(
+				CREATED, Query.Priority.HIGH, 1, 0, 1,
+				now, Query.Priority.HIGH, 0, 1, -1), written);
+	}
+
+	@Test
+	void deletesDuringABackfillAreCountedOnce() {
+		Query read = query(1L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		Query gone = query(2L, Query.Status.PENDING, Query.Priority.LOW, null);
+		when(queries.findMaxId()).thenReturn(2L);
+		when(queries.findRollupRowsAfter(eq(0L), any(Pageable.class))).thenAnswer(call -> {
+			// Updated and deleted before the scan got to it, so it is not in the rows
+			update(gone, q -> q.setPriority(Query.Priority.MEDIUM));
+			service.record(QuerySnapshot.of(gone), null);
+			List<Object[]> rows = List.<Object[]>of(rollupRow(read));
+			// Deleted after the scan read it
+			service.record(QuerySnapshot.of(read), null);
+			return rows;
+		});
+
+		service.backfill();
+		service.flush();
+
+		LocalDateTime now = LocalDateTime.now();
+		// Created, then no longer open, and nothing at all for query 2
+		assertEquals(expected(
+				CREATED, Query.Priority.HIGH, 1, 0, 1,
+				now, Query.Priority.HIGH, 0, 0, -1), written);
+	}
+
+	@Test
+	void failedBackfillKeepsPendingAndConcurrentWrites() {
+		Query pendingQuery = query(1L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		Query changed = query(2L, Query.Status.PENDING, Query.Priority.HIGH, null);
+		service.record(null, pendingQuery);
+		when(queries.findMaxId()).thenReturn(2L);
+		when(queries.findRollupRowsAfter(eq(0L), any(Pageable.class))).thenAnswer(call -> {
+			update(changed, q -> q.setStatus(Query.Status.RESOLVED));
+			return List.<Object[]>of(rollupRow(pendingQuery), rollupRow(changed));
+		});
+		when(rollups.saveAll(anyIterable())).thenThrow(new RuntimeException("disk full"));
+
+		service.backfill();
+		service.flush();
+
+		// The old rows stay, so both the unflushed create and the resolve during the backfill still reach them
+		LocalDateTime now = LocalDateTime.now();
+		assertEquals(expected(
+				CREATED, Query.Priority.HIGH, 1, 0, 1,
+				now, Query.Priority.HIGH, 0, 1, -1), written);
+		assertEquals("disk full", ((Map<?, ?>) service.getMetrics().get("lastBackfill")).get("error"));
+	}
+
+	// Records one write to the query the way QueryService reports it
+	private void update(Query query, Consumer<Query> change) {
+		QuerySnapshot before = QuerySnapshot.of(query);
+		change.accept(query);
+		query.setVersion(query.getVersion() + 1);
+		if (query.getStatus() == Query.Status.RESOLVED) {
+			query.setResolvedAt(LocalDateTime.now());
+		}
+		query.setUpdatedAt(LocalDateTime.now());
+		service.record(before, query);
+	}
+
+	private void write(QueryRollup.Granularity granularity, LocalDateTime bucketStart, Query.Category category,
+	                   Query.Priority priority, long venueId, long created, long resolved, long openDelta) {
+		written.merge(granularity + " " + bucketStart + " " + category + " " + priority + " " + venueId,
+				List.of(created, resolved, openDelta), (a, b) -> List.of(a.get(0) + b.get(0), a.get(1) + b.get(1), a.get(2) + b.get(2)));
+	}
+
+	// Two ELECTRICAL keys without a venue, each as HOUR and DAY rows
+	private static Map<String, List<Long>> expected(LocalDateTime firstAt, Query.Priority firstPriority,
+	                                                long created1, long resolved1, long open1,
+	                                                LocalDateTime secondAt, Query.Priority secondPriority,
+	                                                long created2, long resolved2, long open2) {
+		Map<String, List<Long>> expected = new TreeMap<>();
+		for (QueryRollup.Granularity granularity : QueryRollup.Granularity.values()) {
+			expected.put(granularity + " " + granularity.truncate(firstAt) + " ELECTRICAL " + firstPriority + " 0",
+					List.of(created1, resolved1, open1));
+			expected.put(granularity + " " + granularity.truncate(secondAt) + " ELECTRICAL " + secondPriority + " 0",
+					List.of(created2, resolved2, open2));
+		}
+		return expected;
+	}
+
+	private static Query query(Long id, Query.Status status, Query.Priority priority, Venue venue) {
+		return Query.builder()
+				.id(id)
+				.title("Query " + id)
+				.category(Query.Category.ELECTRICAL)
+				.status(status)
+				.priority(priority)
+				.venue(venue)
+				.createdAt(CREATED)
+				.updatedAt(CREATED)
+				.version(0L)
+				.build();
+	}
+
+	// The columns findRollupRowsAfter selects
+	private static Object[] rollupRow(Query query) {
+		return new Object[]{query.getId(), query.getCategory(), query.getPriority(),
+				query.getVenue() != null ? query.getVenue().getId() : null, query.getStatus(),
+				query.getCreatedAt(), query.getResolvedAt(), query.getUpdatedAt(), query.getVersion()};
+	}
+
+	private static QueryRollup row(LocalDateTime bucketStart, Query.Category category, Query.Priority priority,
+	                               long created, long resolved, long openDelta) {
+		return QueryRollup.builder()
+				.granularity(QueryRollup.Granularity.HOUR)
+				.bucketStart(bucketStart)
+				.category(category)
+				.priority(priority)
+				.venueId(QueryRollup.NO_VENUE)
+				.created(created)
+				.resolved(resolved)
+				.openDelta(openDelta)
+				.build();
+	}
+
+	private static List<Object> column(Object points, String name) {
+		List<Object> values = new ArrayList<>();
+		for (Object point : (List<?>) points) {
+			values.add(((Map<?, ?>) point).get(name));
+		}
+		return values;
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuerySearchIndexTests {
+
+	@Test
+	void ranksTitleMatchesAndMatchesLastTokenAsPrefix() {
+		QuerySearchIndex index = new QuerySearchIndex();
+		index.index(1L, "Broken light", "The light in room 101 flickers", null,
+				Query.Status.PENDING, Query.Category.ELECTRICAL, 10L);
+		index.index(2L, "Leaking tap", "Water near the light switch", null,
+				Query.Status.PENDING, Query.Category.PLUMBING, 10L);
+
+		assertEquals(List.of(1L, 2L), index.search("light", null, null, null, 10));
+		assertEquals(List.of(1L), index.search("light fli", null, null, null, 10));
+		assertEquals(List.of(2L), index.search("light", null, Query.Category.PLUMBING, null, 10));
+	}
+
+	@Test
+	void reindexingAndRemovalDropOldTerms() {
+		QuerySearchIndex index = new QuerySearchIndex();
+		index.index(1L, "Broken light", "Flickering", null,
+				Query.Status.PENDING, Query.Category.ELECTRICAL, null);
+		index.index(1L, "Broken fan", "Noisy", "Replaced the fan",
+				Query.Status.RESOLVED, Query.Category.ELECTRICAL, null);
+
+		assertTrue(index.search("light", null, null, null, 10).isEmpty());
+		assertEquals(List.of(1L), index.search("replaced", Query.Status.RESOLVED, null, null, 10));
+
+		index.remove(1L);
+		assertTrue(index.search("fan", null, null, null, 10).isEmpty());
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	void prefixReachesEveryTermItStarts() {
+		QuerySearchIndex index = new QuerySearchIndex();
+		for (long id = 1; id <= 100; id++) {
+			index.index(id, "Room " + id, String.format("code%03d", id), null,
+					Query.Status.PENDING, Query.Category.OTHER, null);
+		}
+		// Sorts after the hundred codes above
+		index.index(101L, "Socket", "codez", null, Query.Status.PENDING, Query.Category.ELECTRICAL, null);
+
+		assertEquals(101, index.search("code", null, null, null, 1000).size());
+		assertEquals(List.of(101L), index.search("socket code", null, null, null, 10));
+	}
+
+	@Test
+	void everyTokenHasToMatch() {
+		QuerySearchIndex index = new QuerySearchIndex();
+		index.index(1L, "Broken light", "Corridor", null, Query.Status.PENDING, Query.Category.ELECTRICAL, null);
+		index.index(2L, "Leaking tap", "Corridor", null, Query.Status.PENDING, Query.Category.PLUMBING, null);
+
+		assertEquals(List.of(2L, 1L), index.search("corridor", null, null, null, 10));
+		assertTrue(index.search("light tap", null, null, null, 10).isEmpty());
+		// Only the last token is a prefix
+		assertTrue(index.search("ligh corridor", null, null, null, 10).isEmpty());
+		assertEquals(List.of(1L), index.search("LIGHT, light; corr", null, null, null, 10));
+	}
+
+	@Test
+	void appliesFiltersBeforeTheLimit() {
+		QuerySearchIndex index = new QuerySearchIndex();
+		index.index(1L, "Wifi down", null, null, Query.Status.RESOLVED, Query.Category.NETWORK, 1L);
+		index.index(2L, "Wifi slow", null, null, Query.Status.PENDING, Query.Category.NETWORK, 1L);
+		index.index(3L, "Wifi slow", null, null, Query.Status.PENDING, Query.Category.NETWORK, 2L);
+		index.index(4L, "Wifi", null, null, Query.Status.PENDING, Query.Category.NETWORK, null);
+
+		assertEquals(List.of(3L, 2L), index.search("wifi slow", Query.Status.PENDING, null, null, 10));
+		assertEquals(List.of(2L), index.search("wifi", Query.Status.PENDING, null, 1L, 1));
+		assertEquals(List.of(1L), index.search("wifi", Query.Status.RESOLVED, Query.Category.NETWORK, 1L, 10));
+		assertTrue(index.search("wifi", null, Query.Category.PLUMBING, null, 10).isEmpty());
+	}
+
+	@Test
+	void rarerTermsWeighMore() {
+		QuerySearchIndex index = new QuerySearchIndex();
+		index.index(1L, "Door", "Door handle loose", null, Query.Status.PENDING, Query.Category.CARPENTRY, null);
+		index.index(2L, "Door", "Door hinge squeaks", null, Query.Status.PENDING, Query.Category.CARPENTRY, null);
+		index.index(3L, "Hinge", "Cupboard", null, Query.Status.PENDING, Query.Category.CARPENTRY, null);
+
+		// Both match door the same way; "handle" occurs in one query and "hinge" in two, so handle counts for more
+		assertEquals(List.of(1L, 2L), index.search("door h", null, null, null, 10));
+		// A title match outweighs a description match
+		assertEquals(List.of(3L, 2L), index.search("hinge", null, null, null, 10));
+	}
+
+	@Test
+	void tokenizesOnAnythingButLettersAndDigits() {
+		assertEquals(List.of("room", "101", "café", "wi", "fi"), QuerySearchIndex.tokenize(" Room-101, Café/Wi-Fi! "));
+		assertTrue(QuerySearchIndex.tokenize("  ").isEmpty());
+		assertTrue(QuerySearchIndex.tokenize(null).isEmpty());
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.repository.QueryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryStatsServiceTests {
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private QueryStatsService stats;
+
+	@BeforeEach
+	void setUp() {
+		when(queries.countGroupedByStatusPriorityCategory()).thenReturn(List.of(
+				new Object[]{Query.Status.PENDING, Query.Priority.HIGH, Query.Category.PLUMBING, 3L},
+				new Object[]{Query.Status.RESOLVED, Query.Priority.LOW, Query.Category.NETWORK, 2L},
+				// Rows with a missing column cannot be placed and are left out
+				new Object[]{null, Query.Priority.LOW, Query.Category.NETWORK, 9L}));
+
+		stats = new QueryStatsService();
+		ReflectionTestUtils.setField(stats, "queryRepository", queries);
+		stats.reload();
+	}
+
+	@Test
+	void seedsFromTheGroupedCounts() {
+		assertEquals(5, stats.getTotal());
+		assertEquals(3, stats.getCountByStatus(Query.Status.PENDING));
+		assertEquals(0, stats.getCountByStatus(Query.Status.ASSIGNED));
+	}
+
+	@Test
+	void movesOneQueryBetweenBucketsPerWrite() {
+		QueryStatsService.Bucket pending = bucket(Query.Status.PENDING, Query.Priority.HIGH, Query.Category.PLUMBING);
+		QueryStatsService.Bucket assigned = bucket(Query.Status.ASSIGNED, Query.Priority.HIGH, Query.Category.PLUMBING);
+		QueryStatsService.Bucket urgent = bucket(Query.Status.ASSIGNED, Query.Priority.URGENT, Query.Category.PLUMBING);
+
+		stats.record(null, pending);
+		stats.record(pending, assigned);
+		stats.record(assigned, urgent);
+		// Title or description edits leave the bucket alone
+		stats.record(urgent, urgent);
+		stats.record(pending, null);
+
+		assertEquals(5, stats.getTotal());
+		assertEquals(2, stats.getCountByStatus(Query.Status.PENDING));
+		assertEquals(1, stats.getCountByStatus(Query.Status.ASSIGNED));
+		Map<String, Object> snapshot = stats.getSnapshot();
+		assertEquals(5L, snapshot.get("total"));
+		assertEquals(1L, ((Map<?, ?>) snapshot.get("byPriority")).get(Query.Priority.URGENT));
+		assertEquals(2L, ((Map<?, ?>) snapshot.get("byPriority")).get(Query.Priority.HIGH));
+		assertEquals(3L, ((Map<?, ?>) snapshot.get("byCategory")).get(Query.Category.PLUMBING));
+		assertEquals(0L, ((Map<?, ?>) snapshot.get("byCategory")).get(Query.Category.OTHER));
+	}
+
+	@Test
+	void ignoresQueriesThatCannotBeBucketed() {
+		Query incomplete = Query.builder().title("No category").build();
+
+		stats.record(null, QueryStatsService.Bucket.of(incomplete));
+		stats.record(QueryStatsService.Bucket.of(incomplete), null);
+
+		assertEquals(5, stats.getTotal());
+	}
+
+	private static QueryStatsService.Bucket bucket(Query.Status status, Query.Priority priority, Query.Category category) {
+		return QueryStatsService.Bucket.of(Query.builder().status(status).priority(priority).category(category).build());
+	}
+}
@@ -0,0 +1,191 @@
+package com.example.loginapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentBlobStoreTests {
+
+	private static final long HOUR = 3_600_000L;
+
+	@TempDir
+	Path root;
+
+	@TempDir
+	Path scratch;
+
+	private SegmentBlobStore store;
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (store != null) {
+			store.close();
+		}
+	}
+
+	@Test
+	void readsBackWhatWasPut() throws IOException {
+		store = open(1 << 20, HOUR);
+		assertTrue(store.put("a.jpg", file("first blob")));
+		assertTrue(store.put("b.png", file("second")));
+		assertFalse(store.put("a.jpg", file("ignored")));
+
+		assertEquals("first blob", read("a.jpg"));
+		assertEquals("second", read("b.png"));
+		assertEquals(Optional.empty(), store.open("missing.jpg"));
+		assertEquals(Map.of("a.jpg", 10L, "b.png", 6L), entries());
+	}
+
+	@Test
+	void conditionalDeleteSparesATouchedBlob() throws IOException {
+		store = open(1 << 20, HOUR);
+		store.put("stale", file("old"));
+		store.put("fresh", file("reused"));
+		long cutoff = System.currentTimeMillis() + HOUR;
+		assertTrue(store.touch("fresh"));
+		assertFalse(store.touch("missing"));
+
+		assertTrue(store.deleteIfModifiedBefore("stale", cutoff));
+		assertFalse(store.deleteIfModifiedBefore("fresh", System.currentTimeMillis() - HOUR));
+		assertFalse(store.deleteIfModifiedBefore("missing", cutoff));
+		assertEquals(Map.of("fresh", 6L), entries());
+	}
+
+	@Test
+	void reloadsEveryBlobAfterARestart() throws IOException {
+		// 37-byte records, two to a segment
+		store = open(80, HOUR);
+		for (int i = 0; i < 5; i++) {
+			store.put("blob" + i, file("contents " + i));
+		}
+		store.close();
+
+		store = open(80, HOUR);
+		for (int i = 0; i < 5; i++) {
+			assertEquals("contents " + i, read("blob" + i));
+		}
+		assertEquals(3, store.getMetrics().get("segments"));
+	}
+
+	@Test
+	void cutsOffATornRecordAtTheEnd() throws IOException {
+		store = open(1 << 20, HOUR);
+		store.put("kept", file("complete record"));
+		store.put("torn", file("this write never finished"));
+		store.close();
+		Path segment = root.resolve("00000001.seg");
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 5);
+		}
+
+		store = open(1 << 20, HOUR);
+		assertEquals("complete record", read("kept"));
+		assertFalse(store.contains("torn"));
+		// New records go where the torn one was and survive the next restart
+		store.put("after", file("appended later"));
+		store.close();
+		store = open(1 << 20, HOUR);
+		assertEquals("appended later", read("after"));
+		assertEquals(Map.of("kept", 15L, "after", 14L), entries());
+	}
+
+	@Test
+	void tombstonesHideDeletedBlobsAcrossRestarts() throws IOException {
+		store = open(1 << 20, HOUR);
+		store.put("gone", file("deleted"));
+		store.put("stays", file("still here"));
+		store.put("replaced", file("old bytes"));
+		assertTrue(store.delete("gone"));
+		assertFalse(store.delete("gone"));
+		store.delete("replaced");
+		store.put("replaced", file("new bytes"));
+		store.close();
+
+		store = open(1 << 20, HOUR);
+		assertFalse(store.contains("gone"));
+		assertEquals("still here", read("stays"));
+		assertEquals("new bytes", read("replaced"));
+	}
+
+	@Test
+	void compactionKeepsLiveBlobsAndDropsDeletedOnes() throws IOException {
+		// Two 40-byte records fit in a segment, so the first two blobs share segment 1
+		store = open(140, HOUR);
+		store.put("dead", file("x".repeat(40)));
+		store.put("live", file("y".repeat(40)));
+		store.put("other", file("z".repeat(40)));
+		store.delete("dead");
+
+		store.maintain();
+
+		assertEquals(1L, store.getMetrics().get("compactions"));
+		assertEquals("y".repeat(40), read("live"));
+		assertEquals("z".repeat(40), read("other"));
+		store.close();
+		store = open(140, HOUR);
+		assertEquals(Map.of("live", 40L, "other", 40L), entries());
+		assertEquals("y".repeat(40), read("live"));
+	}
+
+	@Test
+	void retiredSegmentsOutliveTheirReadersUntilTheGracePeriodEnds() throws IOException {
+		store = open(140, HOUR);
+		store.put("dead", file("x".repeat(40)));
+		store.put("live", file("y".repeat(40)));
+		store.put("other", file("z".repeat(40)));
+		BlobStore.Blob before = store.open("live").orElseThrow();
+		store.delete("dead");
+		store.maintain();
+		store.maintain();
+
+		// Still inside the grace period: the old file and the old location stay readable
+		assertTrue(Files.exists(root.resolve("00000001.seg")));
+		try (InputStream in = before.openStream()) {
+			assertEquals("y".repeat(40), new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+		}
+		store.close();
+
+		// Reloaded after a restart segment 1 holds nothing live; with no grace period the next pass deletes it
+		store = open(140, 0);
+		store.maintain();
+		assertTrue(Files.exists(root.resolve("00000001.seg")));
+		store.maintain();
+		assertFalse(Files.exists(root.resolve("00000001.seg")));
+		assertEquals(Map.of("live", 40L, "other", 40L), entries());
+		assertEquals("y".repeat(40), read("live"));
+	}
+
+	private SegmentBlobStore open(long maxSegmentBytes, long graceMillis) throws IOException {
+		return new SegmentBlobStore(root, maxSegmentBytes, 0.6, graceMillis);
+	}
+
+	private Path file(String contents) throws IOException {
+		return Files.writeString(Files.createTempFile(scratch, "blob", ".part"), contents);
+	}
+
+	private String read(String name) throws IOException {
+		try (InputStream in = store.open(name).orElseThrow().openStream()) {
+			return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+		}
+	}
+
+	private Map<String, Long> entries() {
+		Map<String, Long> entries = new TreeMap<>();
+		store.forEach(entry -> entries.put(entry.getName(), entry.getLength()));
+		return entries;
+	}
+}
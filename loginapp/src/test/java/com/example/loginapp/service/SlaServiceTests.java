@@ -0,0 +1,230 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Query;
+import com.example.loginapp.model.QuerySnapshot;
+import com.example.loginapp.repository.QueryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlaServiceTests {
+
+	private static final long MINUTE = 60_000L;
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	// Rows findAllById hands to an escalation batch
+	private final Map<Long, Query> table = new HashMap<>();
+	// "id:FROM>TO" per call to the escalator
+	private final List<String> raised = new ArrayList<>();
+	private boolean raiseSucceeds = true;
+	private SlaService sla;
+
+	@BeforeEach
+	void setUp() {
+		when(queries.findAllById(anyIterable())).thenAnswer(call -> {
+			List<Query> found = new ArrayList<>();
+			for (Object id : (Iterable<?>) call.getArgument(0)) {
+				if (table.containsKey(id)) {
+					found.add(table.get(id));
+				}
+			}
+			return found;
+		});
+
+		sla = new SlaService();
+		ReflectionTestUtils.setField(sla, "queryRepository", queries);
+		ReflectionTestUtils.setField(sla, "enabled", true);
+		ReflectionTestUtils.setField(sla, "pendingSetting", "LOW=2880,MEDIUM=1440,HIGH=240,URGENT=60");
+		ReflectionTestUtils.setField(sla, "assignedSetting", "LOW=4320,MEDIUM=2880,HIGH=720,URGENT=240");
+		// The background ticker never gets a turn; tests call tick() themselves
+		ReflectionTestUtils.setField(sla, "tickMillis", 3_600_000L);
+		ReflectionTestUtils.setField(sla, "wheelSize", 64);
+		ReflectionTestUtils.setField(sla, "batchSize", 10);
+		ReflectionTestUtils.setField(sla, "recentLimit", 10);
+		sla.start();
+		sla.setEscalator((id, from, to) -> {
+			raised.add(id + ":" + from + ">" + to);
+			return raiseSucceeds;
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		sla.stop();
+	}
+
+	@Test
+	void recoversTimersFromStateEntryAtStartup() {
+		LocalDateTime overdue = LocalDateTime.now().minusHours(5);
+		LocalDateTime recent = LocalDateTime.now().minusHours(1);
+		List<Object[]> rows = List.of(
+				new Object[]{1L, Query.Status.PENDING, Query.Priority.HIGH, overdue},
+				new Object[]{2L, Query.Status.ASSIGNED, Query.Priority.LOW, recent});
+		when(queries.findSlaRowsAfter(anyLong(), anyCollection(), any(Pageable.class))).thenReturn(rows, List.of());
+		table.put(1L, query(1L, Query.Status.PENDING, Query.Priority.HIGH, overdue));
+
+		sla.recoverTimers();
+
+		assertEquals(millis(overdue) + 240 * MINUTE, sla.getDeadline(1L));
+		assertEquals(millis(recent) + 4320 * MINUTE, sla.getDeadline(2L));
+		sla.tick();
+		assertEquals(List.of("1:HIGH>URGENT"), raised);
+		assertNotNull(sla.getDeadline(2L));
+	}
+
+	@Test
+	void rearmsOnStatusOrPriorityChangeOnly() {
+		LocalDateTime created = LocalDateTime.now().minusMinutes(30);
+		Query query = query(1L, Query.Status.PENDING, Query.Priority.MEDIUM, created);
+		sla.record(null, query);
+		assertEquals(millis(created) + 1440 * MINUTE, sla.getDeadline(1L));
+
+		QuerySnapshot before = QuerySnapshot.of(query);
+		query.setTitle("Renamed");
+		sla.record(before, query);
+		assertEquals(millis(created) + 1440 * MINUTE, sla.getDeadline(1L));
+
+		long start = System.currentTimeMillis();
+		before = QuerySnapshot.of(query);
+		query.setPriority(Query.Priority.HIGH);
+		query.setStateEnteredAt(LocalDateTime.now());
+		sla.record(before, query);
+		assertBetween(start + 240 * MINUTE, sla.getDeadline(1L));
+
+		start = System.currentTimeMillis();
+		before = QuerySnapshot.of(query);
+		query.setStatus(Query.Status.ASSIGNED);
+		query.setStateEnteredAt(LocalDateTime.now());
+		sla.record(before, query);
+		assertBetween(start + 720 * MINUTE, sla.getDeadline(1L));
+	}
+
+	@Test
+	void countsFromStateEntryRatherThanTheLastWrite() {
+		LocalDateTime entered = LocalDateTime.now().minusHours(5);
+		Query query = query(1L, Query.Status.PENDING, Query.Priority.HIGH, entered);
+		// Edited a minute ago without touching status or priority
+		query.setUpdatedAt(LocalDateTime.now().minusMinutes(1));
+		table.put(1L, query);
+
+		sla.record(null, query);
+
+		assertEquals(millis(entered) + 240 * MINUTE, sla.getDeadline(1L));
+		sla.tick();
+		assertEquals(List.of("1:HIGH>URGENT"), raised);
+	}
+
+	@Test
+	void cancelsOnResolveOrDelete() {
+		Query resolved = query(1L, Query.Status.ASSIGNED, Query.Priority.LOW, LocalDateTime.now());
+		Query deleted = query(2L, Query.Status.PENDING, Query.Priority.LOW, LocalDateTime.now());
+		sla.record(null, resolved);
+		sla.record(null, deleted);
+
+		QuerySnapshot before = QuerySnapshot.of(resolved);
+		resolved.setStatus(Query.Status.RESOLVED);
+		sla.record(before, resolved);
+		sla.record(QuerySnapshot.of(deleted), null);
+
+		assertNull(sla.getDeadline(1L));
+		assertNull(sla.getDeadline(2L));
+		assertEquals(0, sla.getMetrics().get("timers"));
+	}
+
+	@Test
+	void escalatesOneStepAndReportsUrgentQueriesAgain() {
+		LocalDateTime longAgo = LocalDateTime.now().minusDays(10);
+		overdue(1L, Query.Status.PENDING, Query.Priority.MEDIUM, longAgo);
+		overdue(2L, Query.Status.ASSIGNED, Query.Priority.URGENT, longAgo);
+
+		long start = System.currentTimeMillis();
+		sla.tick();
+
+		assertEquals(List.of("1:MEDIUM>HIGH"), raised);
+		// Still urgent and overdue: reported and given another URGENT deadline
+		assertBetween(start + 240 * MINUTE, sla.getDeadline(2L));
+		Map<String, Object> metrics = sla.getMetrics();
+		assertEquals(1L, metrics.get("escalated"));
+		assertEquals(1L, metrics.get("reportedAtUrgent"));
+		assertEquals(2, ((List<?>) metrics.get("recentEscalations")).size());
+	}
+
+	@Test
+	void skipsQueriesChangedAfterTheirTimerFired() {
+		LocalDateTime longAgo = LocalDateTime.now().minusDays(10);
+		Query rearmed = overdue(1L, Query.Status.PENDING, Query.Priority.LOW, longAgo);
+		overdue(2L, Query.Status.PENDING, Query.Priority.LOW, longAgo);
+		Query resolved = overdue(3L, Query.Status.PENDING, Query.Priority.LOW, longAgo);
+		resolved.setStatus(Query.Status.RESOLVED);
+		// A write lands between the timer firing and the batch being read: it re-arms query 1
+		when(queries.findAllById(anyIterable())).thenAnswer(call -> {
+			QuerySnapshot before = QuerySnapshot.of(rearmed);
+			rearmed.setPriority(Query.Priority.MEDIUM);
+			rearmed.setStateEnteredAt(LocalDateTime.now());
+			sla.record(before, rearmed);
+			return new ArrayList<>(table.values());
+		});
+		// And query 2's raise loses to a concurrent write
+		raiseSucceeds = false;
+
+		sla.tick();
+
+		assertEquals(List.of("2:LOW>MEDIUM"), raised);
+		Map<String, Object> metrics = sla.getMetrics();
+		assertEquals(0L, metrics.get("escalated"));
+		assertEquals(1L, metrics.get("changedBeforeEscalation"));
+		assertEquals(1L, metrics.get("resolvedBeforeEscalation"));
+		assertNotNull(sla.getDeadline(1L));
+	}
+
+	private Query overdue(Long id, Query.Status status, Query.Priority priority, LocalDateTime enteredAt) {
+		Query query = query(id, status, priority, enteredAt);
+		table.put(id, query);
+		sla.record(null, query);
+		return query;
+	}
+
+	// Created, last written and in its current state since the same moment, as store() leaves a new query
+	private static Query query(Long id, Query.Status status, Query.Priority priority, LocalDateTime enteredAt) {
+		return Query.builder()
+				.id(id)
+				.title("Query " + id)
+				.category(Query.Category.OTHER)
+				.status(status)
+				.priority(priority)
+				.createdAt(enteredAt)
+				.updatedAt(enteredAt)
+				.stateEnteredAt(enteredAt)
+				.build();
+	}
+
+	// Deadlines counted from "now" land at or shortly after the expected time
+	private static void assertBetween(long expected, Long deadline) {
+		assertNotNull(deadline);
+		assertTrue(deadline >= expected && deadline <= expected + 5_000,
+				"deadline " + deadline + " not within 5s after " + expected);
+	}
+
+	private static long millis(LocalDateTime time) {
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+}
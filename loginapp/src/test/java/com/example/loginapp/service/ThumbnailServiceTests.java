@@ -0,0 +1,105 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.repository.QueryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ThumbnailServiceTests {
+
+	@TempDir
+	Path uploads;
+
+	// Every JPEG the service stored, decoded
+	private final List<BufferedImage> stored = new CopyOnWriteArrayList<>();
+	private final BlobStorageService blobs = mock(BlobStorageService.class);
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private ThumbnailService thumbnails;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		when(blobs.store(any(InputStream.class), anyString())).thenAnswer(call -> {
+			BufferedImage image = ImageIO.read((InputStream) call.getArgument(0));
+			stored.add(image);
+			String name = "thumb" + stored.size() + ".jpg";
+			return new BlobStorageService.StoredBlob(name, "/api/files/" + name, 0, false);
+		});
+
+		thumbnails = new ThumbnailService();
+		ReflectionTestUtils.setField(thumbnails, "blobStorageService", blobs);
+		ReflectionTestUtils.setField(thumbnails, "queryRepository", queries);
+		ReflectionTestUtils.setField(thumbnails, "entityTagService", mock(EntityTagService.class));
+		ReflectionTestUtils.setField(thumbnails, "widthsSetting", "480, 160,1024");
+		ReflectionTestUtils.setField(thumbnails, "jpegQuality", 0.8f);
+		ReflectionTestUtils.setField(thumbnails, "threads", 1);
+		ReflectionTestUtils.setField(thumbnails, "queueCapacity", 10);
+		thumbnails.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		thumbnails.stop();
+	}
+
+	@Test
+	void writesOneVariantPerWidthKeepingTheAspectRatio() throws IOException {
+		Map<Integer, String> variants = thumbnails.generate(new ByteArrayInputStream(png(2000, 1000)));
+
+		assertEquals(List.of(160, 480, 1024), List.copyOf(variants.keySet()));
+		// Largest first, each scaled from the one before
+		assertEquals(List.of(1024, 480, 160), stored.stream().map(BufferedImage::getWidth).toList());
+		assertEquals(List.of(512, 240, 80), stored.stream().map(BufferedImage::getHeight).toList());
+	}
+
+	@Test
+	void skipsWidthsTheOriginalIsAlreadyNarrowerThan() throws IOException {
+		assertEquals(List.of(160), List.copyOf(thumbnails.generate(new ByteArrayInputStream(png(300, 300))).keySet()));
+		assertTrue(thumbnails.generate(new ByteArrayInputStream(png(160, 100))).isEmpty());
+		assertTrue(thumbnails.generate(new ByteArrayInputStream("not an image".getBytes())).isEmpty());
+	}
+
+	@Test
+	void makesThumbnailsForUploadsFromBeforeContentAddressing() throws IOException {
+		Path legacy = Files.write(uploads.resolve("3f2a.png"), png(600, 300));
+		when(blobs.legacyFile("/uploads/3f2a.png")).thenReturn(Optional.of(legacy));
+		when(queries.setImageThumbnails(eq(9L), eq("/uploads/3f2a.png"), anyString(), any(LocalDateTime.class))).thenReturn(1);
+
+		assertTrue(thumbnails.schedule(9L, ThumbnailService.Kind.IMAGE, "/uploads/3f2a.png"));
+
+		verify(queries, timeout(5000)).setImageThumbnails(eq(9L), eq("/uploads/3f2a.png"),
+				eq("160=/api/files/thumb2.jpg;480=/api/files/thumb1.jpg"), any(LocalDateTime.class));
+		verify(blobs, timeout(5000)).retain("/api/files/thumb1.jpg");
+		assertEquals(0L, thumbnails.getMetrics().get("failed"));
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", bytes);
+		return bytes.toByteArray();
+	}
+}
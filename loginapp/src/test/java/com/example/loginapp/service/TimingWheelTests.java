@@ -0,0 +1,41 @@
+package com.example.loginapp.service;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+
+	@Test
+	void firesDeadlinesAcrossRotationsInTickOrder() {
+		TimingWheel wheel = new TimingWheel(1000, 8, 0);
+		wheel.schedule(1L, 20_000);
+		wheel.schedule(2L, 4_000);
+		wheel.schedule(3L, 12_000);
+
+		assertTrue(wheel.advance(3_999).isEmpty());
+		assertEquals(List.of(2L), wheel.advance(4_000));
+		// 12s and 20s share a bucket with 4s on an 8-tick wheel but wait for their own rotation
+		assertEquals(List.of(3L), wheel.advance(15_000));
+		assertEquals(List.of(1L), wheel.advance(60_000));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void reschedulingAndCancellingReplaceTheDeadline() {
+		TimingWheel wheel = new TimingWheel(1000, 8, 0);
+		wheel.schedule(1L, 2_000);
+		wheel.schedule(1L, 9_000);
+		wheel.schedule(2L, 3_000);
+		wheel.cancel(2L);
+		wheel.schedule(3L, -5_000);
+
+		assertEquals(List.of(3L), wheel.advance(5_000));
+		assertEquals(9_000L, wheel.deadlineOf(1L));
+		assertEquals(List.of(1L), wheel.advance(9_000));
+		assertNull(wheel.deadlineOf(1L));
+	}
+}
@@ -0,0 +1,162 @@
+package com.example.loginapp.service;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.loginapp.model.AuthenticatedUser;
+import com.example.loginapp.model.RefreshToken;
+import com.example.loginapp.model.User;
+import com.example.loginapp.repository.RefreshTokenRepository;
+import com.example.loginapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenServiceTests {
+
+	private final List<RefreshToken> rows = new ArrayList<>();
+	private final User user = User.builder()
+			.id(7L)
+			.email("worker@college.edu")
+			.role(User.Role.WORKER)
+			.workerType(User.WorkerType.PLUMBER)
+			.build();
+
+	private TokenService tokens;
+
+	@BeforeEach
+	void setUp() {
+		// Stands in for the refresh_tokens table, with the same conditional updates
+		RefreshTokenRepository refreshTokens = mock(RefreshTokenRepository.class);
+		when(refreshTokens.save(any(RefreshToken.class))).thenAnswer(call -> {
+			RefreshToken token = call.getArgument(0);
+			rows.add(token);
+			return token;
+		});
+		when(refreshTokens.findByTokenHash(anyString())).thenAnswer(call -> row(call.getArgument(0)));
+		when(refreshTokens.rotate(anyString(), anyString(), any(LocalDateTime.class))).thenAnswer(call -> {
+			Optional<RefreshToken> live = row(call.getArgument(0)).filter(token -> token.getRevokedAt() == null);
+			live.ifPresent(token -> {
+				token.setRevokedAt(call.getArgument(2));
+				token.setReplacedByHash(call.getArgument(1));
+			});
+			return live.isPresent() ? 1 : 0;
+		});
+		when(refreshTokens.revokeFamily(anyString(), any(LocalDateTime.class))).thenAnswer(call -> {
+			int revoked = 0;
+			for (RefreshToken token : rows) {
+				if (token.getFamilyId().equals(call.getArgument(0)) && token.getRevokedAt() == null) {
+					token.setRevokedAt(call.getArgument(1));
+					revoked++;
+				}
+			}
+			return revoked;
+		});
+		UserRepository users = mock(UserRepository.class);
+		when(users.findById(anyLong())).thenAnswer(call -> Optional.of(user).filter(u -> u.getId().equals(call.getArgument(0))));
+
+		tokens = new TokenService();
+		ReflectionTestUtils.setField(tokens, "refreshTokenRepository", refreshTokens);
+		ReflectionTestUtils.setField(tokens, "userRepository", users);
+		ReflectionTestUtils.setField(tokens, "jwtSecret", "test-secret-test-secret-test-secret");
+		ReflectionTestUtils.setField(tokens, "issuer", "loginapp");
+		ReflectionTestUtils.setField(tokens, "accessTokenTtlSeconds", 900L);
+		ReflectionTestUtils.setField(tokens, "refreshTokenTtlDays", 14L);
+		tokens.initializeSigningKey();
+	}
+
+	@Test
+	void issuedAccessTokenCarriesTheUser() {
+		Map<String, Object> pair = tokens.issueTokens(user);
+
+		AuthenticatedUser parsed = tokens.parseAccessToken((String) pair.get("accessToken"));
+		assertEquals(7L, parsed.getId());
+		assertEquals("worker@college.edu", parsed.getEmail());
+		assertEquals(User.Role.WORKER, parsed.getRole());
+		assertEquals(User.WorkerType.PLUMBER, parsed.getWorkerType());
+		assertEquals(1, rows.size());
+	}
+
+	@Test
+	void rejectsTamperedAndExpiredAccessTokens() {
+		String accessToken = (String) tokens.issueTokens(user).get("accessToken");
+		assertThrows(JWTVerificationException.class, () -> tokens.parseAccessToken(accessToken + "x"));
+
+		ReflectionTestUtils.setField(tokens, "accessTokenTtlSeconds", -60L);
+		String expired = (String) tokens.issueTokens(user).get("accessToken");
+		assertThrows(JWTVerificationException.class, () -> tokens.parseAccessToken(expired));
+	}
+
+	@Test
+	void refreshRotatesTheTokenWithinItsFamily() {
+		String first = (String) tokens.issueTokens(user).get("refreshToken");
+		Map<String, Object> rotated = tokens.refresh(first);
+
+		String second = (String) rotated.get("refreshToken");
+		assertNotEquals(first, second);
+		assertEquals(2, rows.size());
+		assertEquals(rows.get(0).getFamilyId(), rows.get(1).getFamilyId());
+		assertTrue(rows.get(0).getRevokedAt() != null);
+		assertEquals(rows.get(1).getTokenHash(), rows.get(0).getReplacedByHash());
+		assertEquals(7L, tokens.parseAccessToken((String) rotated.get("accessToken")).getId());
+	}
+
+	@Test
+	void reusingARotatedTokenRevokesTheFamily() {
+		String first = (String) tokens.issueTokens(user).get("refreshToken");
+		String second = (String) tokens.refresh(first).get("refreshToken");
+
+		assertThrows(RuntimeException.class, () -> tokens.refresh(first));
+		// The legitimate successor is gone too
+		assertThrows(RuntimeException.class, () -> tokens.refresh(second));
+		assertTrue(rows.stream().allMatch(token -> token.getRevokedAt() != null));
+	}
+
+	@Test
+	void losingAConcurrentRotationCountsAsReuse() {
+		String first = (String) tokens.issueTokens(user).get("refreshToken");
+		// Another request rotated the token after this one read it as live
+		RefreshToken stored = rows.get(0);
+		RefreshToken snapshot = RefreshToken.builder()
+				.tokenHash(stored.getTokenHash())
+				.userId(stored.getUserId())
+				.familyId(stored.getFamilyId())
+				.expiresAt(stored.getExpiresAt())
+				.build();
+		stored.setRevokedAt(LocalDateTime.now());
+		RefreshTokenRepository repository = (RefreshTokenRepository) ReflectionTestUtils.getField(tokens, "refreshTokenRepository");
+		when(repository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(snapshot));
+
+		assertThrows(RuntimeException.class, () -> tokens.refresh(first));
+		assertEquals(1, rows.size());
+	}
+
+	@Test
+	void rejectsExpiredUnknownAndLoggedOutRefreshTokens() {
+		String expired = (String) tokens.issueTokens(user).get("refreshToken");
+		rows.get(0).setExpiresAt(LocalDateTime.now().minusMinutes(1));
+		assertThrows(RuntimeException.class, () -> tokens.refresh(expired));
+		assertThrows(RuntimeException.class, () -> tokens.refresh("not-a-token"));
+
+		String loggedOut = (String) tokens.issueTokens(user).get("refreshToken");
+		tokens.revoke(loggedOut);
+		assertThrows(RuntimeException.class, () -> tokens.refresh(loggedOut));
+	}
+
+	private Optional<RefreshToken> row(String tokenHash) {
+		return rows.stream().filter(token -> token.getTokenHash().equals(tokenHash)).findFirst();
+	}
+}
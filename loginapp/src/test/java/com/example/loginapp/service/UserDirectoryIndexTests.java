@@ -0,0 +1,44 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.User;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDirectoryIndexTests {
+
+	@Test
+	void ranksByMatchQualityAndCountsFacets() {
+		UserDirectoryIndex directory = new UserDirectoryIndex();
+		directory.put(user(1L, "Bob Smith", "bob@college.edu", User.Role.STUDENT, null));
+		directory.put(user(2L, "Smita Rao", "smita@college.edu", User.Role.WORKER, User.WorkerType.PLUMBER));
+		directory.put(user(3L, "Asmith Kumar", "ak@college.edu", User.Role.WORKER, User.WorkerType.ELECTRICIAN));
+
+		UserDirectoryIndex.Result result = directory.search("smi", null, null, 0, 10);
+		assertEquals(List.of(2L, 1L, 3L), result.getIds());
+		assertEquals(2L, result.getRoleCounts().get(User.Role.WORKER));
+
+		UserDirectoryIndex.Result workers = directory.search("smi", User.Role.WORKER, null, 0, 1);
+		assertEquals(List.of(2L), workers.getIds());
+		assertEquals(2, workers.getTotal());
+	}
+
+	@Test
+	void updatesAndRemovalsReplaceOldTerms() {
+		UserDirectoryIndex directory = new UserDirectoryIndex();
+		directory.put(user(1L, "Alice Johnson", "student1@college.edu", User.Role.STUDENT, null));
+		directory.put(user(1L, "Alice Brown", "student1@college.edu", User.Role.STUDENT, null));
+
+		assertTrue(directory.search("johnson", null, null, 0, 10).getIds().isEmpty());
+		assertEquals(List.of(1L), directory.search("brown", null, null, 0, 10).getIds());
+
+		directory.remove(1L);
+		assertEquals(0, directory.size());
+	}
+
+	private User user(Long id, String name, String email, User.Role role, User.WorkerType workerType) {
+		return User.builder().id(id).name(name).email(email).role(role).workerType(workerType).build();
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.User;
+import com.example.loginapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserStatsServiceTests {
+
+	private final UserRepository users = mock(UserRepository.class);
+	private UserStatsService stats;
+
+	@BeforeEach
+	void setUp() {
+		when(users.countGroupedByRoleAndWorkerType()).thenReturn(List.of(
+				new Object[]{User.Role.ADMIN, null, 1L},
+				new Object[]{User.Role.WORKER, User.WorkerType.ELECTRICIAN, 2L},
+				new Object[]{User.Role.WORKER, null, 1L},
+				new Object[]{User.Role.STUDENT, null, 10L},
+				// A student with a worker type counts as a student only
+				new Object[]{User.Role.STUDENT, User.WorkerType.PLUMBER, 1L}));
+
+		stats = new UserStatsService();
+		ReflectionTestUtils.setField(stats, "userRepository", users);
+		stats.reload();
+	}
+
+	@Test
+	void seedsRolesAndWorkerTypesFromTheGroupedCounts() {
+		Map<String, Object> snapshot = stats.getSnapshot();
+
+		assertEquals(15L, snapshot.get("totalUsers"));
+		assertEquals(1L, snapshot.get("admins"));
+		assertEquals(3L, snapshot.get("workers"));
+		assertEquals(11L, snapshot.get("students"));
+		assertEquals(1L, snapshot.get("workersWithoutType"));
+		Map<?, ?> byType = (Map<?, ?>) snapshot.get("workersByType");
+		assertEquals(2L, byType.get(User.WorkerType.ELECTRICIAN));
+		assertEquals(0L, byType.get(User.WorkerType.PLUMBER));
+	}
+
+	@Test
+	void movesUsersOnCreateRoleChangeAndDelete() {
+		User user = User.builder().role(User.Role.STUDENT).build();
+		UserStatsService.Bucket student = UserStatsService.Bucket.of(user);
+		stats.record(null, student);
+
+		user.setRole(User.Role.WORKER);
+		user.setWorkerType(User.WorkerType.PLUMBER);
+		UserStatsService.Bucket plumber = UserStatsService.Bucket.of(user);
+		stats.record(student, plumber);
+		// Saving without changes leaves the counts alone
+		stats.record(plumber, UserStatsService.Bucket.of(user));
+
+		assertEquals(11L, stats.getCountByRole(User.Role.STUDENT));
+		assertEquals(4L, stats.getCountByRole(User.Role.WORKER));
+		assertEquals(1L, ((Map<?, ?>) stats.getSnapshot().get("workersByType")).get(User.WorkerType.PLUMBER));
+
+		stats.record(plumber, null);
+		stats.record(UserStatsService.Bucket.of(User.builder().role(User.Role.WORKER).build()), null);
+
+		assertEquals(2L, stats.getCountByRole(User.Role.WORKER));
+		assertEquals(0L, stats.getSnapshot().get("workersWithoutType"));
+		assertEquals(14L, stats.getSnapshot().get("totalUsers"));
+	}
+}
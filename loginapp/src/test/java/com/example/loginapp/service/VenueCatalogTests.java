@@ -0,0 +1,71 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.Venue;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VenueCatalogTests {
+
+	private final VenueCatalog catalog = VenueCatalog.of(1L, List.of(
+			venue(1L, "Main Hall", "Science Block", "Ground floor", Venue.VenueType.HALL),
+			venue(2L, "Science Lab", "Science Block", "First floor", Venue.VenueType.LAB),
+			venue(3L, "Seminar Room", "Arts Block", "Near the science garden", Venue.VenueType.CLASSROOM),
+			venue(4L, "Library", null, "Science quad", Venue.VenueType.LIBRARY)));
+
+	@Test
+	void ranksWholeValuesAboveLaterWordsAndNamesAboveOtherFields() {
+		// Whole name, whole building, whole location, then a word inside a location
+		assertEquals(List.of(2L, 1L, 4L, 3L), ids(catalog.autocomplete("sci", 10)));
+		assertEquals(List.of(2L, 1L), ids(catalog.autocomplete("SCI ", 2)));
+	}
+
+	@Test
+	void findsEveryVenueSharingAnExactKey() {
+		// Both venues index the same "science block" key; equal weights stay in name order
+		assertEquals(List.of(1L, 2L), ids(catalog.autocomplete("science block", 10)));
+		assertEquals(List.of(3L), ids(catalog.autocomplete("garden", 10)));
+		assertTrue(catalog.autocomplete("zzz", 10).isEmpty());
+		// Sorts before every key
+		assertTrue(catalog.autocomplete("!", 10).isEmpty());
+	}
+
+	@Test
+	void blankPrefixListsVenuesByName() {
+		assertEquals(List.of(4L, 1L), ids(catalog.autocomplete("  ", 2)));
+		assertEquals(List.of(4L, 1L, 2L, 3L), ids(catalog.getVenues()));
+	}
+
+	@Test
+	void writesProduceANewVersionAndLeaveTheOldSnapshotAlone() {
+		VenueCatalog renamed = catalog.with(venue(3L, "Auditorium", "Arts Block", null, Venue.VenueType.HALL));
+		VenueCatalog removed = renamed.without(1L);
+
+		assertEquals(2L, renamed.getVersion());
+		assertEquals(3L, removed.getVersion());
+		assertEquals("Auditorium", renamed.getById(3L).get().getName());
+		assertEquals("Seminar Room", catalog.getById(3L).get().getName());
+		assertEquals(List.of(3L), ids(renamed.autocomplete("aud", 10)));
+		assertTrue(catalog.autocomplete("aud", 10).isEmpty());
+		assertEquals(3, removed.size());
+		assertTrue(removed.getById(1L).isEmpty());
+		assertTrue(removed.autocomplete("main", 10).isEmpty());
+	}
+
+	@Test
+	void filtersMatchTheOldQueries() {
+		assertEquals(List.of(1L, 2L, 3L), ids(catalog.search(" BLOCK")));
+		assertEquals(List.of(2L), ids(catalog.byType(Venue.VenueType.LAB)));
+		assertEquals(List.of(1L, 2L), ids(catalog.byBuilding("science block")));
+	}
+
+	private static List<Long> ids(List<Venue> venues) {
+		return venues.stream().map(Venue::getId).toList();
+	}
+
+	private static Venue venue(Long id, String name, String building, String location, Venue.VenueType type) {
+		return Venue.builder().id(id).name(name).building(building).location(location).type(type).build();
+	}
+}
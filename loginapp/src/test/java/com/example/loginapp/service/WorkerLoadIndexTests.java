@@ -0,0 +1,70 @@
+package com.example.loginapp.service;
+
+import com.example.loginapp.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WorkerLoadIndexTests {
+
+	@Test
+	void picksTheLeastLoadedWorkerAndTakesTurnsOnTies() {
+		WorkerLoadIndex index = new WorkerLoadIndex();
+		index.putWorker(1L, User.WorkerType.PLUMBER, 4);
+		index.putWorker(2L, User.WorkerType.PLUMBER, 0);
+		index.putWorker(3L, User.WorkerType.PLUMBER, 0);
+		index.putWorker(4L, User.WorkerType.ELECTRICIAN, 0);
+
+		assertEquals(2L, index.pick(User.WorkerType.PLUMBER, 2));
+		assertEquals(3L, index.pick(User.WorkerType.PLUMBER, 2));
+		assertEquals(2L, index.pick(User.WorkerType.PLUMBER, 2));
+		assertEquals(3L, index.pick(User.WorkerType.PLUMBER, 2));
+		assertEquals(1L, index.pick(User.WorkerType.PLUMBER, 2));
+		assertNull(index.pick(User.WorkerType.CARPENTER, 1));
+	}
+
+	@Test
+	void followsLoadChangesAndRemovals() {
+		WorkerLoadIndex index = new WorkerLoadIndex();
+		index.putWorker(1L, User.WorkerType.GENERAL, 10);
+		index.putWorker(2L, User.WorkerType.GENERAL, 5);
+		index.putWorker(3L, User.WorkerType.GENERAL, 7);
+
+		index.addLoad(1L, -8);
+		assertEquals(1L, index.pick(User.WorkerType.GENERAL, 1));
+		assertEquals(3L, index.loadOf(1L));
+
+		index.removeWorker(1L);
+		index.putWorker(3L, User.WorkerType.NETWORK, 0);
+		assertEquals(2L, index.pick(User.WorkerType.GENERAL, 1));
+		assertEquals(7L, index.loadOf(3L));
+		assertEquals(List.of(3L), index.snapshot().get(User.WorkerType.NETWORK).stream()
+				.map(WorkerLoadIndex.Load::getWorkerId).toList());
+	}
+
+	// Run with -Dbenchmark=true to print assignments/sec: pick, then the matching release as a save would
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void measuresAssignmentsPerSecond() {
+		WorkerLoadIndex index = new WorkerLoadIndex();
+		User.WorkerType[] types = User.WorkerType.values();
+		for (long id = 0; id < 5_000; id++) {
+			index.putWorker(id, types[(int) (id % types.length)], id % 13);
+		}
+		int assignments = 2_000_000;
+		long started = System.nanoTime();
+		for (int i = 0; i < assignments; i++) {
+			User.WorkerType type = types[i % types.length];
+			Long worker = index.pick(type, 1 + (i & 7));
+			if ((i & 1) == 0) {
+				index.addLoad(worker, -(1 + (i & 7)));
+			}
+		}
+		double seconds = (System.nanoTime() - started) / 1e9;
+		System.out.printf("%d assignments over %d workers in %.2fs = %.0f assignments/sec%n",
+				assignments, index.size(), seconds, assignments / seconds);
+	}
+}